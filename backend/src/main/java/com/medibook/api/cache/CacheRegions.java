@@ -0,0 +1,18 @@
+package com.medibook.api.cache;
+
+/**
+ * Regiones de la caché de segundo nivel de Hibernate.
+ */
+public final class CacheRegions {
+
+    public static final String DOCTORS = "doctors";
+    public static final String PATIENTS = "patients";
+    public static final String USERS = "users";
+
+    // Regiones propias de Hibernate para resultados de consultas y marcas de actualización
+    public static final String QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    private CacheRegions() {
+    }
+}
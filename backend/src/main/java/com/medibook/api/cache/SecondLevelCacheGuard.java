@@ -0,0 +1,71 @@
+package com.medibook.api.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Vigila la proporción de escrituras y lecturas de cada entidad cacheada. Si en
+ * un intervalo las escrituras superan {@code maxWriteRatio} veces las lecturas
+ * de la región (con un mínimo de escrituras, para no reaccionar al ruido), la
+ * caché de esa entidad sólo suma invalidaciones y se apaga; se vuelve a
+ * encender cuando la proporción cae por debajo de la mitad del umbral.
+ */
+public class SecondLevelCacheGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheGuard.class);
+
+    private final Statistics statistics;
+    private final SwitchableJCacheRegionFactory regionFactory;
+    private final Map<String, String> entitiesByRegion;
+    private final long minWrites;
+    private final double maxWriteRatio;
+    private final Map<String, long[]> previous = new ConcurrentHashMap<>();
+
+    public SecondLevelCacheGuard(EntityManagerFactory entityManagerFactory,
+            SwitchableJCacheRegionFactory regionFactory, Map<String, String> entitiesByRegion, long minWrites,
+            double maxWriteRatio) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.regionFactory = regionFactory;
+        this.entitiesByRegion = entitiesByRegion;
+        this.minWrites = minWrites;
+        this.maxWriteRatio = maxWriteRatio;
+    }
+
+    @Scheduled(fixedDelayString = "${medibook.second-level-cache.guard-interval:PT1M}", initialDelayString = "${medibook.second-level-cache.guard-interval:PT1M}")
+    public void check() {
+        entitiesByRegion.forEach((region, entity) -> {
+            EntityStatistics entityStats = statistics.getEntityStatistics(entity);
+            CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+            long writes = entityStats.getInsertCount() + entityStats.getUpdateCount() + entityStats.getDeleteCount();
+            long reads = regionStats.getHitCount() + regionStats.getMissCount();
+
+            long[] last = previous.put(region, new long[] { writes, reads });
+            if (last == null) {
+                return;
+            }
+            long deltaWrites = writes - last[0];
+            long deltaReads = reads - last[1];
+
+            boolean enabled = regionFactory.isEnabled(region);
+            if (enabled && deltaWrites >= minWrites && deltaWrites > deltaReads * maxWriteRatio) {
+                regionFactory.setEnabled(region, false);
+                logger.warn("Caché de segundo nivel apagada para '{}': {} escrituras contra {} lecturas", region,
+                        deltaWrites, deltaReads);
+            } else if (!enabled && deltaWrites <= deltaReads * maxWriteRatio / 2) {
+                regionFactory.setEnabled(region, true);
+                logger.info("Caché de segundo nivel encendida para '{}': {} escrituras contra {} lecturas", region,
+                        deltaWrites, deltaReads);
+            }
+        });
+    }
+}
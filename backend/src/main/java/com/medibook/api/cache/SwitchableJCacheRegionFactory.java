@@ -0,0 +1,126 @@
+package com.medibook.api.cache;
+
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.support.AbstractReadWriteAccess;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fábrica de regiones JCache cuyas regiones de entidades pueden apagarse en
+ * caliente. Una región apagada no devuelve ni guarda datos, pero sigue
+ * aplicando las bajas e invalidaciones y guardando los bloqueos blandos de las
+ * estrategias READ_WRITE. Así, al volver a encenderse, una carga que empezó
+ * antes de que se confirmara una escritura encuentra el bloqueo y no puede
+ * dejar en la caché la versión vieja. Por eso al encenderla no se vacía: se
+ * perderían justamente esos bloqueos.
+ */
+public class SwitchableJCacheRegionFactory extends JCacheRegionFactory {
+
+    private final Map<String, SwitchableStorageAccess> regions = new ConcurrentHashMap<>();
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return wrap(regionConfig.getRegionName(), super.createDomainDataStorageAccess(regionConfig, buildingContext));
+    }
+
+    SwitchableStorageAccess wrap(String region, DomainDataStorageAccess delegate) {
+        SwitchableStorageAccess access = new SwitchableStorageAccess(delegate);
+        regions.put(region, access);
+        return access;
+    }
+
+    /**
+     * Enciende o apaga una región; al apagarla se vacía de datos.
+     *
+     * @return false si la región no existe.
+     */
+    public boolean setEnabled(String region, boolean enabled) {
+        SwitchableStorageAccess access = regions.get(region);
+        if (access == null) {
+            return false;
+        }
+        access.enabled = enabled;
+        if (!enabled) {
+            access.evictData();
+        }
+        return true;
+    }
+
+    public boolean isEnabled(String region) {
+        SwitchableStorageAccess access = regions.get(region);
+        return access != null && access.enabled;
+    }
+
+    static final class SwitchableStorageAccess implements DomainDataStorageAccess {
+
+        private final DomainDataStorageAccess delegate;
+        private volatile boolean enabled = true;
+
+        SwitchableStorageAccess(DomainDataStorageAccess delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            if (enabled) {
+                return delegate.getFromCache(key, session);
+            }
+            Object value = delegate.getFromCache(key, session);
+            return isSoftLock(value) ? value : null;
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            if (enabled || isSoftLock(value)) {
+                delegate.putIntoCache(key, value, session);
+            }
+        }
+
+        @Override
+        public void putFromLoad(Object key, Object value, SharedSessionContractImplementor session) {
+            if (enabled) {
+                delegate.putFromLoad(key, value, session);
+            }
+        }
+
+        @Override
+        public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+            delegate.removeFromCache(key, session);
+        }
+
+        @Override
+        public void clearCache(SharedSessionContractImplementor session) {
+            delegate.clearCache(session);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return enabled && delegate.contains(key);
+        }
+
+        @Override
+        public void evictData() {
+            delegate.evictData();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            delegate.evictData(key);
+        }
+
+        @Override
+        public void release() {
+            delegate.release();
+        }
+
+        private static boolean isSoftLock(Object value) {
+            return value instanceof AbstractReadWriteAccess.SoftLockImpl;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.medibook.api.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché en memoria acotada en cantidad de entradas y con vencimiento por tiempo.
+ * Como todas las entradas viven lo mismo, el orden de inserción coincide con el
+ * de vencimiento: las vencidas se purgan desde la cabeza al insertar y, si se
+ * supera el máximo, se descarta la más antigua. Las operaciones son O(1) y la
+ * sección sincronizada es mínima. Aciertos y fallos cuentan sólo las lecturas
+ * ({@link #get}): guardar lo que se acaba de cargar no es una consulta más.
+ *
+ * @param <K> Tipo de la clave.
+ * @param <V> Tipo del valor.
+ */
+public class TtlCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TtlCache(int maxEntries, Duration ttl) {
+        if (maxEntries < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("La caché requiere capacidad y vencimiento positivos");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Devuelve el valor vigente de la clave, o null si no existe o venció.
+     */
+    public V get(K key) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt() < 0) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Guarda el valor si no hay uno vigente para la clave.
+     *
+     * @return El valor vigente que ya existía, o null si se guardó el nuevo.
+     */
+    public V putIfAbsent(K key, V value) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            purgeExpired(now);
+            Entry<V> existing = entries.get(key);
+            if (existing != null && now - existing.expiresAt() < 0) {
+                return existing.value();
+            }
+            entries.remove(key);
+            entries.put(key, new Entry<>(value, now + ttlNanos));
+            if (entries.size() > maxEntries) {
+                Iterator<K> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return null;
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Elimina la clave sólo si sigue asociada a ese valor.
+     */
+    public synchronized void remove(K key, V value) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.value() == value) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && now - iterator.next().getValue().expiresAt() >= 0) {
+            iterator.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
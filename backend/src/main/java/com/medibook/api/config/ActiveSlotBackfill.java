@@ -0,0 +1,49 @@
+package com.medibook.api.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Completa {@code active_slot} en las citas anteriores a la columna. Una fila
+ * activa con null no entra en {@code uk_appointments_doctor_active_slot}, así
+ * que sin esto otro nodo podría reservar encima de ella en modo cluster.
+ * <p>
+ * Corre al terminar de crear los beans (Hibernate ya actualizó el esquema) y
+ * antes de que el servidor web acepte peticiones. Si los datos viejos ya tienen
+ * dos citas activas en el mismo horario, sólo se completa la de menor id: la
+ * otra queda en null y se informa.
+ */
+@Component
+public class ActiveSlotBackfill implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveSlotBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ActiveSlotBackfill(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int updated = jdbcTemplate.update("UPDATE appointments a SET active_slot = a.date_time"
+                + " WHERE a.status <> 'CANCELLED' AND a.active_slot IS NULL"
+                + " AND NOT EXISTS (SELECT 1 FROM appointments b WHERE b.doctor_id = a.doctor_id"
+                + " AND b.date_time = a.date_time AND b.status <> 'CANCELLED' AND b.id <> a.id"
+                + " AND (b.active_slot IS NOT NULL OR b.id < a.id))");
+        if (updated > 0) {
+            logger.info("Horario activo completado en {} citas anteriores", updated);
+        }
+
+        Integer duplicated = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments"
+                + " WHERE status <> 'CANCELLED' AND active_slot IS NULL", Integer.class);
+        if (duplicated != null && duplicated > 0) {
+            logger.warn("{} citas activas comparten horario con otra del mismo doctor y quedan fuera de la"
+                    + " restricción única; revisar y cancelar las duplicadas", duplicated);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.medibook.api.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Alinea la secuencia de citas con los ids existentes. Las tablas creadas
+ * cuando el id era IDENTITY ya tienen filas, y la secuencia nueva empezaría
+ * desde 1. Corre al terminar de crear los beans (Hibernate ya actualizó el
+ * esquema) y antes de que el servidor web acepte peticiones: una cita creada
+ * antes de alinear podría recibir un id ya usado.
+ */
+@Component
+public class AppointmentSequenceInitializer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentSequenceInitializer.class);
+
+    // Debe coincidir con allocationSize de Appointment
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AppointmentSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT setval('appointments_seq', GREATEST((SELECT last_value FROM appointments_seq),"
+                        + " (SELECT COALESCE(MAX(id), 0) FROM appointments) + " + ALLOCATION_SIZE + "))",
+                Long.class);
+        logger.info("Secuencia de citas alineada en {}", value);
+    }
+}
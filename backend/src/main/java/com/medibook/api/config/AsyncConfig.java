@@ -0,0 +1,13 @@
+package com.medibook.api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Habilita {@code @Async}. Las tareas corren en el ejecutor que configura Spring
+ * Boot, dimensionado con las propiedades {@code spring.task.execution.*}.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
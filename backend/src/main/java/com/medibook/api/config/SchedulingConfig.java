@@ -0,0 +1,13 @@
+package com.medibook.api.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita {@code @Scheduled} para las tareas periódicas (p. ej. el recorte de
+ * la caché de recetas en disco).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,110 @@
+package com.medibook.api.config;
+
+import com.medibook.api.cache.CacheRegions;
+import com.medibook.api.cache.SecondLevelCacheGuard;
+import com.medibook.api.cache.SwitchableJCacheRegionFactory;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Caché de segundo nivel de Hibernate para doctores, pacientes y usuarios
+ * (entidades por ID y consultas por email o usuario marcadas como cacheables).
+ * Se activa con {@code medibook.second-level-cache.enabled=true}; usa Ehcache
+ * vía JCache, en memoria y acotada por cantidad de entradas. Las estadísticas
+ * de Hibernate y de cada caché se publican como métricas (aciertos, fallos y
+ * desalojos), y {@link SecondLevelCacheGuard} apaga la región de una entidad
+ * cuando las escrituras dominan.
+ */
+@Configuration
+@ConditionalOnProperty(name = "medibook.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    private static final Map<String, String> ENTITIES_BY_REGION = Map.of(
+            CacheRegions.DOCTORS, Doctor.class.getName(),
+            CacheRegions.PATIENTS, Patient.class.getName(),
+            CacheRegions.USERS, User.class.getName());
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(MeterRegistry meterRegistry,
+            @Value("${medibook.second-level-cache.max-entries:10000}") long maxEntries,
+            @Value("${medibook.second-level-cache.ttl:PT30M}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(org.ehcache.jsr107.EhcacheCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : ENTITIES_BY_REGION.keySet()) {
+            create(cacheManager, meterRegistry, region, maxEntries, ttl);
+        }
+        create(cacheManager, meterRegistry, CacheRegions.QUERY_RESULTS, maxEntries, ttl);
+        // Las marcas de actualización no deben vencer antes que los resultados que validan
+        create(cacheManager, meterRegistry, CacheRegions.UPDATE_TIMESTAMPS, maxEntries, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public SwitchableJCacheRegionFactory hibernateRegionFactory(MeterRegistry meterRegistry) {
+        SwitchableJCacheRegionFactory regionFactory = new SwitchableJCacheRegionFactory();
+        ENTITIES_BY_REGION.keySet().forEach(region -> Gauge
+                .builder("medibook.second-level-cache.enabled", regionFactory,
+                        factory -> factory.isEnabled(region) ? 1 : 0)
+                .tags("region", region)
+                .register(meterRegistry));
+        return regionFactory;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager,
+            SwitchableJCacheRegionFactory hibernateRegionFactory) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, hibernateRegionFactory);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // Necesarias para las métricas de aciertos y para el guardián de escrituras
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            // Sin esto las estadísticas vuelcan un resumen INFO por cada sesión
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+
+    @Bean
+    public SecondLevelCacheGuard secondLevelCacheGuard(EntityManagerFactory entityManagerFactory,
+            SwitchableJCacheRegionFactory hibernateRegionFactory,
+            @Value("${medibook.second-level-cache.guard-min-writes:50}") long minWrites,
+            @Value("${medibook.second-level-cache.guard-max-write-ratio:0.5}") double maxWriteRatio) {
+        return new SecondLevelCacheGuard(entityManagerFactory, hibernateRegionFactory, ENTITIES_BY_REGION, minWrites,
+                maxWriteRatio);
+    }
+
+    private static void create(CacheManager cacheManager, MeterRegistry meterRegistry, String name, long maxEntries,
+            Duration ttl) {
+        CacheConfigurationBuilder<Object, Object> config = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries));
+        if (ttl != null) {
+            config = config.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl));
+        }
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(config));
+        cacheManager.enableStatistics(name, true);
+        JCacheMetrics.monitor(meterRegistry, cacheManager.getCache(name), "region", name);
+    }
+}
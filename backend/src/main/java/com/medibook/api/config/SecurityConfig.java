@@ -1,6 +1,7 @@
 package com.medibook.api.config;
 
 import com.medibook.api.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -45,6 +46,13 @@ public class SecurityConfig {
                         // 0. Permitir OPTIONS para preflight checks de CORS (Vital para Vercel)
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                        // Los ResponseStatusException (409, 400...) se reenvían a /error sin contexto
+                        // de seguridad; sin esto el cliente recibe 403 en lugar del código real
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
+                        // El cierre de una respuesta en streaming vuelve a despacharse como ASYNC, también
+                        // sin contexto; la petición original ya pasó por la autorización
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // 1. Acceso Público (Login/Registro)
                         .requestMatchers("/api/auth/**").permitAll()
 
@@ -53,8 +61,26 @@ public class SecurityConfig {
                         .requestMatchers("/api/appointments/book-me").authenticated()
                         .requestMatchers("/api/appointments/my-appointments").authenticated()
 
+                        // Lista de espera: cada paciente gestiona la suya; el alta con prioridad es de Admin
+                        .requestMatchers("/api/waitlist/me/**").authenticated()
+                        .requestMatchers("/api/waitlist/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+
+                        // Exportación masiva de citas y de recetas: solo Admin
+                        .requestMatchers("/api/appointments/export").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+                        .requestMatchers("/api/appointments/prescriptions/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+
+                        // Actuator: el chequeo de salud es público (balanceadores); las métricas, de Admin
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+
+                        // Estadísticas del tablero y reportes: solo Admin
+                        .requestMatchers("/api/stats/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+                        .requestMatchers("/api/reports/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
+
                         // 3. Endpoints de Admin y Lectura General
                         // DOCTORES: Todos pueden ver la lista, solo Admin puede crear/borrar
+                        // La agenda expone datos de pacientes: solo Admin
+                        .requestMatchers("/api/doctors/*/agenda").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/doctors/**").authenticated()
                         .requestMatchers("/api/doctors/**").hasAnyAuthority("ADMIN", "ROLE_ADMIN")
 
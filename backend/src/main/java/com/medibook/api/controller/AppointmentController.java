@@ -26,23 +26,69 @@ public class AppointmentController {
 
     private static final Logger logger = LoggerFactory.getLogger(AppointmentController.class);
 
+    // Atributos de petición con los que Tomcat (NIO) hace sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final AppointmentService appointmentService;
-    private final com.medibook.api.service.PdfService pdfService;
-    private final com.medibook.api.repository.UserRepository userRepository;
+    private final com.medibook.api.service.PrescriptionPdfCache prescriptionPdfCache;
+    private final com.medibook.api.service.PrescriptionExportService prescriptionExportService;
+    private final com.medibook.api.service.IdempotencyService idempotencyService;
+    private final com.medibook.api.service.AppointmentExportService appointmentExportService;
 
     /**
      * Crea una nueva cita médica en el sistema.
      * 
-     * @param request Datos de la solicitud de la cita.
+     * @param request        Datos de la solicitud de la cita.
+     * @param idempotencyKey Clave opcional para que los reintentos no dupliquen la cita.
+     * @param principal      Usuario autenticado.
      * @return Respuesta con los detalles de la cita creada.
      */
     @PostMapping
-    public ResponseEntity<AppointmentResponse> createAppointment(@RequestBody AppointmentRequest request) {
-        AppointmentResponse response = appointmentService.createAppointment(request);
-        logger.info("Cita creada correctamente para el paciente: {}", request.patientEmail());
+    public ResponseEntity<AppointmentResponse> createAppointment(@RequestBody AppointmentRequest request,
+            @org.springframework.web.bind.annotation.RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            java.security.Principal principal) {
+        String owner = principal != null ? principal.getName() : null;
+        String scope = "create:" + (owner != null ? owner : "anonymous");
+        AppointmentResponse response = idempotencyService.execute(scope, idempotencyKey, request, () -> {
+            AppointmentResponse created = appointmentService.createAppointment(request, owner);
+            logger.info("Cita creada correctamente para el paciente: {}", request.patientEmail());
+            return created;
+        });
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    /**
+     * Crea varias citas en una sola transacción (centro de llamadas e
+     * integraciones).
+     * 
+     * @param requests Lista de solicitudes de citas.
+     * @return Resultado individual de cada solicitud.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.BatchResponse> createAppointments(
+            @RequestBody java.util.List<AppointmentRequest> requests) {
+        com.medibook.api.dto.AppointmentDTO.BatchResponse response = appointmentService.createAppointments(requests);
+        logger.info("Lote de citas procesado: {} creadas, {} rechazadas", response.created(), response.failed());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Crea una serie de citas recurrentes a partir de una regla de repetición.
+     * 
+     * @param request Primera ocurrencia y regla de recurrencia.
+     * @return Resultado de cada ocurrencia.
+     */
+    @PostMapping("/series")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.BatchResponse> createSeries(
+            @RequestBody AppointmentRequest request) {
+        com.medibook.api.dto.AppointmentDTO.BatchResponse response = appointmentService.createSeries(request);
+        logger.info("Serie de citas procesada: {} creadas, {} rechazadas", response.created(), response.failed());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Obtiene el historial de citas del usuario autenticado.
      * 
@@ -57,30 +103,62 @@ public class AppointmentController {
     /**
      * Permite a un paciente registrar su propia cita.
      * 
-     * @param request   Datos de la solicitud.
-     * @param principal Usuario autenticado.
+     * @param request        Datos de la solicitud.
+     * @param idempotencyKey Clave opcional para que los reintentos no dupliquen la cita.
+     * @param user           Usuario autenticado.
      * @return Detalles de la cita creada.
      */
     @PostMapping("/book-me")
     public ResponseEntity<AppointmentResponse> bookMe(@RequestBody AppointmentRequest request,
-            java.security.Principal principal) {
-        var user = userRepository.findByUsername(principal.getName()).orElseThrow();
-        var patient = user.getPatient();
+            @org.springframework.web.bind.annotation.RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @org.springframework.security.core.annotation.AuthenticationPrincipal com.medibook.api.security.AuthenticatedUser user) {
+        AppointmentResponse response = idempotencyService.execute("book-me:" + user.getName(), idempotencyKey,
+                request, () -> bookForPrincipal(request, user));
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
 
-        if (patient == null) {
+    /**
+     * Permite a un paciente registrar una serie de citas recurrentes (por ejemplo,
+     * todos los martes a las 10:00 durante 26 semanas).
+     * 
+     * @param request Primera ocurrencia y regla de recurrencia.
+     * @param user    Usuario autenticado.
+     * @return Resultado de cada ocurrencia.
+     */
+    @PostMapping("/book-me/series")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.BatchResponse> bookMeSeries(
+            @RequestBody AppointmentRequest request,
+            @org.springframework.security.core.annotation.AuthenticationPrincipal com.medibook.api.security.AuthenticatedUser user) {
+        return ResponseEntity.ok(appointmentService.createSeries(forPatientOf(request, user)));
+    }
+
+    private AppointmentResponse bookForPrincipal(AppointmentRequest request,
+            com.medibook.api.security.AuthenticatedUser user) {
+        AppointmentRequest safeRequest = forPatientOf(request, user);
+        AppointmentResponse response = appointmentService.createAppointment(safeRequest, user.getName());
+        logger.info("Paciente {} reservó una cita con doctor ID {}", safeRequest.patientEmail(), request.doctorId());
+        return response;
+    }
+
+    /**
+     * Reemplaza los datos del paciente de la solicitud por los del usuario
+     * autenticado, que ya vienen en el principal: no hace falta consultar la base.
+     */
+    private AppointmentRequest forPatientOf(AppointmentRequest request,
+            com.medibook.api.security.AuthenticatedUser user) {
+        if (user.patientId() == null) {
             throw new org.springframework.web.server.ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "User not linked to a patient");
         }
 
-        AppointmentRequest safeRequest = new AppointmentRequest(
+        return new AppointmentRequest(
                 request.doctorId(),
                 request.dateTime(),
-                patient.getFirstName() + " " + patient.getLastName(),
-                patient.getEmail());
-
-        AppointmentResponse response = appointmentService.createAppointment(safeRequest);
-        logger.info("Paciente {} reservó una cita con doctor ID {}", patient.getEmail(), request.doctorId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+                user.patientName(),
+                user.patientEmail(),
+                request.durationMinutes(),
+                request.holdId(),
+                request.recurrence());
     }
 
     @org.springframework.web.bind.annotation.GetMapping
@@ -88,6 +166,87 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.getAllAppointments());
     }
 
+    /**
+     * Listado paginado y filtrable de citas (se activa al enviar {@code limit}).
+     * Para la página siguiente se reenvía el {@code nextCursor} recibido con los
+     * mismos filtros.
+     * 
+     * @param limit    Tamaño de página (máximo 200).
+     * @param cursor   Cursor de la página anterior.
+     * @param doctorId Filtro por doctor.
+     * @param status   Filtro por estado.
+     * @param from     Desde (inclusive, ISO-8601).
+     * @param to       Hasta (exclusivo, ISO-8601).
+     * @param sort     {@code desc} (por defecto, más nuevas primero) o {@code asc}.
+     * @return Página de citas.
+     */
+    @org.springframework.web.bind.annotation.GetMapping(params = "limit")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.AppointmentPage> getAppointmentsPage(
+            @org.springframework.web.bind.annotation.RequestParam int limit,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) String cursor,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) Long doctorId,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) com.medibook.api.model.AppointmentStatus status,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) java.time.LocalDateTime from,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) java.time.LocalDateTime to,
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "desc") String sort) {
+        return ResponseEntity.ok(appointmentService.getAppointmentsPage(doctorId, status, from, to,
+                !"asc".equalsIgnoreCase(sort), cursor, limit));
+    }
+
+    /**
+     * Exporta las citas de un período (solo Admin). La respuesta se escribe a
+     * medida que se leen las filas, sin armar la lista completa en memoria.
+     * 
+     * @param from   Desde (inclusive, ISO-8601).
+     * @param to     Hasta (exclusivo, ISO-8601).
+     * @param format {@code ndjson} (por defecto) o {@code csv}.
+     * @return Cuerpo que se transmite fila por fila.
+     */
+    @org.springframework.web.bind.annotation.GetMapping("/export")
+    public ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> exportAppointments(
+            @org.springframework.web.bind.annotation.RequestParam java.time.LocalDateTime from,
+            @org.springframework.web.bind.annotation.RequestParam java.time.LocalDateTime to,
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "ndjson") String format) {
+        com.medibook.api.service.AppointmentExportService.Format exportFormat = com.medibook.api.service.AppointmentExportService.Format
+                .parse(format);
+        appointmentExportService.validateRange(from, to);
+
+        return ResponseEntity.ok()
+                .header(org.springframework.http.HttpHeaders.CONTENT_TYPE, exportFormat.contentType())
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=citas_" + from.toLocalDate() + "_" + to.toLocalDate() + "."
+                                + exportFormat.extension())
+                .body(out -> appointmentExportService.export(from, to, exportFormat, out));
+    }
+
+    /**
+     * Descarga en un ZIP las recetas de las citas completadas de un doctor o de un
+     * paciente en un período (solo Admin), para auditorías y pedidos de historia
+     * clínica. Los PDF se generan en paralelo y se escriben a medida que terminan.
+     *
+     * @param doctorId  ID del doctor (o bien {@code patientId}).
+     * @param patientId ID del paciente (o bien {@code doctorId}).
+     * @param from      Desde (inclusive, ISO-8601).
+     * @param to        Hasta (exclusivo, ISO-8601).
+     * @return Cuerpo que se transmite receta por receta.
+     */
+    @org.springframework.web.bind.annotation.GetMapping("/prescriptions/export")
+    public ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> exportPrescriptions(
+            @org.springframework.web.bind.annotation.RequestParam(required = false) Long doctorId,
+            @org.springframework.web.bind.annotation.RequestParam(required = false) Long patientId,
+            @org.springframework.web.bind.annotation.RequestParam java.time.LocalDateTime from,
+            @org.springframework.web.bind.annotation.RequestParam java.time.LocalDateTime to) {
+        java.util.List<Long> ids = prescriptionExportService.findCompletedIds(doctorId, patientId, from, to);
+        String owner = doctorId != null ? "doctor_" + doctorId : "paciente_" + patientId;
+
+        return ResponseEntity.ok()
+                .header(org.springframework.http.HttpHeaders.CONTENT_TYPE, "application/zip")
+                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=recetas_" + owner + "_" + from.toLocalDate() + "_" + to.toLocalDate()
+                                + ".zip")
+                .body(out -> prescriptionExportService.writeZip(ids, out));
+    }
+
     @org.springframework.web.bind.annotation.PatchMapping("/{id}/status")
     public ResponseEntity<AppointmentResponse> updateStatus(
             @org.springframework.web.bind.annotation.PathVariable Long id,
@@ -108,8 +267,19 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.getPatientHistory(email));
     }
 
+    /**
+     * Descarga la receta de una cita completada. Se sirve desde la caché de
+     * recetas: desde memoria, o desde disco con sendfile cuando el contenedor lo
+     * admite (el archivo pasa al socket sin copiarse en la JVM).
+     *
+     * @param id       ID de la cita.
+     * @param request  Petición HTTP, para saber si hay sendfile.
+     * @param response Respuesta HTTP donde se escribe el PDF.
+     */
     @org.springframework.web.bind.annotation.GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> generatePdf(@org.springframework.web.bind.annotation.PathVariable Long id) {
+    public void generatePdf(@org.springframework.web.bind.annotation.PathVariable Long id,
+            jakarta.servlet.http.HttpServletRequest request,
+            jakarta.servlet.http.HttpServletResponse response) throws java.io.IOException {
         com.medibook.api.model.Appointment appointment = appointmentService.getAppointment(id);
 
         if (appointment.getStatus() != com.medibook.api.model.AppointmentStatus.COMPLETED) {
@@ -118,14 +288,22 @@ public class AppointmentController {
                     "Error: El PDF solo está disponible para citas completadas.");
         }
 
-        byte[] pdfContent = pdfService.generatePrescription(appointment);
+        com.medibook.api.service.PrescriptionPdfCache.Prescription pdf = prescriptionPdfCache.get(appointment);
+        response.setContentType(org.springframework.http.MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=receta_medibook_" + id + ".pdf");
+        response.setContentLengthLong(pdf.size());
 
-        return ResponseEntity.ok()
-                .header(org.springframework.http.HttpHeaders.CONTENT_TYPE,
-                        org.springframework.http.MediaType.APPLICATION_PDF_VALUE)
-                .header(org.springframework.http.HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=receta_medibook_" + id + ".pdf")
-                .body(pdfContent);
+        if (pdf.file() == null) {
+            response.getOutputStream().write(pdf.content());
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat envía el archivo al terminar la petición
+            request.setAttribute(SENDFILE_FILENAME, pdf.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, pdf.size());
+        } else {
+            java.nio.file.Files.copy(pdf.file(), response.getOutputStream());
+        }
     }
 
     @org.springframework.web.bind.annotation.GetMapping("/taken-slots")
@@ -137,13 +315,77 @@ public class AppointmentController {
         java.time.LocalDateTime start = localDate.atStartOfDay();
         java.time.LocalDateTime end = localDate.atTime(java.time.LocalTime.MAX);
 
-        java.util.List<com.medibook.api.model.Appointment> appointments = appointmentService
-                .getAppointmentsByDoctorAndDateRange(doctorId, start, end);
+        java.util.List<com.medibook.api.repository.BookedSlot> taken = new java.util.ArrayList<>();
+        appointmentService.getAppointmentsByDoctorAndDateRange(doctorId, start, end).stream()
+                .filter(appointment -> appointment.getStatus() != com.medibook.api.model.AppointmentStatus.CANCELLED)
+                .forEach(appointment -> taken.add(new com.medibook.api.repository.BookedSlot(doctorId,
+                        appointment.getDateTime(), appointment.getDurationMinutes())));
+        // Los horarios apartados por otro paciente también se muestran ocupados
+        taken.addAll(appointmentService.getHeldSlots(doctorId, start, end));
 
-        java.util.List<java.time.LocalTime> takenSlots = appointments.stream()
-                .map(appointment -> appointment.getDateTime().toLocalTime())
+        // Una cita larga ocupa todos los turnos de 30 minutos que toca
+        java.util.List<java.time.LocalTime> takenSlots = taken.stream()
+                .flatMap(booked -> {
+                    java.time.LocalDateTime slot = booked.dateTime().truncatedTo(java.time.temporal.ChronoUnit.HOURS)
+                            .plusMinutes(booked.dateTime().getMinute() / 30 * 30);
+                    java.util.List<java.time.LocalTime> slots = new java.util.ArrayList<>();
+                    for (; slot.isBefore(booked.endTime()); slot = slot.plusMinutes(30)) {
+                        slots.add(slot.toLocalTime());
+                    }
+                    return slots.stream();
+                })
+                .distinct()
+                .sorted()
                 .collect(java.util.stream.Collectors.toList());
 
         return ResponseEntity.ok(takenSlots);
     }
+
+    /**
+     * Variante por rango de {@code taken-slots}: ocupación de uno o más doctores
+     * durante varios días en una sola petición, codificada como bitmaps.
+     * 
+     * @param doctorIds   IDs de los doctores (separados por coma).
+     * @param from        Primer día (yyyy-MM-dd).
+     * @param days        Cantidad de días a partir de {@code from}.
+     * @param slotMinutes Duración del turno representado por cada bit.
+     * @return Bitmaps de ocupación por doctor y día.
+     */
+    @org.springframework.web.bind.annotation.GetMapping("/taken-slots/range")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.TakenSlotsRange> getTakenSlotsRange(
+            @org.springframework.web.bind.annotation.RequestParam java.util.List<Long> doctorIds,
+            @org.springframework.web.bind.annotation.RequestParam String from,
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "14") int days,
+            @org.springframework.web.bind.annotation.RequestParam(defaultValue = "30") int slotMinutes) {
+        return ResponseEntity.ok(appointmentService.getTakenSlotsRange(doctorIds, java.time.LocalDate.parse(from),
+                days, slotMinutes));
+    }
+
+    /**
+     * Aparta un horario durante unos minutos (primer paso de la reserva). La cita
+     * se confirma enviando el {@code holdId} al crearla.
+     * 
+     * @param request   Doctor, horario y duración.
+     * @param principal Usuario autenticado.
+     * @return Reserva temporal con su vencimiento.
+     */
+    @PostMapping("/holds")
+    public ResponseEntity<com.medibook.api.dto.AppointmentDTO.HoldResponse> holdSlot(
+            @RequestBody com.medibook.api.dto.AppointmentDTO.HoldRequest request, java.security.Principal principal) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(appointmentService.holdSlot(request, principal.getName()));
+    }
+
+    /**
+     * Libera un horario apartado.
+     * 
+     * @param holdId    ID de la reserva temporal.
+     * @param principal Usuario autenticado.
+     * @return Respuesta vacía.
+     */
+    @org.springframework.web.bind.annotation.DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@org.springframework.web.bind.annotation.PathVariable String holdId,
+            java.security.Principal principal) {
+        appointmentService.releaseHold(holdId, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -3,10 +3,14 @@ package com.medibook.api.controller;
 import com.medibook.api.dto.AuthRequest;
 import com.medibook.api.dto.AuthResponse;
 import com.medibook.api.security.JwtUtil;
-import lombok.RequiredArgsConstructor;
+import com.medibook.api.security.LoginThrottle;
+import com.medibook.api.security.PasswordHashingExecutor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -15,62 +19,122 @@ import org.springframework.web.bind.annotation.RestController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Controlador de Autenticación.
  * Gestiona el inicio de sesión y registro de usuarios y pacientes.
+ * En el {@link PasswordHashingExecutor} corre solo BCrypt (verificar o calcular
+ * el hash); las lecturas se hacen antes, en el hilo de la petición, y la
+ * escritura del registro después, en el ejecutor de tareas de la aplicación.
+ * Los intentos se limitan por cuenta e IP con {@link LoginThrottle}; la IP es la
+ * del cliente aunque la app corra detrás del proxy
+ * ({@code server.forward-headers-strategy}).
  */
 @RestController
 @RequestMapping("/api/auth")
-@RequiredArgsConstructor
 public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
-    private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final LoginThrottle loginThrottle;
+    private final TaskExecutor taskExecutor;
+    private final TransactionTemplate transactionTemplate;
 
     private final com.medibook.api.repository.UserRepository userRepository;
     private final com.medibook.api.repository.PatientRepository patientRepository;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
+    // Hash contra el que se verifica cuando la cuenta no existe, para que tarde lo mismo
+    private volatile String unknownUserHash;
+
+    public AuthController(JwtUtil jwtUtil, PasswordHashingExecutor passwordHashingExecutor,
+            LoginThrottle loginThrottle, @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+            TransactionTemplate transactionTemplate,
+            com.medibook.api.repository.UserRepository userRepository,
+            com.medibook.api.repository.PatientRepository patientRepository,
+            org.springframework.security.crypto.password.PasswordEncoder passwordEncoder) {
+        this.jwtUtil = jwtUtil;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.loginThrottle = loginThrottle;
+        this.taskExecutor = taskExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.patientRepository = patientRepository;
+        this.passwordEncoder = passwordEncoder;
+    }
+
     /**
      * Autentica a un usuario y genera un token JWT.
      * 
-     * @param request Credenciales del usuario.
+     * @param request     Credenciales del usuario.
+     * @param httpRequest Petición, para limitar los intentos por IP.
      * @return Token JWT y detalles del usuario.
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword()));
-
-        var user = userRepository.findByUsername(request.getUsername()).orElseThrow();
-        String token = jwtUtil.generateToken(user.getUsername());
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@RequestBody AuthRequest request,
+            HttpServletRequest httpRequest) {
+        loginThrottle.acquire(httpRequest.getRemoteAddr(), request.getUsername());
+        var user = userRepository.findByUsername(request.getUsername()).orElse(null);
+        var principal = user != null ? com.medibook.api.security.AuthenticatedUser.of(user) : null;
+        String passwordHash = user != null ? user.getPassword() : null;
+
+        return passwordHashingExecutor.submit("login", () -> passwordEncoder.matches(request.getPassword(),
+                passwordHash != null ? passwordHash : unknownUserHash()))
+                .thenApplyAsync(matches -> {
+                    if (!matches || principal == null) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    return authenticated(principal);
+                }, taskExecutor);
+    }
 
-        Long patientId = user.getPatient() != null ? user.getPatient().getId() : null;
+    private ResponseEntity<AuthResponse> authenticated(com.medibook.api.security.AuthenticatedUser principal) {
+        String token = jwtUtil.generateToken(principal);
 
-        logger.info("Usuario autenticado exitosamente: {}", request.getUsername());
+        logger.info("Usuario autenticado exitosamente: {}", principal.username());
 
         return ResponseEntity.ok(AuthResponse.builder()
                 .token(token)
-                .role(user.getRole())
-                .patientId(patientId)
+                .role(principal.role())
+                .patientId(principal.patientId())
                 .build());
     }
 
+    private String unknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode("unknown-user");
+            unknownUserHash = hash;
+        }
+        return hash;
+    }
+
     /**
      * Registra un nuevo paciente en el sistema.
      * 
-     * @param request Datos del paciente a registrar.
+     * @param request     Datos del paciente a registrar.
+     * @param httpRequest Petición, para limitar los intentos por IP.
      * @return Mensaje de confirmación.
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegisterRequest request,
+            HttpServletRequest httpRequest) {
+        loginThrottle.acquire(httpRequest.getRemoteAddr(), null);
         if (userRepository.findByUsername(request.getEmail()).isPresent()) {
             logger.warn("Intento de registro con email ya existente: {}", request.getEmail());
-            return ResponseEntity.badRequest().body("Email already registered");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Email already registered"));
         }
 
+        return passwordHashingExecutor.submit("register", () -> passwordEncoder.encode(request.getPassword()))
+                .thenApplyAsync(passwordHash -> transactionTemplate.execute(
+                        status -> createPatientUser(request, passwordHash)), taskExecutor);
+    }
+
+    private ResponseEntity<?> createPatientUser(RegisterRequest request, String passwordHash) {
+
         // Check if patient exists
         var existingPatient = patientRepository.findByEmail(request.getEmail())
                 .or(() -> patientRepository.findByDni(request.getDni()));
@@ -93,7 +157,7 @@ public class AuthController {
 
         var user = com.medibook.api.model.User.builder()
                 .username(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHash)
                 .role("PATIENT")
                 .patient(patient)
                 .build();
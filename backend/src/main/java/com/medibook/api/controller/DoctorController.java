@@ -25,6 +25,8 @@ public class DoctorController {
     private static final Logger logger = LoggerFactory.getLogger(DoctorController.class);
 
     private final DoctorService doctorService;
+    private final com.medibook.api.service.SlotSearchService slotSearchService;
+    private final com.medibook.api.service.AppointmentService appointmentService;
 
     /**
      * Registra un nuevo doctor en el sistema.
@@ -40,13 +42,39 @@ public class DoctorController {
     }
 
     /**
-     * Obtiene la lista completa de doctores.
+     * Obtiene la lista completa de doctores. El cuerpo sale de la caché ya
+     * serializado como JSON.
      * 
      * @return Lista de doctores.
      */
     @GetMapping
-    public ResponseEntity<List<DoctorResponse>> getAll() {
-        return ResponseEntity.ok(doctorService.getAll());
+    public ResponseEntity<byte[]> getAll() {
+        return ResponseEntity.ok()
+                .contentType(org.springframework.http.MediaType.APPLICATION_JSON)
+                .body(doctorService.getAllJson());
+    }
+
+    /**
+     * Busca los primeros turnos libres entre todos los doctores de una
+     * especialidad.
+     * 
+     * @param specialty   Especialidad buscada.
+     * @param from        Primer día de la búsqueda (por defecto hoy).
+     * @param to          Último día de la búsqueda (por defecto dos semanas después).
+     * @param limit       Cantidad de turnos a devolver.
+     * @param slotMinutes Duración del turno.
+     * @return Turnos libres en orden cronológico.
+     */
+    @GetMapping("/next-available")
+    public ResponseEntity<List<com.medibook.api.dto.AvailableSlotResponse>> getNextAvailable(
+            @RequestParam String specialty,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "30") int slotMinutes) {
+        java.time.LocalDate fromDate = from != null ? java.time.LocalDate.parse(from) : java.time.LocalDate.now();
+        java.time.LocalDate toDate = to != null ? java.time.LocalDate.parse(to) : fromDate.plusDays(14);
+        return ResponseEntity.ok(slotSearchService.findNextAvailable(specialty, fromDate, toDate, limit, slotMinutes));
     }
 
     /**
@@ -72,6 +100,44 @@ public class DoctorController {
         return ResponseEntity.ok(doctorService.update(id, request));
     }
 
+    /**
+     * Obtiene la disponibilidad semanal de un doctor.
+     * 
+     * @param id Identificador del doctor.
+     * @return Intervalos de atención por día.
+     */
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<List<com.medibook.api.dto.AvailabilityInterval>> getAvailability(@PathVariable Long id) {
+        return ResponseEntity.ok(doctorService.getAvailability(id));
+    }
+
+    /**
+     * Reemplaza la disponibilidad semanal de un doctor.
+     * 
+     * @param id        Identificador del doctor.
+     * @param intervals Intervalos de atención (admite turnos partidos).
+     * @return Disponibilidad guardada.
+     */
+    @PutMapping("/{id}/availability")
+    public ResponseEntity<List<com.medibook.api.dto.AvailabilityInterval>> replaceAvailability(@PathVariable Long id,
+            @RequestBody List<com.medibook.api.dto.AvailabilityInterval> intervals) {
+        return ResponseEntity.ok(doctorService.replaceAvailability(id, intervals));
+    }
+
+    /**
+     * Agenda del día de un doctor con los datos de cada paciente (solo Admin).
+     * 
+     * @param id   Identificador del doctor.
+     * @param date Día consultado (por defecto hoy).
+     * @return Citas del día ordenadas por horario.
+     */
+    @GetMapping("/{id}/agenda")
+    public ResponseEntity<List<com.medibook.api.dto.AppointmentDTO.AppointmentResponse>> getAgenda(
+            @PathVariable Long id, @RequestParam(required = false) java.time.LocalDate date) {
+        return ResponseEntity.ok(appointmentService.getDoctorAgenda(id,
+                date != null ? date : java.time.LocalDate.now()));
+    }
+
     /**
      * Elimina un doctor del sistema.
      * 
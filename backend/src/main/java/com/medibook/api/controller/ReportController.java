@@ -0,0 +1,32 @@
+package com.medibook.api.controller;
+
+import com.medibook.api.dto.ReportDTO.RangeReport;
+import com.medibook.api.service.ReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Controlador REST de reportes de gestión (solo Admin).
+ */
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final ReportService reportService;
+
+    /**
+     * Facturación y ocupación por doctor en un período.
+     * 
+     * @param from Primer día del período.
+     * @param to   Último día del período (inclusive).
+     * @return Reporte por doctor.
+     */
+    @GetMapping("/doctors")
+    public ResponseEntity<RangeReport> doctorReport(@RequestParam LocalDate from, @RequestParam LocalDate to) {
+        return ResponseEntity.ok(reportService.doctorReport(from, to));
+    }
+}
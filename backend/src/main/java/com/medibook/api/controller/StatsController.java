@@ -0,0 +1,46 @@
+package com.medibook.api.controller;
+
+import com.medibook.api.dto.StatsDTO.DashboardStats;
+import com.medibook.api.service.AppointmentStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * Controlador REST de las estadísticas del tablero de administración.
+ */
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final AppointmentStatsService appointmentStatsService;
+
+    /**
+     * Conteos de citas por estado, por doctor y por día.
+     * 
+     * @param from Primer día del detalle diario (por defecto, 30 días atrás).
+     * @param to   Último día del detalle diario (por defecto, 30 días adelante).
+     * @return Conteos actuales.
+     */
+    @GetMapping
+    public ResponseEntity<DashboardStats> getStats(@RequestParam(required = false) LocalDate from,
+            @RequestParam(required = false) LocalDate to) {
+        return ResponseEntity.ok(appointmentStatsService.snapshot(from, to));
+    }
+
+    /**
+     * Recalcula los resúmenes desde las citas. Es una operación de mantenimiento:
+     * recorre todas las citas y mientras dura las reservas y cambios de estado
+     * esperan.
+     * 
+     * @return Conteos recalculados.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<DashboardStats> rebuild() {
+        appointmentStatsService.rebuild();
+        return ResponseEntity.ok(appointmentStatsService.snapshot(null, null));
+    }
+}
@@ -0,0 +1,72 @@
+package com.medibook.api.controller;
+
+import com.medibook.api.dto.WaitlistDTO.WaitlistRequest;
+import com.medibook.api.dto.WaitlistDTO.WaitlistResponse;
+import com.medibook.api.service.WaitlistService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Controlador REST de la lista de espera. Cuando se cancela una cita, el
+ * horario se asigna solo al siguiente paciente en espera, sin que tenga que
+ * consultar los horarios ocupados una y otra vez.
+ */
+@RestController
+@RequestMapping("/api/waitlist")
+@RequiredArgsConstructor
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+
+    /**
+     * Anota a un paciente con prioridad (uso administrativo).
+     * 
+     * @param request Doctor, rango, email del paciente y prioridad.
+     * @return Entrada creada.
+     */
+    @PostMapping
+    public ResponseEntity<WaitlistResponse> add(@RequestBody WaitlistRequest request) {
+        return new ResponseEntity<>(waitlistService.add(request), HttpStatus.CREATED);
+    }
+
+    /**
+     * Anota al paciente autenticado.
+     * 
+     * @param request   Doctor y rango de fechas aceptable.
+     * @param principal Usuario autenticado.
+     * @return Entrada creada.
+     */
+    @PostMapping("/me")
+    public ResponseEntity<WaitlistResponse> join(@RequestBody WaitlistRequest request, Principal principal) {
+        return new ResponseEntity<>(waitlistService.join(request, principal.getName()), HttpStatus.CREATED);
+    }
+
+    /**
+     * Esperas del paciente autenticado, con la cita asignada si la hubo.
+     * 
+     * @param principal Usuario autenticado.
+     * @return Entradas del paciente.
+     */
+    @GetMapping("/me")
+    public ResponseEntity<List<WaitlistResponse>> getMine(Principal principal) {
+        return ResponseEntity.ok(waitlistService.getMine(principal.getName()));
+    }
+
+    /**
+     * Sale de la lista de espera.
+     * 
+     * @param id        ID de la entrada.
+     * @param principal Usuario autenticado.
+     * @return Respuesta vacía.
+     */
+    @DeleteMapping("/me/{id}")
+    public ResponseEntity<Void> leave(@PathVariable Long id, Principal principal) {
+        waitlistService.leave(id, principal.getName());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,6 +2,7 @@ package com.medibook.api.dto;
 
 import com.medibook.api.model.AppointmentStatus;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class AppointmentDTO {
 
@@ -9,12 +10,46 @@ public class AppointmentDTO {
                         Long doctorId,
                         LocalDateTime dateTime,
                         String patientName,
-                        String patientEmail) {
+                        String patientEmail,
+                        Integer durationMinutes,
+                        String holdId,
+                        RecurrenceRule recurrence) {
+        }
+
+        public enum Frequency {
+                DAILY, WEEKLY, MONTHLY
+        }
+
+        /**
+         * Regla de repetición de una cita: cada {@code interval} días, semanas o
+         * meses desde la primera, hasta {@code count} ocurrencias o hasta la fecha
+         * {@code until} (inclusive), lo que ocurra primero.
+         */
+        public record RecurrenceRule(
+                        Frequency frequency,
+                        Integer interval,
+                        Integer count,
+                        java.time.LocalDate until) {
+        }
+
+        public record HoldRequest(
+                        Long doctorId,
+                        LocalDateTime dateTime,
+                        Integer durationMinutes) {
+        }
+
+        public record HoldResponse(
+                        String holdId,
+                        Long doctorId,
+                        LocalDateTime dateTime,
+                        int durationMinutes,
+                        java.time.Instant expiresAt) {
         }
 
         public record AppointmentResponse(
                         Long id,
                         LocalDateTime dateTime,
+                        Integer durationMinutes,
                         String patientName,
                         String patientEmail,
                         AppointmentStatus status,
@@ -24,6 +59,41 @@ public class AppointmentDTO {
                         String treatment) {
         }
 
+        /**
+         * Página de citas. {@code nextCursor} es null en la última página.
+         */
+        public record AppointmentPage(
+                        List<AppointmentResponse> items,
+                        String nextCursor) {
+        }
+
+        public record BatchItemResult(
+                        int index,
+                        int status,
+                        AppointmentResponse appointment,
+                        String error) {
+        }
+
+        public record BatchResponse(
+                        int created,
+                        int failed,
+                        List<BatchItemResult> results) {
+        }
+
+        /**
+         * Horarios ocupados de varios doctores en un rango de días. Cada día se
+         * codifica como un bitmap en Base64: el bit {@code i} (byte {@code i / 8},
+         * bit {@code i % 8}) indica si el turno que empieza en el minuto
+         * {@code i * slotMinutes} se superpone con alguna cita. Un día sin turnos
+         * es "".
+         */
+        public record TakenSlotsRange(
+                        java.time.LocalDate from,
+                        int days,
+                        int slotMinutes,
+                        java.util.Map<Long, List<String>> doctors) {
+        }
+
         public record DiagnosisRequest(
                         String diagnosis,
                         String treatment) {
@@ -0,0 +1,10 @@
+package com.medibook.api.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+public record AvailabilityInterval(
+        DayOfWeek dayOfWeek,
+        LocalTime startTime,
+        LocalTime endTime) {
+}
@@ -0,0 +1,10 @@
+package com.medibook.api.dto;
+
+import java.time.LocalDateTime;
+
+public record AvailableSlotResponse(
+        Long doctorId,
+        String doctorName,
+        String specialty,
+        LocalDateTime dateTime) {
+}
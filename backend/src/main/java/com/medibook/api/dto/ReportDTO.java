@@ -0,0 +1,37 @@
+package com.medibook.api.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class ReportDTO {
+
+        /**
+         * Facturación y ocupación de un doctor en el período.
+         *
+         * @param utilization Minutos reservados sobre minutos de atención (0 a 1, o más si
+         *                    hubo sobreturnos).
+         */
+        public record DoctorReport(
+                        Long doctorId,
+                        String doctorName,
+                        String specialty,
+                        long completedAppointments,
+                        BigDecimal revenue,
+                        long bookedMinutes,
+                        long availableMinutes,
+                        double utilization) {
+        }
+
+        /**
+         * @param snapshotAt Momento en que se tomó la instantánea de citas usada.
+         */
+        public record RangeReport(
+                        LocalDate from,
+                        LocalDate to,
+                        LocalDateTime snapshotAt,
+                        BigDecimal totalRevenue,
+                        List<DoctorReport> doctors) {
+        }
+}
@@ -0,0 +1,31 @@
+package com.medibook.api.dto;
+
+import com.medibook.api.model.AppointmentStatus;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class StatsDTO {
+
+        /**
+         * Conteos del tablero. {@code byDay} cubre sólo el período pedido.
+         */
+        public record DashboardStats(
+                        long total,
+                        Map<AppointmentStatus, Long> byStatus,
+                        List<DoctorStats> byDoctor,
+                        List<DayStats> byDay) {
+        }
+
+        public record DoctorStats(
+                        Long doctorId,
+                        long total,
+                        Map<AppointmentStatus, Long> byStatus) {
+        }
+
+        public record DayStats(
+                        LocalDate day,
+                        long total,
+                        Map<AppointmentStatus, Long> byStatus) {
+        }
+}
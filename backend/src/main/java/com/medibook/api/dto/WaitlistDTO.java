@@ -0,0 +1,27 @@
+package com.medibook.api.dto;
+
+import com.medibook.api.model.WaitlistStatus;
+import java.time.LocalDateTime;
+
+public class WaitlistDTO {
+
+        public record WaitlistRequest(
+                        Long doctorId,
+                        LocalDateTime windowStart,
+                        LocalDateTime windowEnd,
+                        String patientEmail,
+                        Integer priority) {
+        }
+
+        public record WaitlistResponse(
+                        Long id,
+                        Long doctorId,
+                        String doctorName,
+                        String patientEmail,
+                        LocalDateTime windowStart,
+                        LocalDateTime windowEnd,
+                        int priority,
+                        WaitlistStatus status,
+                        Long appointmentId) {
+        }
+}
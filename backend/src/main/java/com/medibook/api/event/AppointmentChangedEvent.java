@@ -0,0 +1,27 @@
+package com.medibook.api.event;
+
+import com.medibook.api.model.AppointmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Se publica cuando una cita se crea, cambia de estado o recibe el diagnóstico
+ * (en ese caso ambos estados coinciden). Los oyentes la reciben
+ * con {@code @TransactionalEventListener}, es decir, sólo si el cambio confirmó.
+ *
+ * @param patientId      Paciente de la cita.
+ * @param previousStatus Estado anterior, o null si la cita es nueva.
+ */
+public record AppointmentChangedEvent(
+        Long appointmentId,
+        Long doctorId,
+        Long patientId,
+        LocalDateTime dateTime,
+        int durationMinutes,
+        AppointmentStatus previousStatus,
+        AppointmentStatus status) {
+
+    public boolean isCancellation() {
+        return status == AppointmentStatus.CANCELLED && previousStatus != AppointmentStatus.CANCELLED;
+    }
+}
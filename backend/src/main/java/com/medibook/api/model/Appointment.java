@@ -13,16 +13,29 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", uniqueConstraints = @UniqueConstraint(name = "uk_appointments_doctor_active_slot", columnNames = {
+        "doctor_id", "active_slot" }), indexes = {
+                @Index(name = "idx_appointments_doctor_datetime", columnList = "doctor_id, date_time"),
+                @Index(name = "idx_appointments_datetime_id", columnList = "date_time, id") })
 public class Appointment {
 
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+    public static final int MAX_DURATION_MINUTES = 240;
+
+    // Secuencia con asignación en bloques: IDENTITY impide a Hibernate agrupar los INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointments_seq")
+    @SequenceGenerator(name = "appointments_seq", sequenceName = "appointments_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private LocalDateTime dateTime;
 
+    // El default de la columna completa las filas anteriores a la duración variable
+    @Column(name = "duration_minutes", nullable = false, columnDefinition = "integer default 30")
+    @Builder.Default
+    private Integer durationMinutes = DEFAULT_DURATION_MINUTES;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     private Patient patient;
@@ -41,4 +54,19 @@ public class Appointment {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doctor_id", nullable = false)
     private Doctor doctor;
+
+    // Copia de dateTime mientras la cita ocupa el horario; null al cancelarse.
+    // Postgres admite varios NULL en un índice único, así que las canceladas no bloquean.
+    @Column(name = "active_slot")
+    private LocalDateTime activeSlot;
+
+    public LocalDateTime getEndTime() {
+        return dateTime.plusMinutes(durationMinutes);
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void syncActiveSlot() {
+        this.activeSlot = status == AppointmentStatus.CANCELLED ? null : dateTime;
+    }
 }
@@ -0,0 +1,50 @@
+package com.medibook.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Resumen de citas por doctor, día y estado, repartido en franjas
+ * ({@code stripe}) como {@link AppointmentDoctorStat}. Lo mantienen los triggers
+ * que instala {@code AppointmentStatsService}; la aplicación sólo lo lee.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "appointment_daily_stats", uniqueConstraints = @UniqueConstraint(name = "uk_appointment_daily_stats_stripe", columnNames = {
+        "doctor_id", "day", "status", "stripe" }), indexes = @Index(name = "idx_appointment_daily_stats_day", columnList = "day"))
+public class AppointmentDailyStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Sin clave foránea: el resumen no debe impedir borrar un doctor
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    // Las filas anteriores a las franjas quedan en la 0
+    @Column(nullable = false, columnDefinition = "integer default 0 not null")
+    private Integer stripe;
+
+    @Column(nullable = false)
+    private Long total;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
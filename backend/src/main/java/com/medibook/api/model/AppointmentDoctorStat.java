@@ -0,0 +1,47 @@
+package com.medibook.api.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totales de citas por doctor y estado, sin importar el día: el tablero los lee
+ * directamente en lugar de sumar todo el historial diario. Cada total se reparte
+ * en franjas ({@code stripe}) para que las transacciones concurrentes no esperen
+ * la misma fila; el total es la suma de sus franjas. Lo mantienen los triggers
+ * que instala {@code AppointmentStatsService}; la aplicación sólo lo lee.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "appointment_doctor_stats", uniqueConstraints = @UniqueConstraint(name = "uk_appointment_doctor_stats_stripe", columnNames = {
+        "doctor_id", "status", "stripe" }))
+public class AppointmentDoctorStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Sin clave foránea: el resumen no debe impedir borrar un doctor
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    @Column(nullable = false)
+    private Integer stripe;
+
+    @Column(nullable = false)
+    private Long total;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -14,6 +14,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 @AllArgsConstructor
 @Builder
 @Entity
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE, region = com.medibook.api.cache.CacheRegions.PATIENTS)
+@EntityListeners(com.medibook.api.security.PrincipalInvalidationListener.class)
 @Table(name = "patients")
 public class Patient {
 
@@ -11,6 +11,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE, region = com.medibook.api.cache.CacheRegions.USERS)
+@EntityListeners(com.medibook.api.security.PrincipalInvalidationListener.class)
 @Table(name = "users")
 public class User {
 
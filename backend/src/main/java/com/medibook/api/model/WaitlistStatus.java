@@ -0,0 +1,7 @@
+package com.medibook.api.model;
+
+public enum WaitlistStatus {
+    WAITING,
+    BOOKED,
+    CANCELLED
+}
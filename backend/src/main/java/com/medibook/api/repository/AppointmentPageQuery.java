@@ -0,0 +1,31 @@
+package com.medibook.api.repository;
+
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.model.AppointmentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consulta paginada por keyset sobre {@code (dateTime, id)}.
+ */
+public interface AppointmentPageQuery {
+
+    /**
+     * Filtros opcionales y posición de la página. Los campos null no filtran.
+     *
+     * @param afterDateTime {@code dateTime} de la última fila de la página anterior.
+     * @param afterId       {@code id} de la última fila de la página anterior.
+     */
+    record PageFilter(
+            Long doctorId,
+            AppointmentStatus status,
+            LocalDateTime from,
+            LocalDateTime to,
+            boolean descending,
+            LocalDateTime afterDateTime,
+            Long afterId) {
+    }
+
+    List<AppointmentResponse> findPage(PageFilter filter, int limit);
+}
@@ -0,0 +1,66 @@
+package com.medibook.api.repository;
+
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+/**
+ * Arma la consulta con sólo los filtros presentes, de modo que el planificador
+ * use el índice que corresponde (y el cursor sea un punto de partida en él, no
+ * un filtro sobre lo ya recorrido), y proyecta cada fila directamente en
+ * {@link AppointmentResponse} con un único JOIN a paciente y doctor.
+ */
+class AppointmentPageQueryImpl implements AppointmentPageQuery {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AppointmentResponse> findPage(PageFilter filter, int limit) {
+        StringBuilder jpql = new StringBuilder(AppointmentRepository.RESPONSE_PROJECTION).append(" WHERE 1 = 1");
+        if (filter.doctorId() != null) {
+            jpql.append(" AND d.id = :doctorId");
+        }
+        if (filter.status() != null) {
+            jpql.append(" AND a.status = :status");
+        }
+        if (filter.from() != null) {
+            jpql.append(" AND a.dateTime >= :from");
+        }
+        if (filter.to() != null) {
+            jpql.append(" AND a.dateTime < :to");
+        }
+        String after = filter.descending() ? "<" : ">";
+        if (filter.afterDateTime() != null) {
+            // La cota simple sobre la fecha es redundante, pero es la que el índice usa para
+            // empezar en el cursor; el OR sólo descarta las filas de esa misma fecha
+            jpql.append(" AND a.dateTime ").append(after).append("= :afterDateTime")
+                    .append(" AND (a.dateTime ").append(after).append(" :afterDateTime OR (a.dateTime = :afterDateTime AND a.id ")
+                    .append(after).append(" :afterId))");
+        }
+        String direction = filter.descending() ? " DESC" : " ASC";
+        jpql.append(" ORDER BY a.dateTime").append(direction).append(", a.id").append(direction);
+
+        TypedQuery<AppointmentResponse> query = entityManager.createQuery(jpql.toString(), AppointmentResponse.class);
+        if (filter.doctorId() != null) {
+            query.setParameter("doctorId", filter.doctorId());
+        }
+        if (filter.status() != null) {
+            query.setParameter("status", filter.status());
+        }
+        if (filter.from() != null) {
+            query.setParameter("from", filter.from());
+        }
+        if (filter.to() != null) {
+            query.setParameter("to", filter.to());
+        }
+        if (filter.afterDateTime() != null) {
+            query.setParameter("afterDateTime", filter.afterDateTime());
+            query.setParameter("afterId", filter.afterId());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -3,13 +3,79 @@ package com.medibook.api.repository;
 import com.medibook.api.model.Appointment;
 import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentPageQuery {
     boolean existsByDoctorIdAndDateTime(Long doctorId, LocalDateTime dateTime);
 
     java.util.List<Appointment> findByDoctorIdAndDateTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
 
     java.util.List<Appointment> findByPatient_EmailOrderByDateTimeDesc(String email);
+
+    // Proyecciones directas a la respuesta: un único SELECT con JOIN, sin cargas perezosas por fila
+    String RESPONSE_PROJECTION = "SELECT new com.medibook.api.dto.AppointmentDTO$AppointmentResponse(a.id, a.dateTime,"
+            + " a.durationMinutes, concat(p.firstName, ' ', p.lastName), p.email, a.status,"
+            + " concat(d.firstName, ' ', d.lastName), d.specialty, a.diagnosis, a.treatment)"
+            + " FROM Appointment a JOIN a.patient p JOIN a.doctor d";
+
+    @Query(RESPONSE_PROJECTION + " ORDER BY a.id")
+    java.util.List<com.medibook.api.dto.AppointmentDTO.AppointmentResponse> findAllResponses();
+
+    @Query(RESPONSE_PROJECTION + " WHERE p.email = :email ORDER BY a.dateTime DESC")
+    java.util.List<com.medibook.api.dto.AppointmentDTO.AppointmentResponse> findResponsesByPatientEmail(
+            @Param("email") String email);
+
+    @Query(RESPONSE_PROJECTION + " WHERE d.id = :doctorId AND a.dateTime >= :start AND a.dateTime < :end"
+            + " ORDER BY a.dateTime, a.id")
+    java.util.List<com.medibook.api.dto.AppointmentDTO.AppointmentResponse> findResponsesByDoctorIdAndDateTimeBetween(
+            @Param("doctorId") Long doctorId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Sólo columnas escalares, en orden cronológico, para armar la instantánea de reportes
+    @Query("SELECT new com.medibook.api.repository.ReportRow(a.doctor.id, a.dateTime, a.durationMinutes, a.status)"
+            + " FROM Appointment a ORDER BY a.dateTime, a.id")
+    @org.springframework.data.jpa.repository.QueryHints({
+            @jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @jakarta.persistence.QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true") })
+    java.util.stream.Stream<ReportRow> streamReportRows();
+
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient JOIN FETCH a.doctor WHERE a.id = :id")
+    java.util.Optional<Appointment> findWithPatientAndDoctorById(@Param("id") Long id);
+
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient JOIN FETCH a.doctor WHERE a.id IN :ids"
+            + " ORDER BY a.dateTime, a.id")
+    java.util.List<Appointment> findWithPatientAndDoctorByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId"
+            + " AND a.status = com.medibook.api.model.AppointmentStatus.COMPLETED"
+            + " AND a.dateTime >= :from AND a.dateTime < :to ORDER BY a.dateTime, a.id")
+    java.util.List<Long> findCompletedIdsByDoctorId(@Param("doctorId") Long doctorId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.patient.id = :patientId"
+            + " AND a.status = com.medibook.api.model.AppointmentStatus.COMPLETED"
+            + " AND a.dateTime >= :from AND a.dateTime < :to ORDER BY a.dateTime, a.id")
+    java.util.List<Long> findCompletedIdsByPatientId(@Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.medibook.api.repository.BookedSlot(a.doctor.id, a.dateTime, a.durationMinutes)"
+            + " FROM Appointment a WHERE a.doctor.id = :doctorId AND a.dateTime BETWEEN :start AND :end"
+            + " AND a.status <> com.medibook.api.model.AppointmentStatus.CANCELLED")
+    java.util.List<BookedSlot> findActiveSlotsByDoctorIdAndDateTimeBetween(@Param("doctorId") Long doctorId,
+            @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT new com.medibook.api.repository.BookedSlot(a.doctor.id, a.dateTime, a.durationMinutes) FROM Appointment a"
+            + " WHERE a.doctor.id IN :doctorIds AND a.dateTime BETWEEN :start AND :end"
+            + " AND a.status <> com.medibook.api.model.AppointmentStatus.CANCELLED")
+    java.util.List<BookedSlot> findActiveSlotsByDoctorIdInAndDateTimeBetween(
+            @Param("doctorIds") java.util.Collection<Long> doctorIds, @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    @Query("SELECT new com.medibook.api.repository.BookedSlot(a.doctor.id, a.dateTime, a.durationMinutes)"
+            + " FROM Appointment a WHERE a.patient.id = :patientId AND a.dateTime BETWEEN :start AND :end"
+            + " AND a.status <> com.medibook.api.model.AppointmentStatus.CANCELLED")
+    java.util.List<BookedSlot> findActiveSlotsByPatientIdAndDateTimeBetween(@Param("patientId") Long patientId,
+            @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 }
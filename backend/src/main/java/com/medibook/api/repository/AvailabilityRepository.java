@@ -0,0 +1,22 @@
+package com.medibook.api.repository;
+
+import com.medibook.api.model.Availability;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AvailabilityRepository extends JpaRepository<Availability, Long> {
+    List<Availability> findByDoctorId(Long doctorId);
+
+    @Query("SELECT a FROM Availability a JOIN FETCH a.doctor")
+    List<Availability> findAllWithDoctor();
+
+    @Modifying
+    @Query("DELETE FROM Availability a WHERE a.doctor.id = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
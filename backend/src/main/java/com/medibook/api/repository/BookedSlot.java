@@ -0,0 +1,20 @@
+package com.medibook.api.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección mínima de una cita que ocupa un horario.
+ */
+public record BookedSlot(Long doctorId, LocalDateTime dateTime, Integer durationMinutes) {
+
+    public LocalDateTime endTime() {
+        return dateTime.plusMinutes(durationMinutes);
+    }
+
+    /**
+     * Indica si el intervalo {@code [start, end)} se superpone con esta cita.
+     */
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return dateTime.isBefore(end) && endTime().isAfter(start);
+    }
+}
@@ -9,4 +9,6 @@ import java.util.Optional;
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     Optional<Doctor> findByEmail(String email);
+
+    java.util.List<Doctor> findBySpecialtyIgnoreCase(String specialty);
 }
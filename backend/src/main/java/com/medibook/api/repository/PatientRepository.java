@@ -1,7 +1,10 @@
 package com.medibook.api.repository;
 
 import com.medibook.api.model.Patient;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,10 +14,13 @@ import java.util.Optional;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Patient> findByEmail(String email);
 
     Optional<Patient> findByDni(String dni);
 
+    List<Patient> findByEmailIn(java.util.Collection<String> emails);
+
     @Query("SELECT p FROM Patient p WHERE lower(p.firstName) LIKE lower(concat('%', :query, '%')) OR lower(p.lastName) LIKE lower(concat('%', :query, '%')) OR p.dni LIKE concat('%', :query, '%')")
     List<Patient> searchPatients(@Param("query") String query);
 }
@@ -0,0 +1,11 @@
+package com.medibook.api.repository;
+
+import com.medibook.api.model.AppointmentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Datos de una cita que usan los reportes, sin entidades asociadas.
+ */
+public record ReportRow(Long doctorId, LocalDateTime dateTime, Integer durationMinutes, AppointmentStatus status) {
+}
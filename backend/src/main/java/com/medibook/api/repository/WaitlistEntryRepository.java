@@ -0,0 +1,33 @@
+package com.medibook.api.repository;
+
+import com.medibook.api.model.WaitlistEntry;
+import com.medibook.api.model.WaitlistStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    // -2 = SKIP LOCKED: una entrada que otra transacción está asignando se saltea
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT w FROM WaitlistEntry w JOIN FETCH w.patient WHERE w.doctor.id = :doctorId"
+            + " AND w.status = com.medibook.api.model.WaitlistStatus.WAITING AND w.patient.id <> :excludedPatientId"
+            + " AND w.windowStart <= :start AND w.windowEnd >= :end"
+            + " ORDER BY w.priority DESC, w.createdAt ASC, w.id ASC")
+    java.util.List<WaitlistEntry> findNextCandidates(@Param("doctorId") Long doctorId,
+            @Param("excludedPatientId") Long excludedPatientId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end, Pageable pageable);
+
+    @Query("SELECT w FROM WaitlistEntry w JOIN FETCH w.doctor WHERE w.patient.email = :email ORDER BY w.createdAt DESC")
+    java.util.List<WaitlistEntry> findByPatientEmail(@Param("email") String email);
+
+    long countByPatientIdAndStatus(Long patientId, WaitlistStatus status);
+}
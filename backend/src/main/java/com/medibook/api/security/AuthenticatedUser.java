@@ -0,0 +1,71 @@
+package com.medibook.api.security;
+
+import com.medibook.api.model.Patient;
+import com.medibook.api.model.User;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Usuario autenticado tal como lo ve el resto de la aplicación: identidad, rol y
+ * datos del paciente vinculado, sin referencias a entidades JPA.
+ *
+ * @param userId           ID del usuario.
+ * @param username         Nombre de usuario (email).
+ * @param role             Rol del usuario.
+ * @param patientId        ID del paciente vinculado, o null.
+ * @param patientName      Nombre completo del paciente vinculado, o null.
+ * @param patientEmail     Email del paciente vinculado, o null.
+ * @param credentialsStamp Huella de la contraseña y el rol vigentes.
+ */
+public record AuthenticatedUser(
+        Long userId,
+        String username,
+        String role,
+        Long patientId,
+        String patientName,
+        String patientEmail,
+        String credentialsStamp) implements AuthenticatedPrincipal {
+
+    public static AuthenticatedUser of(User user) {
+        Patient patient = user.getPatient();
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getUsername(),
+                user.getRole(),
+                patient != null ? patient.getId() : null,
+                patient != null ? patient.getFirstName() + " " + patient.getLastName() : null,
+                patient != null ? patient.getEmail() : null,
+                credentialsStamp(user));
+    }
+
+    /**
+     * Huella corta del hash de la contraseña y del rol. Viaja firmada en el token:
+     * si cualquiera de los dos cambia, los tokens emitidos antes dejan de valer.
+     */
+    public static String credentialsStamp(User user) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((user.getPassword() + '\n' + user.getRole()).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority(role));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -8,20 +8,26 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Objects;
 
+/**
+ * Autentica las peticiones con el token JWT. La identidad sale de los claims
+ * firmados (verificados una sola vez por token, ver {@link JwtUtil#verify}) y el
+ * usuario vigente de la {@link PrincipalCache}: en régimen estable
+ * no hay consultas a la base de datos. Un token cuya huella de credenciales ya no
+ * coincide (cambió la contraseña o el rol) no autentica.
+ */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(
@@ -38,15 +44,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        username = jwtUtil.extractUsername(jwt);
+        JwtUtil.VerifiedToken token = jwtUtil.verify(jwt);
+        username = token.username();
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            AuthenticatedUser user = principalCache.get(username);
+            if (user != null && matches(token, user)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        user,
                         null,
-                        userDetails.getAuthorities());
+                        user.authorities());
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -54,4 +61,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    private static boolean matches(JwtUtil.VerifiedToken token, AuthenticatedUser user) {
+        return Objects.equals(token.userId(), user.userId())
+                && Objects.equals(token.credentialsStamp(), user.credentialsStamp());
+    }
 }
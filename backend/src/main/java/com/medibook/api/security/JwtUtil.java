@@ -1,51 +1,99 @@
 package com.medibook.api.security;
 
+import com.medibook.api.cache.TtlCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
-import org.springframework.security.core.userdetails.UserDetails;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
+/**
+ * Emisión y verificación de tokens JWT. La clave HMAC y el parser se construyen
+ * una sola vez y son inmutables; cada token se verifica con un único parseo y el
+ * resultado se guarda, indexado por el SHA-256 del token, hasta que el token
+ * vence o la entrada sale de la caché.
+ */
 @Service
 public class JwtUtil {
 
-    private final String SECRET_KEY = "mySuperSecretKey12345678901234567890";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String PATIENT_ID_CLAIM = "pid";
+    public static final String CREDENTIALS_STAMP_CLAIM = "cst";
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
+    private static final String SECRET_KEY = "mySuperSecretKey12345678901234567890";
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
+    private final Key signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    private final TtlCache<String, VerifiedToken> verified;
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
+    public JwtUtil(MeterRegistry meterRegistry,
+            @Value("${medibook.jwt.verified-cache.max-entries:10000}") int maxEntries,
+            @Value("${medibook.jwt.verified-cache.ttl:PT5M}") Duration ttl) {
+        this.verified = new TtlCache<>(maxEntries, ttl);
+        FunctionCounter.builder("medibook.cache.gets", verified, TtlCache::hits)
+                .tags("cache", "verified-tokens", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("medibook.cache.gets", verified, TtlCache::misses)
+                .tags("cache", "verified-tokens", "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("medibook.cache.size", verified, TtlCache::size)
+                .tags("cache", "verified-tokens")
+                .register(meterRegistry);
     }
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
+    /**
+     * Verifica firma y vencimiento del token y devuelve los datos que usa la
+     * autenticación. Un token ya verificado se resuelve desde la caché sin volver a
+     * calcular el HMAC ni parsear el JSON.
+     *
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o venció.
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now())) {
+                return cached;
+            }
+            verified.remove(digest);
+        }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        VerifiedToken parsed = VerifiedToken.of(parser.parseClaimsJws(token).getBody());
+        verified.putIfAbsent(digest, parsed);
+        return parsed;
     }
 
-    public String generateToken(String username) {
+    /**
+     * Emite un token con la identidad del usuario como claims firmados: ID, rol,
+     * paciente vinculado y huella de credenciales.
+     */
+    public String generateToken(AuthenticatedUser user) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username);
+        claims.put(USER_ID_CLAIM, user.userId());
+        claims.put(ROLE_CLAIM, user.role());
+        if (user.patientId() != null) {
+            claims.put(PATIENT_ID_CLAIM, user.patientId());
+        }
+        claims.put(CREDENTIALS_STAMP_CLAIM, user.credentialsStamp());
+        return createToken(claims, user.username());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
@@ -54,12 +102,40 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Datos de un token ya verificado. Es inmutable, así que puede compartirse
+     * entre peticiones.
+     *
+     * @param username         Usuario (subject).
+     * @param userId           ID del usuario.
+     * @param credentialsStamp Huella de credenciales con la que se emitió.
+     * @param expiresAt        Vencimiento del token.
+     */
+    public record VerifiedToken(String username, Long userId, String credentialsStamp, Instant expiresAt) {
+
+        static VerifiedToken of(Claims claims) {
+            if (claims.getExpiration() == null) {
+                // Sin vencimiento la caché lo daría por válido para siempre
+                throw new MalformedJwtException("El token no tiene vencimiento");
+            }
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get(USER_ID_CLAIM, Long.class),
+                    claims.get(CREDENTIALS_STAMP_CLAIM, String.class),
+                    claims.getExpiration().toInstant());
+        }
     }
 }
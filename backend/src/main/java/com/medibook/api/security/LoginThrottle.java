@@ -0,0 +1,137 @@
+package com.medibook.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita los intentos de login y registro con token buckets por cuenta y por IP.
+ * Cada bucket es un único long que se actualiza con CAS, sin locks; los
+ * buckets que volvieron a llenarse se descartan periódicamente para que el mapa
+ * no crezca con cuentas o IPs que ya no intentan.
+ */
+@Component
+public class LoginThrottle {
+
+    private final Limit accountLimit;
+    private final Limit addressLimit;
+    private final ConcurrentHashMap<String, TokenBucket> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket> addresses = new ConcurrentHashMap<>();
+    private final Counter accountThrottled;
+    private final Counter addressThrottled;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+            @Value("${medibook.auth.throttle.account-capacity:10}") int accountCapacity,
+            @Value("${medibook.auth.throttle.account-refill:PT30S}") Duration accountRefill,
+            @Value("${medibook.auth.throttle.ip-capacity:50}") int addressCapacity,
+            @Value("${medibook.auth.throttle.ip-refill:PT1S}") Duration addressRefill) {
+        this.accountLimit = new Limit(accountCapacity, accountRefill.toNanos());
+        this.addressLimit = new Limit(addressCapacity, addressRefill.toNanos());
+        this.accountThrottled = Counter.builder("medibook.auth.throttled").tag("scope", "account")
+                .register(meterRegistry);
+        this.addressThrottled = Counter.builder("medibook.auth.throttled").tag("scope", "ip")
+                .register(meterRegistry);
+        Gauge.builder("medibook.auth.throttle.buckets", accounts, ConcurrentHashMap::size).tag("scope", "account")
+                .register(meterRegistry);
+        Gauge.builder("medibook.auth.throttle.buckets", addresses, ConcurrentHashMap::size).tag("scope", "ip")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consume un intento de la IP y, si se indica, de la cuenta.
+     *
+     * @param address  IP del cliente.
+     * @param username Cuenta a la que se intenta acceder, o null.
+     * @throws TooManyRequestsException si alguno de los dos se quedó sin intentos.
+     */
+    public void acquire(String address, String username) {
+        long now = System.nanoTime();
+        long wait = bucket(addresses, address, addressLimit, now).tryAcquire(now);
+        if (wait > 0) {
+            addressThrottled.increment();
+            throw throttled(wait);
+        }
+        if (username != null) {
+            wait = bucket(accounts, username.toLowerCase(Locale.ROOT), accountLimit, now).tryAcquire(now);
+            if (wait > 0) {
+                accountThrottled.increment();
+                throw throttled(wait);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${medibook.auth.throttle.cleanup-interval:PT5M}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        accounts.values().removeIf(bucket -> bucket.isFull(now));
+        addresses.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private static TokenBucket bucket(ConcurrentHashMap<String, TokenBucket> buckets, String key, Limit limit,
+            long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        TokenBucket created = new TokenBucket(limit, now);
+        TokenBucket existing = buckets.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    private static TooManyRequestsException throttled(long waitNanos) {
+        return new TooManyRequestsException("Demasiados intentos, reintente más tarde", Duration.ofNanos(waitNanos));
+    }
+
+    /**
+     * @param capacity      Intentos seguidos permitidos.
+     * @param nanosPerToken Tiempo en recuperar un intento.
+     */
+    private record Limit(int capacity, long nanosPerToken) {
+    }
+
+    /**
+     * Tokens disponibles expresados como el instante en que el bucket estaría
+     * lleno: así el estado es un único long y la recarga no necesita fracciones.
+     */
+    private static final class TokenBucket {
+
+        private final Limit limit;
+        private final AtomicLong fullAt;
+
+        TokenBucket(Limit limit, long now) {
+            this.limit = limit;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /**
+         * @return 0 si consumió un token, o los nanosegundos hasta que haya uno.
+         */
+        long tryAcquire(long now) {
+            long window = limit.capacity() * limit.nanosPerToken();
+            while (true) {
+                long current = fullAt.get();
+                // Un bucket lleno hace mucho equivale a uno lleno ahora
+                long base = Math.max(current, now);
+                long next = base + limit.nanosPerToken();
+                if (next - now > window) {
+                    return next - now - window;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
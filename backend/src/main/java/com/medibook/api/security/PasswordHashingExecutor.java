@@ -0,0 +1,82 @@
+package com.medibook.api.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor dedicado a las operaciones con BCrypt (verificar la contraseña en el
+ * login y hashearla en el registro). Tiene hilos y cola fijos: una ráfaga de
+ * logins espera aquí en lugar de ocupar los hilos de Tomcat, y cuando la cola se
+ * llena la petición se rechaza de inmediato con 429.
+ * <p>
+ * Publica {@code medibook.auth.hash.duration} (por operación),
+ * {@code medibook.auth.hash.queue}, {@code medibook.auth.hash.active} y
+ * {@code medibook.auth.hash.rejected}.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejected;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+            @Value("${medibook.auth.hashing.threads:2}") int threads,
+            @Value("${medibook.auth.hashing.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "medibook-hash-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.meterRegistry = meterRegistry;
+        this.rejected = Counter.builder("medibook.auth.hash.rejected").register(meterRegistry);
+        Gauge.builder("medibook.auth.hash.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("medibook.auth.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola la tarea en el ejecutor de hashing.
+     *
+     * @param operation Nombre de la operación para las métricas (p. ej. "login").
+     * @param task      Tarea que verifica o calcula el hash.
+     * @return Resultado de la tarea, completado en un hilo del ejecutor.
+     * @throws TooManyRequestsException si el ejecutor está saturado.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        Timer timer = Timer.builder("medibook.auth.hash.duration")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(task), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Demasiados inicios de sesión simultáneos, reintente en unos segundos",
+                    RETRY_AFTER);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
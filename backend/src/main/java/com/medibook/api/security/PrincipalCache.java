@@ -0,0 +1,105 @@
+package com.medibook.api.security;
+
+import com.medibook.api.cache.TtlCache;
+import com.medibook.api.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de usuarios autenticados por nombre de usuario. El filtro JWT la consulta
+ * en cada petición, así que en régimen estable la autenticación no toca la base
+ * de datos.
+ * <p>
+ * Los cambios de usuario o de paciente invalidan la caché al confirmar (ver
+ * {@link PrincipalInvalidationListener}). Como en el catálogo de doctores, una
+ * carga sólo se guarda si ninguna invalidación ocurrió mientras consultaba.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final TtlCache<String, AuthenticatedUser> principals;
+    private final AtomicLong version = new AtomicLong();
+
+    public PrincipalCache(UserRepository userRepository, MeterRegistry meterRegistry,
+            @Value("${medibook.principal-cache.max-entries:10000}") int maxEntries,
+            @Value("${medibook.principal-cache.ttl:PT5M}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.principals = new TtlCache<>(maxEntries, ttl);
+        FunctionCounter.builder("medibook.cache.gets", principals, TtlCache::hits)
+                .tags("cache", "principals", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("medibook.cache.gets", principals, TtlCache::misses)
+                .tags("cache", "principals", "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("medibook.cache.size", principals, TtlCache::size)
+                .tags("cache", "principals")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Usuario vigente con ese nombre, o null si no existe.
+     */
+    public AuthenticatedUser get(String username) {
+        long seen = version.get();
+        AuthenticatedUser cached = principals.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        AuthenticatedUser loaded = userRepository.findByUsername(username).map(AuthenticatedUser::of).orElse(null);
+        if (loaded != null && version.get() == seen) {
+            principals.putIfAbsent(username, loaded);
+            if (version.get() != seen) {
+                principals.remove(username, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalida el usuario cuando la transacción actual confirma, o de inmediato si
+     * no hay transacción.
+     */
+    public void invalidateAfterCommit(String username) {
+        afterCommit(() -> invalidate(username));
+    }
+
+    /**
+     * Invalida todos los usuarios al confirmar. Se usa cuando cambia un paciente,
+     * porque la caché no está indexada por paciente.
+     */
+    public void invalidateAllAfterCommit() {
+        afterCommit(this::invalidateAll);
+    }
+
+    public void invalidate(String username) {
+        version.incrementAndGet();
+        principals.remove(username);
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        principals.clear();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
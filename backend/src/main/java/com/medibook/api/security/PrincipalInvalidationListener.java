@@ -0,0 +1,34 @@
+package com.medibook.api.security;
+
+import com.medibook.api.model.Patient;
+import com.medibook.api.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de {@link User} y {@link Patient} que invalida la
+ * {@link PrincipalCache}. Engancharlo a las entidades cubre cualquier cambio de
+ * contraseña, rol o datos del paciente, venga del servicio que venga.
+ */
+@Component
+public class PrincipalInvalidationListener {
+
+    private final PrincipalCache principalCache;
+
+    // Lazy: Hibernate crea el listener al armar el EntityManagerFactory, antes que los repositorios
+    public PrincipalInvalidationListener(@Lazy PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof User user) {
+            principalCache.invalidateAfterCommit(user.getUsername());
+        } else if (entity instanceof Patient) {
+            principalCache.invalidateAllAfterCommit();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.medibook.api.service;
+
+import com.medibook.api.cache.TtlCache;
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.event.AppointmentChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Agendas diarias de los doctores ya resueltas, por doctor y fecha. Cada cita
+ * que se crea o modifica invalida exactamente la agenda de su doctor y su día,
+ * una vez confirmado el cambio.
+ * <p>
+ * Una lectura que empezó antes de la invalidación podría guardar la agenda
+ * vieja después de ella; para evitarlo cada clave tiene una versión (por franja
+ * de hash) que la invalidación incrementa, y la lectura sólo deja su resultado
+ * si la versión no cambió mientras consultaba. El vencimiento cubre los cambios
+ * que no pasan por las citas, como el nombre de un paciente.
+ */
+@Component
+public class AgendaCache {
+
+    private static final int VERSION_STRIPES = 1024;
+
+    private final TtlCache<AgendaKey, List<AppointmentResponse>> agendas;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public AgendaCache(
+            @Value("${medibook.agenda-cache.max-entries:5000}") int maxEntries,
+            @Value("${medibook.agenda-cache.ttl:PT10M}") Duration ttl) {
+        this.agendas = new TtlCache<>(maxEntries, ttl);
+    }
+
+    /**
+     * Devuelve la agenda guardada o la obtiene con {@code loader} y la guarda.
+     */
+    public List<AppointmentResponse> get(Long doctorId, LocalDate date, Supplier<List<AppointmentResponse>> loader) {
+        AgendaKey key = new AgendaKey(doctorId, date);
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+
+        List<AppointmentResponse> cached = agendas.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<AppointmentResponse> loaded = List.copyOf(loader.get());
+        if (versions.get(stripe) == version) {
+            agendas.putIfAbsent(key, loaded);
+            // Una invalidación entre el chequeo y el guardado deja la versión movida
+            if (versions.get(stripe) != version) {
+                agendas.remove(key, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(Long doctorId, LocalDate date) {
+        AgendaKey key = new AgendaKey(doctorId, date);
+        versions.incrementAndGet(stripe(key));
+        agendas.remove(key);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        invalidate(event.doctorId(), event.dateTime().toLocalDate());
+    }
+
+    private static int stripe(AgendaKey key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private record AgendaKey(Long doctorId, LocalDate date) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.medibook.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.repository.AppointmentPageQuery.PageFilter;
+import com.medibook.api.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exporta las citas de un período como NDJSON o CSV escribiendo fila por fila
+ * en la respuesta. Las filas se leen por bloques con keyset sobre
+ * {@code (dateTime, id)}, cada bloque en su propia transacción corta: la memoria
+ * no depende del tamaño del período y ninguna conexión del pool queda tomada
+ * mientras un cliente lento lee la respuesta. Cada bloque empieza a leer el
+ * índice en el cursor, así que su costo no crece con lo ya exportado.
+ */
+@Service
+public class AppointmentExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentExportService.class);
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final String CSV_HEADER = "id,dateTime,durationMinutes,patientName,patientEmail,status,"
+            + "doctorName,doctorSpecialty,diagnosis,treatment";
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Formato de exportación no soportado: " + value + " (use ndjson o csv).");
+        }
+    }
+
+    private final AppointmentRepository appointmentRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int chunkRows;
+
+    public AppointmentExportService(AppointmentRepository appointmentRepository, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${medibook.export.chunk-rows:500}") int chunkRows) {
+        this.appointmentRepository = appointmentRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Valida el período antes de comprometer la respuesta: una vez que empieza el
+     * streaming ya no se puede devolver un código de error.
+     */
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Error: 'from' debe ser anterior a 'to'.");
+        }
+    }
+
+    /**
+     * Escribe las citas con {@code from <= dateTime < to}, ordenadas por fecha.
+     * La conexión se devuelve al pool después de cada bloque, antes de escribirlo;
+     * el stream de salida no se cierra.
+     *
+     * @return Cantidad de filas exportadas.
+     */
+    public long export(LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            writer.flush();
+        }
+
+        long rows = 0;
+        PageFilter filter = new PageFilter(null, null, from, to, false, null, null);
+        List<AppointmentResponse> chunk;
+        do {
+            PageFilter current = filter;
+            chunk = readOnlyTransaction.execute(status -> appointmentRepository.findPage(current, chunkRows));
+            for (AppointmentResponse row : chunk) {
+                if (format == Format.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                // La primera fila sale enseguida; después, por bloques
+                if (++rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                AppointmentResponse last = chunk.get(chunk.size() - 1);
+                filter = new PageFilter(null, null, from, to, false, last.dateTime(), last.id());
+            }
+        } while (chunk.size() == chunkRows);
+        writer.flush();
+        logger.info("Exportadas {} citas ({}) entre {} y {}", rows, format, from, to);
+        return rows;
+    }
+
+    private static void writeCsv(Writer writer, AppointmentResponse row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writer.write(String.valueOf(row.dateTime()));
+        writer.write(',');
+        writer.write(String.valueOf(row.durationMinutes()));
+        writer.write(',');
+        writeCsvField(writer, row.patientName());
+        writer.write(',');
+        writeCsvField(writer, row.patientEmail());
+        writer.write(',');
+        writer.write(String.valueOf(row.status()));
+        writer.write(',');
+        writeCsvField(writer, row.doctorName());
+        writer.write(',');
+        writeCsvField(writer, row.doctorSpecialty());
+        writer.write(',');
+        writeCsvField(writer, row.diagnosis());
+        writer.write(',');
+        writeCsvField(writer, row.treatment());
+        writer.write('\n');
+    }
+
+    /**
+     * RFC 4180: entre comillas sólo si hace falta, duplicando las comillas internas.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
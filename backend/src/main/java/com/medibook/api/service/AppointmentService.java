@@ -2,12 +2,30 @@ package com.medibook.api.service;
 
 import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
 import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.repository.BookedSlot;
 
 public interface AppointmentService {
     AppointmentResponse createAppointment(AppointmentRequest request);
 
+    AppointmentResponse createAppointment(AppointmentRequest request, String owner);
+
+    com.medibook.api.dto.AppointmentDTO.BatchResponse createAppointments(java.util.List<AppointmentRequest> requests);
+
+    com.medibook.api.dto.AppointmentDTO.BatchResponse createSeries(AppointmentRequest request);
+
+    com.medibook.api.dto.AppointmentDTO.HoldResponse holdSlot(com.medibook.api.dto.AppointmentDTO.HoldRequest request,
+            String owner);
+
+    void releaseHold(String holdId, String owner);
+
     java.util.List<AppointmentResponse> getAllAppointments();
 
+    java.util.List<AppointmentResponse> getDoctorAgenda(Long doctorId, java.time.LocalDate date);
+
+    com.medibook.api.dto.AppointmentDTO.AppointmentPage getAppointmentsPage(Long doctorId,
+            com.medibook.api.model.AppointmentStatus status, java.time.LocalDateTime from, java.time.LocalDateTime to,
+            boolean descending, String cursor, int limit);
+
     AppointmentResponse updateStatus(Long id, com.medibook.api.model.AppointmentStatus status);
 
     AppointmentResponse updateDiagnosis(Long id, String diagnosis, String treatment);
@@ -18,4 +36,9 @@ public interface AppointmentService {
 
     java.util.List<com.medibook.api.model.Appointment> getAppointmentsByDoctorAndDateRange(Long doctorId,
             java.time.LocalDateTime start, java.time.LocalDateTime end);
+
+    java.util.List<BookedSlot> getHeldSlots(Long doctorId, java.time.LocalDateTime start, java.time.LocalDateTime end);
+
+    com.medibook.api.dto.AppointmentDTO.TakenSlotsRange getTakenSlotsRange(java.util.List<Long> doctorIds,
+            java.time.LocalDate from, int days, int slotMinutes);
 }
@@ -1,11 +1,21 @@
 package com.medibook.api.service;
 
 import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentPage;
 import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.dto.AppointmentDTO.BatchItemResult;
+import com.medibook.api.dto.AppointmentDTO.BatchResponse;
+import com.medibook.api.dto.AppointmentDTO.HoldRequest;
+import com.medibook.api.dto.AppointmentDTO.HoldResponse;
+import com.medibook.api.dto.AppointmentDTO.RecurrenceRule;
+import com.medibook.api.dto.AppointmentDTO.TakenSlotsRange;
+import com.medibook.api.event.AppointmentChangedEvent;
 import com.medibook.api.model.Appointment;
 import com.medibook.api.model.AppointmentStatus;
 import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AppointmentPageQuery;
 import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
 import com.medibook.api.repository.DoctorRepository;
 import com.medibook.api.repository.PatientRepository;
 import com.medibook.api.model.Patient;
@@ -24,20 +34,43 @@ public class AppointmentServiceImpl implements AppointmentService {
 
         private static final Logger logger = LoggerFactory.getLogger(AppointmentServiceImpl.class);
 
+        private static final int MAX_BATCH_SIZE = 200;
+        private static final int MAX_SERIES_OCCURRENCES = 104;
+        private static final int MAX_PAGE_SIZE = 200;
+        private static final int MAX_RANGE_DOCTORS = 50;
+        private static final int MAX_RANGE_DAYS = 62;
+        private static final int MINUTES_PER_DAY = 24 * 60;
+        private static final int MIN_DURATION_MINUTES = 5;
+
         private final AppointmentRepository appointmentRepository;
         private final DoctorRepository doctorRepository;
         private final PatientRepository patientRepository;
         private final NotificationService notificationService;
+        private final SlotReservationService slotReservationService;
+        private final DoctorScheduleIndex doctorScheduleIndex;
+        private final SlotHoldService slotHoldService;
+        private final org.springframework.context.ApplicationEventPublisher eventPublisher;
+        private final AgendaCache agendaCache;
 
         public AppointmentServiceImpl(
                         AppointmentRepository appointmentRepository,
                         DoctorRepository doctorRepository,
                         PatientRepository patientRepository,
-                        NotificationService notificationService) {
+                        NotificationService notificationService,
+                        SlotReservationService slotReservationService,
+                        DoctorScheduleIndex doctorScheduleIndex,
+                        SlotHoldService slotHoldService,
+                        org.springframework.context.ApplicationEventPublisher eventPublisher,
+                        AgendaCache agendaCache) {
                 this.appointmentRepository = appointmentRepository;
                 this.doctorRepository = doctorRepository;
                 this.patientRepository = patientRepository;
                 this.notificationService = notificationService;
+                this.slotReservationService = slotReservationService;
+                this.doctorScheduleIndex = doctorScheduleIndex;
+                this.slotHoldService = slotHoldService;
+                this.eventPublisher = eventPublisher;
+                this.agendaCache = agendaCache;
         }
 
         /**
@@ -49,73 +82,320 @@ public class AppointmentServiceImpl implements AppointmentService {
         @Override
         @Transactional
         public AppointmentResponse createAppointment(AppointmentRequest request) {
-                if (request.dateTime().isBefore(java.time.LocalDateTime.now())) {
-                        throw new org.springframework.web.server.ResponseStatusException(
-                                        org.springframework.http.HttpStatus.BAD_REQUEST,
-                                        "Error: No puedes agendar citas en el pasado.");
-                }
+                return createAppointment(request, null);
+        }
 
-                if (appointmentRepository.existsByDoctorIdAndDateTime(request.doctorId(), request.dateTime())) {
+        /**
+         * Crea una nueva cita validando disponibilidad y reglas de negocio.
+         * 
+         * @param request Datos de la solicitud.
+         * @param owner   Usuario que crea la cita; sólo él puede confirmar sus
+         *                reservas temporales.
+         * @return Detalles de la cita creada.
+         */
+        @Override
+        @Transactional
+        public AppointmentResponse createAppointment(AppointmentRequest request, String owner) {
+                if (request.recurrence() != null) {
                         throw new org.springframework.web.server.ResponseStatusException(
-                                        org.springframework.http.HttpStatus.CONFLICT,
-                                        "Error: El doctor ya tiene una cita agendada en ese horario.");
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: Las citas recurrentes se crean desde /series.");
                 }
+                validateNotInPast(request.dateTime());
 
                 Doctor doctor = doctorRepository.findById(request.doctorId())
                                 .orElseThrow(() -> new RuntimeException(
                                                 "Doctor not found with ID: " + request.doctorId()));
 
-                java.time.LocalTime appointmentTime = request.dateTime().toLocalTime();
-                if (appointmentTime.isBefore(doctor.getWorkStart()) || appointmentTime.isAfter(doctor.getWorkEnd())) {
-                        throw new org.springframework.web.server.ResponseStatusException(
-                                        org.springframework.http.HttpStatus.BAD_REQUEST,
-                                        "El doctor solo atiende de " + doctor.getWorkStart() + " a "
-                                                        + doctor.getWorkEnd());
+                int duration = durationOf(request.durationMinutes());
+                validateWorkingHours(doctor, request.dateTime(), duration);
+
+                // Reserva del horario; se libera sola si la transacción hace rollback
+                if (request.holdId() != null) {
+                        if (!slotHoldService.consume(request.holdId(), owner, doctor.getId(), request.dateTime(),
+                                        duration)) {
+                                throw new org.springframework.web.server.ResponseStatusException(
+                                                org.springframework.http.HttpStatus.CONFLICT,
+                                                "Error: La reserva temporal no existe, venció o no coincide con el turno.");
+                        }
+                        if (!slotReservationService.reserveHeld(doctor.getId(), request.dateTime(), duration)) {
+                                throw slotTakenException();
+                        }
+                } else if (slotHoldService.isHeld(doctor.getId(), request.dateTime(),
+                                request.dateTime().plusMinutes(duration))
+                                || !slotReservationService.tryReserve(doctor.getId(), request.dateTime(), duration)) {
+                        throw slotTakenException();
                 }
 
                 // Find or Create Patient
                 Patient patient = patientRepository.findByEmail(request.patientEmail())
-                                .orElseGet(() -> {
-                                        String[] nameParts = request.patientName().trim().split(" ", 2);
-                                        String firstName = nameParts[0];
-                                        String lastName = nameParts.length > 1 ? nameParts[1] : "-";
-
-                                        return patientRepository.save(Patient.builder()
-                                                        .firstName(firstName)
-                                                        .lastName(lastName)
-                                                        .email(request.patientEmail())
-                                                        .build());
-                                });
+                                .orElseGet(() -> patientRepository.save(newPatient(request)));
 
                 Appointment appointment = Appointment.builder()
                                 .dateTime(request.dateTime())
+                                .durationMinutes(duration)
                                 .patient(patient)
                                 .doctor(doctor)
                                 .status(AppointmentStatus.CONFIRMED) // Default as per requirements
                                 .build();
 
-                Appointment savedAppointment = appointmentRepository.save(appointment);
+                Appointment savedAppointment = saveAndCheckSlot(appointment);
                 logger.info("Cita creada ID: {} para Paciente: {} con Doctor ID: {}", savedAppointment.getId(),
                                 savedAppointment.getPatient().getEmail(), doctor.getId());
 
-                notificationService.sendConfirmation(
-                                savedAppointment.getPatient().getEmail(),
-                                "Confirmación de Cita - MediBook",
-                                "Hola " + savedAppointment.getPatient().getFirstName() + ", tu cita con el Dr. "
-                                                + doctor.getFirstName() + " " + doctor.getLastName()
-                                                + " está confirmada para el " + savedAppointment.getDateTime() + ".");
+                sendConfirmation(savedAppointment);
+                publishChange(savedAppointment, null);
+                return toResponse(savedAppointment);
+        }
 
-                return new AppointmentResponse(
-                                savedAppointment.getId(),
-                                savedAppointment.getDateTime(),
-                                savedAppointment.getPatient().getFirstName() + " "
-                                                + savedAppointment.getPatient().getLastName(),
-                                savedAppointment.getPatient().getEmail(),
-                                savedAppointment.getStatus(),
-                                doctor.getFirstName() + " " + doctor.getLastName(),
-                                doctor.getSpecialty(),
-                                savedAppointment.getDiagnosis(),
-                                savedAppointment.getTreatment());
+        /**
+         * Crea varias citas en una única transacción. Los médicos y pacientes se
+         * cargan con una consulta cada uno, los horarios ocupados con una consulta
+         * por rango y las citas se insertan en lotes JDBC. Cada elemento informa su
+         * propio resultado: un conflicto no invalida al resto del lote.
+         * 
+         * @param requests Solicitudes de citas.
+         * @return Resultado por elemento, en el mismo orden que la solicitud.
+         */
+        @Override
+        @Transactional
+        public BatchResponse createAppointments(java.util.List<AppointmentRequest> requests) {
+                if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "El lote debe contener entre 1 y " + MAX_BATCH_SIZE + " citas.");
+                }
+                return processBatch(requests, true);
+        }
+
+        /**
+         * Crea todas las ocurrencias de una cita recurrente (por ejemplo, todos los
+         * martes a las 10:00 durante 26 semanas). Las ocurrencias se generan a
+         * partir de la regla y pasan por el mismo camino que un lote: una consulta
+         * por rango para los horarios ocupados e inserciones JDBC en lote. Las que
+         * chocan se informan sin cancelar el resto de la serie.
+         * 
+         * @param request Primera ocurrencia y regla de recurrencia.
+         * @return Resultado por ocurrencia, en orden cronológico.
+         */
+        @Override
+        @Transactional
+        public BatchResponse createSeries(AppointmentRequest request) {
+                RecurrenceRule rule = request.recurrence();
+                if (rule == null || rule.frequency() == null || request.dateTime() == null
+                                || (rule.count() == null && rule.until() == null)) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: La serie requiere frecuencia y una cantidad o fecha de fin.");
+                }
+                if (request.holdId() != null) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: Una serie no puede confirmar una reserva temporal.");
+                }
+                int interval = rule.interval() == null ? 1 : rule.interval();
+                int count = rule.count() == null ? MAX_SERIES_OCCURRENCES : rule.count();
+                if (interval < 1 || count < 1 || count > MAX_SERIES_OCCURRENCES) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: Una serie admite entre 1 y " + MAX_SERIES_OCCURRENCES
+                                                        + " ocurrencias con intervalo positivo.");
+                }
+
+                // Cada ocurrencia se calcula desde la primera para que los meses cortos no corran la fecha
+                java.time.temporal.ChronoUnit unit = switch (rule.frequency()) {
+                        case DAILY -> java.time.temporal.ChronoUnit.DAYS;
+                        case WEEKLY -> java.time.temporal.ChronoUnit.WEEKS;
+                        case MONTHLY -> java.time.temporal.ChronoUnit.MONTHS;
+                };
+                java.time.LocalDateTime first = request.dateTime();
+                java.util.List<AppointmentRequest> occurrences = java.util.stream.Stream
+                                .iterate(0L, i -> i + 1)
+                                .map(i -> first.plus(i * interval, unit))
+                                .takeWhile(dateTime -> rule.until() == null
+                                                || !dateTime.toLocalDate().isAfter(rule.until()))
+                                .limit(count)
+                                .map(dateTime -> new AppointmentRequest(request.doctorId(), dateTime,
+                                                request.patientName(), request.patientEmail(),
+                                                request.durationMinutes(), null, null))
+                                .toList();
+
+                BatchResponse response = processBatch(occurrences, false);
+                if (response.created() > 0) {
+                        notificationService.sendConfirmation(
+                                        request.patientEmail(),
+                                        "Confirmación de Serie de Citas - MediBook",
+                                        "Hola " + request.patientName() + ", se agendaron " + response.created()
+                                                        + " de " + occurrences.size() + " citas a partir del "
+                                                        + first + ".");
+                }
+                logger.info("Serie de citas para {}: {} creadas de {}", request.patientEmail(), response.created(),
+                                occurrences.size());
+                return response;
+        }
+
+        private BatchResponse processBatch(java.util.List<AppointmentRequest> requests, boolean notifyEach) {
+                java.util.Set<Long> doctorIds = new java.util.HashSet<>();
+                java.util.Set<String> emails = new java.util.HashSet<>();
+                for (AppointmentRequest request : requests) {
+                        if (isComplete(request)) {
+                                doctorIds.add(request.doctorId());
+                                emails.add(request.patientEmail());
+                        }
+                }
+
+                java.util.Map<Long, Doctor> doctors = new java.util.HashMap<>();
+                doctorRepository.findAllById(doctorIds).forEach(doctor -> doctors.put(doctor.getId(), doctor));
+                java.util.Map<String, Patient> patients = new java.util.HashMap<>();
+                if (!emails.isEmpty()) {
+                        patientRepository.findByEmailIn(emails)
+                                        .forEach(patient -> patients.put(patient.getEmail(), patient));
+                }
+
+                // Los días del lote se cargan (local) o bloquean (cluster) una sola vez
+                java.util.List<BookedSlot> requested = new java.util.ArrayList<>();
+                for (AppointmentRequest request : requests) {
+                        if (isComplete(request) && doctors.containsKey(request.doctorId())) {
+                                int duration = request.durationMinutes() == null
+                                                ? Appointment.DEFAULT_DURATION_MINUTES
+                                                : Math.min(Math.max(request.durationMinutes(), MIN_DURATION_MINUTES),
+                                                                Appointment.MAX_DURATION_MINUTES);
+                                requested.add(new BookedSlot(request.doctorId(), request.dateTime(), duration));
+                        }
+                }
+                SlotReservationService.BatchReservation reservation = slotReservationService.openBatch(requested);
+
+                BatchItemResult[] results = new BatchItemResult[requests.size()];
+                java.util.List<Appointment> pending = new java.util.ArrayList<>();
+                java.util.List<Integer> pendingIndexes = new java.util.ArrayList<>();
+
+                for (int i = 0; i < requests.size(); i++) {
+                        AppointmentRequest request = requests.get(i);
+                        try {
+                                if (!isComplete(request)) {
+                                        throw new org.springframework.web.server.ResponseStatusException(
+                                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                                        "Error: Faltan datos obligatorios de la cita.");
+                                }
+                                validateNotInPast(request.dateTime());
+                                // Antes de reservar: un paciente nuevo necesita nombre
+                                if (!patients.containsKey(request.patientEmail())) {
+                                        validatePatientName(request);
+                                }
+
+                                Doctor doctor = doctors.get(request.doctorId());
+                                if (doctor == null) {
+                                        throw new org.springframework.web.server.ResponseStatusException(
+                                                        org.springframework.http.HttpStatus.NOT_FOUND,
+                                                        "Doctor not found with ID: " + request.doctorId());
+                                }
+                                int duration = durationOf(request.durationMinutes());
+                                validateWorkingHours(doctor, request.dateTime(), duration);
+
+                                java.time.LocalDateTime end = request.dateTime().plusMinutes(duration);
+                                if (slotHoldService.isHeld(doctor.getId(), request.dateTime(), end)
+                                                || !reservation.tryReserve(doctor.getId(), request.dateTime(),
+                                                                duration)) {
+                                        throw slotTakenException();
+                                }
+
+                                Patient patient = patients.computeIfAbsent(request.patientEmail(),
+                                                email -> patientRepository.save(newPatient(request)));
+
+                                pending.add(Appointment.builder()
+                                                .dateTime(request.dateTime())
+                                                .durationMinutes(duration)
+                                                .patient(patient)
+                                                .doctor(doctor)
+                                                .status(AppointmentStatus.CONFIRMED)
+                                                .build());
+                                pendingIndexes.add(i);
+                        } catch (org.springframework.web.server.ResponseStatusException e) {
+                                results[i] = new BatchItemResult(i, e.getStatusCode().value(), null, e.getReason());
+                        }
+                }
+
+                // Con ids de secuencia Hibernate agrupa los INSERT en lotes JDBC al hacer flush
+                java.util.List<Appointment> saved;
+                try {
+                        saved = appointmentRepository.saveAll(pending);
+                        appointmentRepository.flush();
+                } catch (org.springframework.dao.DataIntegrityViolationException e) {
+                        logger.warn("Conflicto de horario concurrente al insertar un lote de {} citas", pending.size());
+                        throw slotTakenException();
+                }
+
+                for (int j = 0; j < saved.size(); j++) {
+                        Appointment appointment = saved.get(j);
+                        int index = pendingIndexes.get(j);
+                        if (notifyEach) {
+                                sendConfirmation(appointment);
+                        }
+                        publishChange(appointment, null);
+                        results[index] = new BatchItemResult(index, org.springframework.http.HttpStatus.CREATED.value(),
+                                        toResponse(appointment), null);
+                }
+
+                logger.info("Lote de citas procesado: {} creadas de {}", saved.size(), requests.size());
+                return new BatchResponse(saved.size(), requests.size() - saved.size(), java.util.Arrays.asList(results));
+        }
+
+        /**
+         * Aparta un horario durante unos minutos mientras el paciente confirma.
+         * 
+         * @param request Doctor, horario y duración a apartar.
+         * @param owner   Usuario que aparta el horario.
+         * @return Identificador de la reserva temporal y su vencimiento.
+         */
+        @Override
+        @Transactional
+        public HoldResponse holdSlot(HoldRequest request, String owner) {
+                if (request.doctorId() == null || request.dateTime() == null) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: Faltan datos obligatorios de la cita.");
+                }
+                validateNotInPast(request.dateTime());
+
+                Doctor doctor = doctorRepository.findById(request.doctorId())
+                                .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(
+                                                org.springframework.http.HttpStatus.NOT_FOUND,
+                                                "Doctor not found with ID: " + request.doctorId()));
+
+                int duration = durationOf(request.durationMinutes());
+                validateWorkingHours(doctor, request.dateTime(), duration);
+
+                SlotHoldService.Hold hold;
+                try {
+                        hold = slotHoldService.hold(owner, doctor.getId(), request.dateTime(), duration);
+                } catch (IllegalStateException e) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.TOO_MANY_REQUESTS,
+                                        "Error: Ya tienes demasiados horarios apartados.");
+                }
+                if (hold == null) {
+                        throw slotTakenException();
+                }
+
+                logger.info("Horario apartado para Doctor ID {} en {} hasta {}", doctor.getId(), request.dateTime(),
+                                hold.getExpiresAt());
+                return new HoldResponse(hold.getId(), doctor.getId(), request.dateTime(), duration,
+                                hold.getExpiresAt());
+        }
+
+        /**
+         * Libera un horario apartado antes de que venza.
+         * 
+         * @param holdId ID de la reserva temporal.
+         * @param owner  Usuario que la creó.
+         */
+        @Override
+        public void releaseHold(String holdId, String owner) {
+                if (!slotHoldService.release(holdId, owner)) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.NOT_FOUND,
+                                        "Reserva temporal no encontrada: " + holdId);
+                }
         }
 
         /**
@@ -126,20 +406,62 @@ public class AppointmentServiceImpl implements AppointmentService {
         @Override
         @Transactional(readOnly = true)
         public java.util.List<AppointmentResponse> getAllAppointments() {
-                return appointmentRepository.findAll().stream()
-                                .map(appointment -> new AppointmentResponse(
-                                                appointment.getId(),
-                                                appointment.getDateTime(),
-                                                appointment.getPatient().getFirstName() + " "
-                                                                + appointment.getPatient().getLastName(),
-                                                appointment.getPatient().getEmail(),
-                                                appointment.getStatus(),
-                                                appointment.getDoctor().getFirstName() + " "
-                                                                + appointment.getDoctor().getLastName(),
-                                                appointment.getDoctor().getSpecialty(),
-                                                appointment.getDiagnosis(),
-                                                appointment.getTreatment()))
-                                .toList();
+                return appointmentRepository.findAllResponses();
+        }
+
+        /**
+         * Página de citas ordenada por {@code (dateTime, id)}. La posición viaja en
+         * un cursor opaco en lugar de un offset, así cada página cuesta lo mismo
+         * sin importar cuántas filas tenga la tabla ni cuántas páginas se recorran.
+         * 
+         * @param doctorId   Filtro opcional por doctor.
+         * @param status     Filtro opcional por estado.
+         * @param from       Inicio opcional del rango (inclusive).
+         * @param to         Fin opcional del rango (exclusivo).
+         * @param descending true para recorrer de la cita más nueva a la más vieja.
+         * @param cursor     {@code nextCursor} de la página anterior, o null.
+         * @param limit      Tamaño de página.
+         * @return Citas de la página y cursor de la siguiente.
+         */
+        @Override
+        @Transactional(readOnly = true)
+        public AppointmentPage getAppointmentsPage(Long doctorId, AppointmentStatus status,
+                        java.time.LocalDateTime from, java.time.LocalDateTime to, boolean descending, String cursor,
+                        int limit) {
+                if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE + ".");
+                }
+
+                java.time.LocalDateTime afterDateTime = null;
+                Long afterId = null;
+                if (cursor != null) {
+                        try {
+                                String[] parts = new String(java.util.Base64.getUrlDecoder().decode(cursor),
+                                                java.nio.charset.StandardCharsets.UTF_8).split("\\|");
+                                afterDateTime = java.time.LocalDateTime.parse(parts[0]);
+                                afterId = Long.valueOf(parts[1]);
+                        } catch (RuntimeException e) {
+                                throw new org.springframework.web.server.ResponseStatusException(
+                                                org.springframework.http.HttpStatus.BAD_REQUEST, "Cursor inválido.");
+                        }
+                }
+
+                // Se pide una fila de más sólo para saber si hay página siguiente
+                java.util.List<AppointmentResponse> rows = appointmentRepository.findPage(
+                                new AppointmentPageQuery.PageFilter(doctorId, status, from, to, descending,
+                                                afterDateTime, afterId),
+                                limit + 1);
+                if (rows.size() <= limit) {
+                        return new AppointmentPage(rows, null);
+                }
+
+                java.util.List<AppointmentResponse> items = rows.subList(0, limit);
+                AppointmentResponse last = items.get(limit - 1);
+                String nextCursor = java.util.Base64.getUrlEncoder().withoutPadding().encodeToString(
+                                (last.dateTime() + "|" + last.id()).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                return new AppointmentPage(java.util.List.copyOf(items), nextCursor);
         }
 
         /**
@@ -152,27 +474,37 @@ public class AppointmentServiceImpl implements AppointmentService {
         @Override
         @Transactional
         public AppointmentResponse updateStatus(Long id, AppointmentStatus status) {
-                Appointment appointment = appointmentRepository.findById(id)
+                Appointment appointment = appointmentRepository.findWithPatientAndDoctorById(id)
                                 .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(
                                                 org.springframework.http.HttpStatus.NOT_FOUND,
                                                 "Appointment not found with ID: " + id));
 
+                AppointmentStatus previousStatus = appointment.getStatus();
+                Long doctorId = appointment.getDoctor().getId();
+                if (previousStatus != AppointmentStatus.CANCELLED && status == AppointmentStatus.CANCELLED) {
+                        slotReservationService.releaseAfterCommit(doctorId, appointment.getDateTime(),
+                                        appointment.getDurationMinutes());
+                } else if (previousStatus == AppointmentStatus.CANCELLED && status != AppointmentStatus.CANCELLED
+                                && !slotReservationService.tryReserve(doctorId, appointment.getDateTime(),
+                                                appointment.getDurationMinutes())) {
+                        throw slotTakenException();
+                }
+
                 appointment.setStatus(status);
-                Appointment savedAppointment = appointmentRepository.save(appointment);
+                Appointment savedAppointment = saveAndCheckSlot(appointment);
                 logger.info("Estado de cita ID {} actualizado a {}", id, status);
 
-                return new AppointmentResponse(
-                                savedAppointment.getId(),
-                                savedAppointment.getDateTime(),
-                                savedAppointment.getPatient().getFirstName() + " "
-                                                + savedAppointment.getPatient().getLastName(),
-                                savedAppointment.getPatient().getEmail(),
-                                savedAppointment.getStatus(),
-                                savedAppointment.getDoctor().getFirstName() + " "
-                                                + savedAppointment.getDoctor().getLastName(),
-                                savedAppointment.getDoctor().getSpecialty(),
-                                savedAppointment.getDiagnosis(),
-                                savedAppointment.getTreatment());
+                // Los oyentes (p. ej. la lista de espera) actúan recién cuando esto confirma
+                publishChange(savedAppointment, previousStatus);
+
+                return toResponse(savedAppointment);
+        }
+
+        private void publishChange(Appointment appointment, AppointmentStatus previousStatus) {
+                eventPublisher.publishEvent(new AppointmentChangedEvent(appointment.getId(),
+                                appointment.getDoctor().getId(), appointment.getPatient().getId(),
+                                appointment.getDateTime(),
+                                appointment.getDurationMinutes(), previousStatus, appointment.getStatus()));
         }
 
         /**
@@ -186,7 +518,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         @Override
         @Transactional
         public AppointmentResponse updateDiagnosis(Long id, String diagnosis, String treatment) {
-                Appointment appointment = appointmentRepository.findById(id)
+                Appointment appointment = appointmentRepository.findWithPatientAndDoctorById(id)
                                 .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(
                                                 org.springframework.http.HttpStatus.NOT_FOUND,
                                                 "Appointment not found with ID: " + id));
@@ -195,52 +527,218 @@ public class AppointmentServiceImpl implements AppointmentService {
                 appointment.setTreatment(treatment);
                 Appointment savedAppointment = appointmentRepository.save(appointment);
                 logger.info("Diagnóstico registrado para cita ID {}", id);
+                publishChange(savedAppointment, savedAppointment.getStatus());
 
-                return new AppointmentResponse(
-                                savedAppointment.getId(),
-                                savedAppointment.getDateTime(),
-                                savedAppointment.getPatient().getFirstName() + " "
-                                                + savedAppointment.getPatient().getLastName(),
-                                savedAppointment.getPatient().getEmail(),
-                                savedAppointment.getStatus(),
-                                savedAppointment.getDoctor().getFirstName() + " "
-                                                + savedAppointment.getDoctor().getLastName(),
-                                savedAppointment.getDoctor().getSpecialty(),
-                                savedAppointment.getDiagnosis(),
-                                savedAppointment.getTreatment());
+                return toResponse(savedAppointment);
+        }
+
+        /**
+         * Citas del doctor en un día, en orden, servidas desde la caché de agendas.
+         * Sin transacción propia: un acierto de caché no toma conexión.
+         * 
+         * @param doctorId ID del doctor.
+         * @param date     Día de la agenda.
+         * @return Citas del día con los datos del paciente.
+         */
+        @Override
+        public java.util.List<AppointmentResponse> getDoctorAgenda(Long doctorId, java.time.LocalDate date) {
+                return agendaCache.get(doctorId, date, () -> {
+                        if (!doctorRepository.existsById(doctorId)) {
+                                throw new org.springframework.web.server.ResponseStatusException(
+                                                org.springframework.http.HttpStatus.NOT_FOUND,
+                                                "Doctor not found with ID: " + doctorId);
+                        }
+                        return appointmentRepository.findResponsesByDoctorIdAndDateTimeBetween(doctorId,
+                                        date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+                });
         }
 
         @Override
         @Transactional(readOnly = true)
         public java.util.List<AppointmentResponse> getPatientHistory(String email) {
-                return appointmentRepository.findByPatient_EmailOrderByDateTimeDesc(email).stream()
-                                .map(appointment -> new AppointmentResponse(
-                                                appointment.getId(),
-                                                appointment.getDateTime(),
-                                                appointment.getPatient().getFirstName() + " "
-                                                                + appointment.getPatient().getLastName(),
-                                                appointment.getPatient().getEmail(),
-                                                appointment.getStatus(),
-                                                appointment.getDoctor().getFirstName() + " "
-                                                                + appointment.getDoctor().getLastName(),
-                                                appointment.getDoctor().getSpecialty(),
-                                                appointment.getDiagnosis(),
-                                                appointment.getTreatment()))
-                                .toList();
+                return appointmentRepository.findResponsesByPatientEmail(email);
+        }
+
+        private void validateNotInPast(java.time.LocalDateTime dateTime) {
+                if (dateTime.isBefore(java.time.LocalDateTime.now())) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: No puedes agendar citas en el pasado.");
+                }
+        }
+
+        private int durationOf(Integer durationMinutes) {
+                if (durationMinutes == null) {
+                        return Appointment.DEFAULT_DURATION_MINUTES;
+                }
+                if (durationMinutes < MIN_DURATION_MINUTES || durationMinutes > Appointment.MAX_DURATION_MINUTES) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "La duración de la cita debe estar entre " + MIN_DURATION_MINUTES + " y "
+                                                        + Appointment.MAX_DURATION_MINUTES + " minutos.");
+                }
+                return durationMinutes;
+        }
+
+        private void validateWorkingHours(Doctor doctor, java.time.LocalDateTime dateTime, int durationMinutes) {
+                WeeklySchedule schedule = doctorScheduleIndex.get(doctor);
+                if (!schedule.covers(dateTime, durationMinutes)) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "El doctor no atiende en ese horario. Horario del día: "
+                                                        + schedule.describe(dateTime.getDayOfWeek()));
+                }
+        }
+
+        private static boolean isComplete(AppointmentRequest request) {
+                return request != null && request.doctorId() != null && request.dateTime() != null
+                                && request.patientEmail() != null;
+        }
+
+        private void validatePatientName(AppointmentRequest request) {
+                if (request.patientName() == null || request.patientName().isBlank()) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Error: Falta el nombre del paciente.");
+                }
+        }
+
+        private Patient newPatient(AppointmentRequest request) {
+                validatePatientName(request);
+                String[] nameParts = request.patientName().trim().split(" ", 2);
+                String firstName = nameParts[0];
+                String lastName = nameParts.length > 1 ? nameParts[1] : "-";
+
+                return Patient.builder()
+                                .firstName(firstName)
+                                .lastName(lastName)
+                                .email(request.patientEmail())
+                                .build();
+        }
+
+        private void sendConfirmation(Appointment appointment) {
+                Doctor doctor = appointment.getDoctor();
+                notificationService.sendConfirmation(
+                                appointment.getPatient().getEmail(),
+                                "Confirmación de Cita - MediBook",
+                                "Hola " + appointment.getPatient().getFirstName() + ", tu cita con el Dr. "
+                                                + doctor.getFirstName() + " " + doctor.getLastName()
+                                                + " está confirmada para el " + appointment.getDateTime() + ".");
+        }
+
+        private AppointmentResponse toResponse(Appointment appointment) {
+                return new AppointmentResponse(
+                                appointment.getId(),
+                                appointment.getDateTime(),
+                                appointment.getDurationMinutes(),
+                                appointment.getPatient().getFirstName() + " "
+                                                + appointment.getPatient().getLastName(),
+                                appointment.getPatient().getEmail(),
+                                appointment.getStatus(),
+                                appointment.getDoctor().getFirstName() + " "
+                                                + appointment.getDoctor().getLastName(),
+                                appointment.getDoctor().getSpecialty(),
+                                appointment.getDiagnosis(),
+                                appointment.getTreatment());
+        }
+
+        /**
+         * Guarda la cita forzando el INSERT/UPDATE para que una violación de la
+         * restricción única de horario se traduzca en un 409 en lugar de un 500.
+         */
+        private Appointment saveAndCheckSlot(Appointment appointment) {
+                try {
+                        return appointmentRepository.saveAndFlush(appointment);
+                } catch (org.springframework.dao.DataIntegrityViolationException e) {
+                        logger.warn("Conflicto de horario para Doctor ID {} en {}", appointment.getDoctor().getId(),
+                                        appointment.getDateTime());
+                        throw slotTakenException();
+                }
+        }
+
+        private org.springframework.web.server.ResponseStatusException slotTakenException() {
+                return new org.springframework.web.server.ResponseStatusException(
+                                org.springframework.http.HttpStatus.CONFLICT,
+                                "Error: El doctor ya tiene una cita agendada en ese horario.");
         }
 
         @Override
         public com.medibook.api.model.Appointment getAppointment(Long id) {
-                return appointmentRepository.findById(id)
+                return appointmentRepository.findWithPatientAndDoctorById(id)
                                 .orElseThrow(() -> new org.springframework.web.server.ResponseStatusException(
                                                 org.springframework.http.HttpStatus.NOT_FOUND,
                                                 "Appointment not found with ID: " + id));
         }
 
+        @Override
+        public java.util.List<BookedSlot> getHeldSlots(Long doctorId, java.time.LocalDateTime start,
+                        java.time.LocalDateTime end) {
+                return slotHoldService.heldSlots(java.util.List.of(doctorId), start, end);
+        }
+
         @Override
         @Transactional(readOnly = true)
         public java.util.List<com.medibook.api.model.Appointment> getAppointmentsByDoctorAndDateRange(Long doctorId,
                         java.time.LocalDateTime start, java.time.LocalDateTime end) {
                 return appointmentRepository.findByDoctorIdAndDateTimeBetween(doctorId, start, end);
         }
+
+        /**
+         * Calcula los horarios ocupados de varios doctores en varios días con una
+         * única consulta, devolviendo un bitmap compacto por doctor y día.
+         * 
+         * @param doctorIds   IDs de los doctores.
+         * @param from        Primer día del rango.
+         * @param days        Cantidad de días.
+         * @param slotMinutes Duración de cada turno del bitmap.
+         * @return Bitmaps de ocupación.
+         */
+        @Override
+        @Transactional(readOnly = true)
+        public TakenSlotsRange getTakenSlotsRange(java.util.List<Long> doctorIds, java.time.LocalDate from,
+                        int days, int slotMinutes) {
+                if (doctorIds == null || doctorIds.isEmpty() || doctorIds.size() > MAX_RANGE_DOCTORS
+                                || days < 1 || days > MAX_RANGE_DAYS
+                                || slotMinutes < 5 || slotMinutes > 240 || MINUTES_PER_DAY % slotMinutes != 0) {
+                        throw new org.springframework.web.server.ResponseStatusException(
+                                        org.springframework.http.HttpStatus.BAD_REQUEST,
+                                        "Rango inválido: hasta " + MAX_RANGE_DOCTORS + " doctores y " + MAX_RANGE_DAYS
+                                                        + " días, con turnos que dividan el día.");
+                }
+
+                java.util.Map<Long, java.util.BitSet[]> bitmaps = new java.util.LinkedHashMap<>();
+                for (Long doctorId : doctorIds) {
+                        bitmaps.computeIfAbsent(doctorId, id -> new java.util.BitSet[days]);
+                }
+
+                // Los horarios apartados temporalmente también se muestran ocupados
+                java.time.LocalDateTime rangeStart = from.atStartOfDay();
+                java.time.LocalDateTime rangeEnd = from.plusDays(days - 1).atTime(java.time.LocalTime.MAX);
+                java.util.List<BookedSlot> taken = new java.util.ArrayList<>(appointmentRepository
+                                .findActiveSlotsByDoctorIdInAndDateTimeBetween(bitmaps.keySet(), rangeStart, rangeEnd));
+                taken.addAll(slotHoldService.heldSlots(bitmaps.keySet(), rangeStart, rangeEnd));
+                for (BookedSlot slot : taken) {
+                        int day = (int) java.time.temporal.ChronoUnit.DAYS.between(from, slot.dateTime().toLocalDate());
+                        java.util.BitSet[] doctorDays = bitmaps.get(slot.doctorId());
+                        if (doctorDays[day] == null) {
+                                doctorDays[day] = new java.util.BitSet(MINUTES_PER_DAY / slotMinutes);
+                        }
+                        // Se marcan todos los turnos que la cita toca, no sólo el de inicio
+                        int startMinute = slot.dateTime().toLocalTime().toSecondOfDay() / 60;
+                        int endMinute = Math.min(startMinute + slot.durationMinutes(), MINUTES_PER_DAY);
+                        doctorDays[day].set(startMinute / slotMinutes, (endMinute + slotMinutes - 1) / slotMinutes);
+                }
+
+                java.util.Base64.Encoder encoder = java.util.Base64.getEncoder();
+                java.util.Map<Long, java.util.List<String>> encoded = new java.util.LinkedHashMap<>();
+                bitmaps.forEach((doctorId, doctorDays) -> {
+                        java.util.List<String> perDay = new java.util.ArrayList<>(days);
+                        for (java.util.BitSet bitmap : doctorDays) {
+                                perDay.add(bitmap == null ? "" : encoder.encodeToString(bitmap.toByteArray()));
+                        }
+                        encoded.put(doctorId, perDay);
+                });
+
+                return new TakenSlotsRange(from, days, slotMinutes, encoded);
+        }
 }
@@ -0,0 +1,236 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.StatsDTO.DashboardStats;
+import com.medibook.api.dto.StatsDTO.DayStats;
+import com.medibook.api.dto.StatsDTO.DoctorStats;
+import com.medibook.api.model.AppointmentStatus;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estadísticas del tablero leídas de dos resúmenes: {@code appointment_doctor_stats}
+ * (totales por doctor y estado) y {@code appointment_daily_stats} (por doctor,
+ * día y estado). Consultar el tablero no recorre las citas ni el historial.
+ * <p>
+ * Los resúmenes los mantienen triggers de Postgres sobre {@code appointments},
+ * en la misma transacción que cada alta, cambio o baja. Así entran también las
+ * bajas en cascada de pacientes y doctores, las cargas iniciales y las
+ * escrituras de los otros nodos, y todas las instancias ven los mismos números.
+ * Cada conexión suma en su propia franja de filas, así que las reservas
+ * simultáneas del mismo doctor y día no hacen cola sobre una única fila; los
+ * triggers son por sentencia y aplican los cambios ordenados, de modo que dos
+ * lotes no se bloquean en orden inverso.
+ * <p>
+ * Al arrancar sólo se instalan los triggers (y se cargan los resúmenes) si
+ * faltan o son de una versión anterior; un arranque normal no bloquea nada. El
+ * recálculo completo es una operación de mantenimiento ({@link #rebuild}).
+ */
+@Service
+public class AppointmentStatsService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentStatsService.class);
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int MAX_RANGE_DAYS = 366;
+    // Cambiarla cuando cambien los triggers o las tablas: el próximo arranque los reinstala
+    private static final String TRIGGERS_VERSION = "medibook-stats-2";
+    private static final int STRIPES = 16;
+
+    // Va dentro de las plantillas de abajo, de ahí el %% escapado
+    private static final String STRIPE = "pg_backend_pid() %% " + STRIPES;
+    private static final String UPSERT_DAILY = "INSERT INTO appointment_daily_stats AS s"
+            + " (doctor_id, day, status, stripe, total, updated_at)"
+            + " SELECT doctor_id, day, status, " + STRIPE + ", SUM(delta), now() FROM (%s) changes"
+            + " GROUP BY doctor_id, day, status HAVING SUM(delta) <> 0 ORDER BY doctor_id, day, status"
+            + " ON CONFLICT (doctor_id, day, status, stripe) DO UPDATE SET total = s.total + EXCLUDED.total,"
+            + " updated_at = now();";
+    private static final String UPSERT_DOCTOR = "INSERT INTO appointment_doctor_stats AS s"
+            + " (doctor_id, status, stripe, total, updated_at)"
+            + " SELECT doctor_id, status, " + STRIPE + ", SUM(delta), now() FROM (%s) changes"
+            + " GROUP BY doctor_id, status HAVING SUM(delta) <> 0 ORDER BY doctor_id, status"
+            + " ON CONFLICT (doctor_id, status, stripe) DO UPDATE SET total = s.total + EXCLUDED.total,"
+            + " updated_at = now();";
+    private static final String NEW_ROWS = "SELECT doctor_id, CAST(date_time AS date) AS day, status, 1 AS delta"
+            + " FROM new_rows";
+    private static final String OLD_ROWS = "SELECT doctor_id, CAST(date_time AS date) AS day, status, -1 AS delta"
+            + " FROM old_rows";
+
+    private static final String TRIGGER_FUNCTION = "CREATE OR REPLACE FUNCTION appointment_daily_stats_apply()"
+            + " RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN"
+            + " IF TG_OP = 'INSERT' THEN " + upserts(NEW_ROWS)
+            + " ELSIF TG_OP = 'DELETE' THEN " + upserts(OLD_ROWS)
+            + " ELSE " + upserts(NEW_ROWS + " UNION ALL " + OLD_ROWS)
+            + " END IF; RETURN NULL; END $$";
+
+    private static final String[][] TRIGGERS = {
+            { "trg_appointment_daily_stats_insert", "INSERT", "REFERENCING NEW TABLE AS new_rows" },
+            { "trg_appointment_daily_stats_update", "UPDATE",
+                    "REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows" },
+            { "trg_appointment_daily_stats_delete", "DELETE", "REFERENCING OLD TABLE AS old_rows" } };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AppointmentStatsService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (triggersInstalled()) {
+            logger.info("Estadísticas: triggers vigentes ({})", TRIGGERS_VERSION);
+            return;
+        }
+        install();
+    }
+
+    /**
+     * Instala los triggers y carga los resúmenes desde las citas, salvo que otro
+     * nodo lo haya hecho mientras se esperaba el bloqueo.
+     */
+    void install() {
+        Integer buckets = transactionTemplate.execute(status -> {
+            lockWriters();
+            if (triggersInstalled()) {
+                return null;
+            }
+            // Restricción de antes de las franjas
+            jdbcTemplate.execute("ALTER TABLE appointment_daily_stats"
+                    + " DROP CONSTRAINT IF EXISTS uk_appointment_daily_stats_bucket");
+            jdbcTemplate.execute(TRIGGER_FUNCTION);
+            jdbcTemplate.execute("COMMENT ON FUNCTION appointment_daily_stats_apply() IS '" + TRIGGERS_VERSION + "'");
+            for (String[] trigger : TRIGGERS) {
+                jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger[0] + " ON appointments");
+                jdbcTemplate.execute("CREATE TRIGGER " + trigger[0] + " AFTER " + trigger[1] + " ON appointments "
+                        + trigger[2] + " FOR EACH STATEMENT EXECUTE FUNCTION appointment_daily_stats_apply()");
+            }
+            return recount();
+        });
+        if (buckets != null) {
+            logger.info("Estadísticas: triggers {} instalados y resúmenes cargados ({} baldes)", TRIGGERS_VERSION,
+                    buckets);
+        }
+    }
+
+    /**
+     * Recalcula los resúmenes desde las citas, por si alguien los tocó a mano.
+     * Recorre todas las citas y mientras dura las escrituras sobre ellas esperan
+     * (las lecturas siguen): es una operación de mantenimiento, no se hace sola.
+     *
+     * @return Cantidad de baldes diarios resultantes.
+     */
+    public int rebuild() {
+        int buckets = transactionTemplate.execute(status -> {
+            lockWriters();
+            return recount();
+        });
+        logger.info("Estadísticas recalculadas: {} baldes", buckets);
+        return buckets;
+    }
+
+    /**
+     * Conteos actuales. El detalle por día se limita al período pedido.
+     *
+     * @param from Primer día (por defecto, 30 días atrás).
+     * @param to   Último día (por defecto, 30 días adelante).
+     */
+    public DashboardStats snapshot(LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = from != null ? from : today.minusDays(DEFAULT_RANGE_DAYS);
+        LocalDate end = to != null ? to : today.plusDays(DEFAULT_RANGE_DAYS);
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Error: El período debe ser válido y de hasta " + MAX_RANGE_DAYS + " días.");
+        }
+
+        long[] byStatus = new long[STATUSES.length];
+        Map<Long, long[]> byDoctor = new TreeMap<>();
+        jdbcTemplate.query("SELECT doctor_id, status, SUM(total) FROM appointment_doctor_stats"
+                + " GROUP BY doctor_id, status HAVING SUM(total) <> 0", rs -> {
+                    int index = AppointmentStatus.valueOf(rs.getString(2)).ordinal();
+                    long count = rs.getLong(3);
+                    byDoctor.computeIfAbsent(rs.getLong(1), key -> new long[STATUSES.length])[index] += count;
+                    byStatus[index] += count;
+                });
+
+        Map<LocalDate, long[]> byDay = new TreeMap<>();
+        jdbcTemplate.query("SELECT day, status, SUM(total) FROM appointment_daily_stats WHERE day BETWEEN ? AND ?"
+                + " GROUP BY day, status HAVING SUM(total) <> 0", rs -> {
+                    int index = AppointmentStatus.valueOf(rs.getString(2)).ordinal();
+                    byDay.computeIfAbsent(rs.getDate(1).toLocalDate(), key -> new long[STATUSES.length])[index] += rs
+                            .getLong(3);
+                }, start, end);
+
+        List<DoctorStats> doctors = new ArrayList<>();
+        byDoctor.forEach((doctorId, counts) -> doctors.add(new DoctorStats(doctorId, sum(counts), toMap(counts))));
+        List<DayStats> days = new ArrayList<>();
+        byDay.forEach((day, counts) -> days.add(new DayStats(day, sum(counts), toMap(counts))));
+        return new DashboardStats(sum(byStatus), toMap(byStatus), doctors, days);
+    }
+
+    private boolean triggersInstalled() {
+        String version = jdbcTemplate.query("SELECT obj_description(p.oid, 'pg_proc') FROM pg_proc p"
+                + " WHERE p.proname = 'appointment_daily_stats_apply'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        Integer triggers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_trigger"
+                + " WHERE tgrelid = 'appointments'::regclass AND tgname LIKE 'trg_appointment_daily_stats_%'",
+                Integer.class);
+        return TRIGGERS_VERSION.equals(version) && triggers != null && triggers == TRIGGERS.length;
+    }
+
+    /**
+     * Bloquea a los escritores de citas (y a otro nodo que instale a la vez), no
+     * a los lectores: cada cambio confirma antes del conteo (y queda incluido en
+     * él) o después (y lo suma su trigger), nunca las dos cosas.
+     */
+    private void lockWriters() {
+        jdbcTemplate.execute("LOCK TABLE appointments IN SHARE ROW EXCLUSIVE MODE");
+    }
+
+    private int recount() {
+        jdbcTemplate.update("DELETE FROM appointment_daily_stats");
+        jdbcTemplate.update("DELETE FROM appointment_doctor_stats");
+        jdbcTemplate.update("INSERT INTO appointment_doctor_stats (doctor_id, status, stripe, total, updated_at)"
+                + " SELECT doctor_id, status, 0, COUNT(*), now() FROM appointments GROUP BY doctor_id, status");
+        return jdbcTemplate.update("INSERT INTO appointment_daily_stats"
+                + " (doctor_id, day, status, stripe, total, updated_at)"
+                + " SELECT doctor_id, CAST(date_time AS date), status, 0, COUNT(*), now() FROM appointments"
+                + " GROUP BY doctor_id, CAST(date_time AS date), status");
+    }
+
+    private static String upserts(String changes) {
+        return UPSERT_DAILY.formatted(changes) + " " + UPSERT_DOCTOR.formatted(changes);
+    }
+
+    private static long sum(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static Map<AppointmentStatus, Long> toMap(long[] counts) {
+        Map<AppointmentStatus, Long> map = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : STATUSES) {
+            map.put(status, counts[status.ordinal()]);
+        }
+        return map;
+    }
+}
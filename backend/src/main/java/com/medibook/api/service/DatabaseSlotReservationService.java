@@ -0,0 +1,129 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static com.medibook.api.model.Appointment.MAX_DURATION_MINUTES;
+
+/**
+ * Reserva de horarios para despliegues con varias instancias.
+ * No mantiene estado en memoria: toma un advisory lock transaccional de
+ * Postgres por doctor y día, con lo que las reservas concurrentes de ese día
+ * se serializan entre nodos, y luego busca superposiciones con una consulta
+ * por rango sobre {@code idx_appointments_doctor_datetime}. Se bloquean todos
+ * los días que toca esa consulta (el día anterior si el turno empieza cerca de
+ * medianoche, el siguiente si termina después), siempre en orden de fecha para
+ * que dos reservas no se bloqueen entre sí. Los locks se liberan solos al
+ * terminar la transacción. La restricción única
+ * {@code uk_appointments_doctor_active_slot} queda como red de seguridad.
+ */
+@Service
+@ConditionalOnProperty(name = "medibook.booking.reservation-mode", havingValue = "cluster")
+public class DatabaseSlotReservationService implements SlotReservationService {
+
+    private final AppointmentRepository appointmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatabaseSlotReservationService(AppointmentRepository appointmentRepository, JdbcTemplate jdbcTemplate) {
+        this.appointmentRepository = appointmentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean tryReserve(Long doctorId, LocalDateTime start, int durationMinutes) {
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        // Sólo pueden superponerse las citas que empiezan hasta MAX_DURATION antes
+        LocalDateTime lookback = start.minusMinutes(MAX_DURATION_MINUTES);
+        lockDays(doctorId, lookback.toLocalDate(), end.minusMinutes(1).toLocalDate());
+
+        return appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(doctorId, lookback, end).stream()
+                .noneMatch(slot -> slot.overlaps(start, end));
+    }
+
+    /**
+     * Bloquea de una vez todos los días del lote (en el mismo orden que las
+     * reservas sueltas: doctor y fecha) y trae sus horarios ocupados con una
+     * sola consulta por rango. Con los locks tomados esa consulta no puede
+     * quedar vieja, así que cada turno se verifica en memoria.
+     */
+    @Override
+    public BatchReservation openBatch(Collection<BookedSlot> requested) {
+        if (requested.isEmpty()) {
+            return this::tryReserve;
+        }
+        SortedSet<DayLock> locks = new TreeSet<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (BookedSlot slot : requested) {
+            LocalDateTime lookback = slot.dateTime().minusMinutes(MAX_DURATION_MINUTES);
+            LocalDateTime end = slot.endTime();
+            for (LocalDate day = lookback.toLocalDate(); !day.isAfter(end.minusMinutes(1).toLocalDate());
+                    day = day.plusDays(1)) {
+                locks.add(new DayLock(slot.doctorId(), day));
+            }
+            from = from == null || lookback.isBefore(from) ? lookback : from;
+            to = to == null || end.isAfter(to) ? end : to;
+        }
+        locks.forEach(lock -> lockDays(lock.doctorId(), lock.day(), lock.day()));
+
+        Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> booked = new HashMap<>();
+        Set<Long> doctorIds = locks.stream().map(DayLock::doctorId).collect(Collectors.toSet());
+        for (BookedSlot slot : appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(doctorIds,
+                from, to)) {
+            // Datos previos podrían tener dos citas con el mismo inicio: se conserva la más larga
+            booked.computeIfAbsent(slot.doctorId(), id -> new TreeMap<>())
+                    .merge(slot.dateTime(), slot.endTime(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+
+        return (doctorId, start, durationMinutes) -> {
+            LocalDateTime end = start.plusMinutes(durationMinutes);
+            NavigableMap<LocalDateTime, LocalDateTime> intervals = booked.computeIfAbsent(doctorId,
+                    id -> new TreeMap<>());
+            boolean overlaps = intervals.subMap(start.minusMinutes(MAX_DURATION_MINUTES), true, end, false)
+                    .values().stream()
+                    .anyMatch(intervalEnd -> intervalEnd.isAfter(start));
+            if (overlaps) {
+                return false;
+            }
+            // Lo aceptado cuenta para los turnos siguientes del mismo lote
+            intervals.put(start, end);
+            return true;
+        };
+    }
+
+    private void lockDays(Long doctorId, LocalDate first, LocalDate last) {
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", rs -> null,
+                    doctorId.intValue(), (int) day.toEpochDay());
+        }
+    }
+
+    private record DayLock(Long doctorId, LocalDate day) implements Comparable<DayLock> {
+
+        @Override
+        public int compareTo(DayLock other) {
+            int byDoctor = doctorId.compareTo(other.doctorId);
+            return byDoctor != 0 ? byDoctor : day.compareTo(other.day);
+        }
+    }
+
+    @Override
+    public void releaseAfterCommit(Long doctorId, LocalDateTime start, int durationMinutes) {
+        // El horario se libera al cambiar el estado de la cita
+    }
+}
@@ -0,0 +1,138 @@
+package com.medibook.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.api.cache.TtlCache;
+import com.medibook.api.dto.DoctorResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché del catálogo de doctores. El listado completo se guarda junto con su
+ * JSON ya serializado, así {@code GET /api/doctors} responde sin pasar por JPA
+ * ni por Jackson; cada doctor se guarda además por ID.
+ * <p>
+ * Altas, modificaciones y bajas invalidan la caché al confirmar. Cada
+ * invalidación incrementa una versión y una carga sólo se guarda si la versión
+ * no cambió mientras consultaba, de modo que una lectura concurrente con una
+ * escritura no deja datos viejos. Los aciertos y fallos se publican como
+ * métricas {@code medibook.cache.gets}.
+ */
+@Component
+public class DoctorCatalogCache {
+
+    private static final String CATALOG_KEY = "all";
+
+    private final ObjectMapper objectMapper;
+    private final TtlCache<String, Catalog> catalog;
+    private final TtlCache<Long, DoctorResponse> byId;
+    private final AtomicLong version = new AtomicLong();
+
+    public DoctorCatalogCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${medibook.doctor-cache.max-entries:1000}") int maxEntries,
+            @Value("${medibook.doctor-cache.ttl:PT10M}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.catalog = new TtlCache<>(1, ttl);
+        this.byId = new TtlCache<>(maxEntries, ttl);
+        register(meterRegistry, "doctor-catalog", catalog);
+        register(meterRegistry, "doctor-by-id", byId);
+    }
+
+    /**
+     * JSON del catálogo completo, cargado con {@code loader} si hace falta.
+     */
+    public byte[] catalogJson(Supplier<List<DoctorResponse>> loader) {
+        return catalog(loader).json();
+    }
+
+    public List<DoctorResponse> catalogList(Supplier<List<DoctorResponse>> loader) {
+        return catalog(loader).doctors();
+    }
+
+    public DoctorResponse get(Long id, Supplier<DoctorResponse> loader) {
+        long seen = version.get();
+        DoctorResponse cached = byId.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        DoctorResponse loaded = loader.get();
+        store(byId, id, loaded, seen);
+        return loaded;
+    }
+
+    /**
+     * Invalida el doctor y el catálogo cuando la transacción actual confirma, o
+     * de inmediato si no hay transacción.
+     */
+    public void invalidateAfterCommit(Long doctorId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(doctorId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(doctorId);
+            }
+        });
+    }
+
+    public void invalidate(Long doctorId) {
+        version.incrementAndGet();
+        byId.remove(doctorId);
+        catalog.remove(CATALOG_KEY);
+    }
+
+    private Catalog catalog(Supplier<List<DoctorResponse>> loader) {
+        long seen = version.get();
+        Catalog cached = catalog.get(CATALOG_KEY);
+        if (cached != null) {
+            return cached;
+        }
+        List<DoctorResponse> doctors = List.copyOf(loader.get());
+        Catalog loaded;
+        try {
+            loaded = new Catalog(doctors, objectMapper.writeValueAsBytes(doctors));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo de doctores", e);
+        }
+        store(catalog, CATALOG_KEY, loaded, seen);
+        return loaded;
+    }
+
+    private <K, V> void store(TtlCache<K, V> cache, K key, V value, long seen) {
+        if (version.get() != seen) {
+            return;
+        }
+        cache.putIfAbsent(key, value);
+        // Una invalidación entre el chequeo y el guardado deja la versión movida
+        if (version.get() != seen) {
+            cache.remove(key, value);
+        }
+    }
+
+    private static void register(MeterRegistry registry, String name, TtlCache<?, ?> cache) {
+        FunctionCounter.builder("medibook.cache.gets", cache, TtlCache::hits)
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("medibook.cache.gets", cache, TtlCache::misses)
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        Gauge.builder("medibook.cache.size", cache, TtlCache::size)
+                .tags("cache", name)
+                .register(registry);
+    }
+
+    private record Catalog(List<DoctorResponse> doctors, byte[] json) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.medibook.api.service;
+
+import com.medibook.api.model.Availability;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AvailabilityRepository;
+import com.medibook.api.repository.DoctorRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Índice en memoria con el {@link WeeklySchedule} de cada doctor. Se precarga al
+ * arrancar y se invalida cuando cambia la disponibilidad, así la validación de
+ * horarios al reservar no consulta la base de datos. Los doctores sin
+ * disponibilidad semanal cargada usan su {@code workStart/workEnd} todos los días.
+ * <p>
+ * No hay vencimiento, así que una carga que leyó la disponibilidad vieja no
+ * puede guardarse después de la invalidación: como en {@link AgendaCache}, cada
+ * doctor tiene una versión (por franja de hash) que la invalidación incrementa,
+ * y una carga sólo se guarda si la versión no cambió mientras consultaba.
+ */
+@Component
+public class DoctorScheduleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorScheduleIndex.class);
+
+    private final AvailabilityRepository availabilityRepository;
+    private final DoctorRepository doctorRepository;
+    private static final int VERSION_STRIPES = 1024;
+
+    private final ConcurrentHashMap<Long, WeeklySchedule> schedules = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public DoctorScheduleIndex(AvailabilityRepository availabilityRepository, DoctorRepository doctorRepository) {
+        this.availabilityRepository = availabilityRepository;
+        this.doctorRepository = doctorRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long[] seen = new long[VERSION_STRIPES];
+        for (int stripe = 0; stripe < VERSION_STRIPES; stripe++) {
+            seen[stripe] = versions.get(stripe);
+        }
+
+        Map<Long, WeeklySchedule.Builder> builders = new HashMap<>();
+        for (Availability availability : availabilityRepository.findAllWithDoctor()) {
+            builders.computeIfAbsent(availability.getDoctor().getId(), id -> WeeklySchedule.builder())
+                    .add(availability.getDayOfWeek(), availability.getStartTime(), availability.getEndTime());
+        }
+        for (Doctor doctor : doctorRepository.findAll()) {
+            WeeklySchedule.Builder builder = builders.get(doctor.getId());
+            store(doctor.getId(), builder != null ? builder.build() : fallback(doctor),
+                    seen[stripe(doctor.getId())]);
+        }
+        logger.info("Horarios precargados para {} doctores", schedules.size());
+    }
+
+    /**
+     * Horario semanal del doctor; sólo consulta la base si no estaba en el índice.
+     */
+    public WeeklySchedule get(Doctor doctor) {
+        long version = versions.get(stripe(doctor.getId()));
+        WeeklySchedule schedule = schedules.get(doctor.getId());
+        if (schedule != null) {
+            return schedule;
+        }
+        WeeklySchedule loaded = load(doctor);
+        store(doctor.getId(), loaded, version);
+        return loaded;
+    }
+
+    /**
+     * Descarta el horario del doctor cuando la transacción actual confirma, para
+     * que la próxima consulta lo reconstruya con los datos nuevos.
+     */
+    public void invalidateAfterCommit(Long doctorId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(doctorId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(doctorId);
+            }
+        });
+    }
+
+    public void invalidate(Long doctorId) {
+        versions.incrementAndGet(stripe(doctorId));
+        schedules.remove(doctorId);
+    }
+
+    private void store(Long doctorId, WeeklySchedule schedule, long version) {
+        int stripe = stripe(doctorId);
+        if (versions.get(stripe) != version) {
+            return;
+        }
+        schedules.putIfAbsent(doctorId, schedule);
+        // Una invalidación entre el chequeo y el guardado deja la versión movida
+        if (versions.get(stripe) != version) {
+            schedules.remove(doctorId, schedule);
+        }
+    }
+
+    private static int stripe(Long doctorId) {
+        return (doctorId.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPES;
+    }
+
+    private WeeklySchedule load(Doctor doctor) {
+        List<Availability> availabilities = availabilityRepository.findByDoctorId(doctor.getId());
+        if (availabilities.isEmpty()) {
+            return fallback(doctor);
+        }
+        WeeklySchedule.Builder builder = WeeklySchedule.builder();
+        for (Availability availability : availabilities) {
+            builder.add(availability.getDayOfWeek(), availability.getStartTime(), availability.getEndTime());
+        }
+        return builder.build();
+    }
+
+    private static WeeklySchedule fallback(Doctor doctor) {
+        if (doctor.getWorkStart() == null || doctor.getWorkEnd() == null) {
+            return WeeklySchedule.EMPTY;
+        }
+        return WeeklySchedule.everyDay(doctor.getWorkStart(), doctor.getWorkEnd());
+    }
+}
@@ -2,6 +2,7 @@ package com.medibook.api.service;
 
 import com.medibook.api.dto.DoctorRequest;
 import com.medibook.api.dto.DoctorResponse;
+import com.medibook.api.dto.AvailabilityInterval;
 import java.util.List;
 
 public interface DoctorService {
@@ -11,7 +12,13 @@ public interface DoctorService {
 
     List<DoctorResponse> getAll();
 
+    byte[] getAllJson();
+
     DoctorResponse update(Long id, DoctorRequest request);
 
     void delete(Long id);
+
+    List<AvailabilityInterval> getAvailability(Long id);
+
+    List<AvailabilityInterval> replaceAvailability(Long id, List<AvailabilityInterval> intervals);
 }
@@ -2,11 +2,18 @@ package com.medibook.api.service;
 
 import com.medibook.api.dto.DoctorRequest;
 import com.medibook.api.dto.DoctorResponse;
+import com.medibook.api.dto.AvailabilityInterval;
+import com.medibook.api.model.Availability;
 import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AvailabilityRepository;
 import com.medibook.api.repository.DoctorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +30,9 @@ public class DoctorServiceImpl implements DoctorService {
     private static final Logger logger = LoggerFactory.getLogger(DoctorServiceImpl.class);
 
     private final DoctorRepository doctorRepository;
+    private final AvailabilityRepository availabilityRepository;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final DoctorCatalogCache doctorCatalogCache;
 
     /**
      * Crea un nuevo perfil de doctor.
@@ -34,6 +44,7 @@ public class DoctorServiceImpl implements DoctorService {
     public DoctorResponse create(DoctorRequest request) {
         Doctor doctor = mapToEntity(request);
         Doctor savedDoctor = doctorRepository.save(doctor);
+        doctorCatalogCache.invalidateAfterCommit(savedDoctor.getId());
         logger.info("Doctor creado: {} {}", savedDoctor.getFirstName(), savedDoctor.getLastName());
         return mapToResponse(savedDoctor);
     }
@@ -46,9 +57,9 @@ public class DoctorServiceImpl implements DoctorService {
      */
     @Override
     public DoctorResponse getById(Long id) {
-        Doctor doctor = doctorRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-        return mapToResponse(doctor);
+        return doctorCatalogCache.get(id, () -> doctorRepository.findById(id)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new RuntimeException("Doctor not found")));
     }
 
     /**
@@ -58,6 +69,20 @@ public class DoctorServiceImpl implements DoctorService {
      */
     @Override
     public List<DoctorResponse> getAll() {
+        return doctorCatalogCache.catalogList(this::loadAll);
+    }
+
+    /**
+     * Listado de todos los doctores ya serializado como JSON.
+     * 
+     * @return Cuerpo JSON del listado.
+     */
+    @Override
+    public byte[] getAllJson() {
+        return doctorCatalogCache.catalogJson(this::loadAll);
+    }
+
+    private List<DoctorResponse> loadAll() {
         return doctorRepository.findAll().stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
@@ -83,6 +108,7 @@ public class DoctorServiceImpl implements DoctorService {
         existingDoctor.setConsultationPrice(request.consultationPrice());
 
         Doctor updatedDoctor = doctorRepository.save(existingDoctor);
+        doctorCatalogCache.invalidateAfterCommit(id);
         logger.info("Doctor actualizado ID: {}", id);
         return mapToResponse(updatedDoctor);
     }
@@ -98,9 +124,67 @@ public class DoctorServiceImpl implements DoctorService {
             throw new RuntimeException("Doctor not found");
         }
         doctorRepository.deleteById(id);
+        doctorScheduleIndex.invalidateAfterCommit(id);
+        doctorCatalogCache.invalidateAfterCommit(id);
         logger.warn("Doctor eliminado ID: {}", id);
     }
 
+    /**
+     * Disponibilidad semanal cargada para el doctor.
+     * 
+     * @param id ID del doctor.
+     * @return Intervalos de atención por día de la semana.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailabilityInterval> getAvailability(Long id) {
+        if (!doctorRepository.existsById(id)) {
+            throw new RuntimeException("Doctor not found");
+        }
+        return availabilityRepository.findByDoctorId(id).stream()
+                .map(a -> new AvailabilityInterval(a.getDayOfWeek(), a.getStartTime(), a.getEndTime()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Reemplaza la disponibilidad semanal del doctor. Una lista vacía vuelve al
+     * horario general {@code workStart/workEnd}.
+     * 
+     * @param id        ID del doctor.
+     * @param intervals Intervalos de atención; se admiten turnos partidos.
+     * @return Disponibilidad guardada.
+     */
+    @Override
+    @Transactional
+    public List<AvailabilityInterval> replaceAvailability(Long id, List<AvailabilityInterval> intervals) {
+        Doctor doctor = doctorRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+
+        for (AvailabilityInterval interval : intervals) {
+            // Un fin en 00:00 es medianoche, como en WeeklySchedule
+            if (interval.dayOfWeek() == null || interval.startTime() == null || interval.endTime() == null
+                    || !(interval.startTime().isBefore(interval.endTime())
+                            || interval.endTime().equals(LocalTime.MIDNIGHT))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Intervalo inválido: se requiere día y una hora de inicio anterior a la de fin.");
+            }
+        }
+
+        availabilityRepository.deleteByDoctorId(id);
+        availabilityRepository.saveAll(intervals.stream()
+                .map(interval -> Availability.builder()
+                        .doctor(doctor)
+                        .dayOfWeek(interval.dayOfWeek())
+                        .startTime(interval.startTime())
+                        .endTime(interval.endTime())
+                        .build())
+                .collect(Collectors.toList()));
+        doctorScheduleIndex.invalidateAfterCommit(id);
+
+        logger.info("Disponibilidad actualizada para doctor ID: {} ({} intervalos)", id, intervals.size());
+        return intervals;
+    }
+
     private Doctor mapToEntity(DoctorRequest request) {
         return Doctor.builder()
                 .firstName(request.firstName())
@@ -0,0 +1,112 @@
+package com.medibook.api.service;
+
+import com.medibook.api.cache.TtlCache;
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resuelve los reintentos de creación de citas que llegan con la cabecera
+ * {@code Idempotency-Key}. La primera solicitud ejecuta la reserva y su
+ * resultado queda en memoria; las repeticiones con la misma clave y el mismo
+ * cuerpo reciben esa respuesta sin volver a validar ni tocar la base de datos.
+ * Si un reintento llega mientras la primera sigue en curso, espera su resultado
+ * a lo sumo {@code medibook.idempotency.wait-timeout} y si no responde 409, para
+ * no retener un hilo de Tomcat sin límite. Las solicitudes que fallan (por
+ * cualquier {@link Throwable}) no se recuerdan, así que pueden reintentarse.
+ */
+@Component
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final TtlCache<String, Entry> results;
+    private final Duration waitTimeout;
+
+    public IdempotencyService(
+            @Value("${medibook.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${medibook.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${medibook.idempotency.wait-timeout:PT30S}") Duration waitTimeout) {
+        this.results = new TtlCache<>(maxEntries, ttl);
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por clave.
+     *
+     * @param scope       Espacio de la clave (usuario y endpoint), para que dos
+     *                    clientes no compartan respuestas.
+     * @param key         Valor de {@code Idempotency-Key}; si es null se ejecuta sin más.
+     * @param fingerprint Cuerpo de la solicitud, que debe repetirse igual.
+     * @param operation   Creación de la cita.
+     * @return La respuesta original de la primera ejecución exitosa.
+     */
+    public AppointmentResponse execute(String scope, String key, Object fingerprint,
+            Supplier<AppointmentResponse> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "La cabecera Idempotency-Key debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres.");
+        }
+
+        String cacheKey = scope + "|" + key;
+        Entry entry = new Entry(fingerprint, new CompletableFuture<>());
+        Entry existing = results.putIfAbsent(cacheKey, entry);
+        if (existing != null) {
+            if (!Objects.equals(existing.fingerprint(), fingerprint)) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "La clave de idempotencia ya se usó con una solicitud distinta.");
+            }
+            logger.info("Reintento idempotente resuelto desde memoria: {}", cacheKey);
+            return await(existing.response());
+        }
+
+        try {
+            AppointmentResponse response = operation.get();
+            entry.response().complete(response);
+            return response;
+        } catch (Throwable e) {
+            // También ante un Error: si el futuro queda sin completar, los reintentos esperan en vano
+            results.remove(cacheKey, entry);
+            entry.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private AppointmentResponse await(CompletableFuture<AppointmentResponse> response) {
+        try {
+            return response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "La solicitud original con esta clave sigue en curso; reintente más tarde.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Solicitud interrumpida.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "La solicitud original con esta clave falló; reintente.");
+        }
+    }
+
+    private record Entry(Object fingerprint, CompletableFuture<AppointmentResponse> response) {
+    }
+}
@@ -2,6 +2,16 @@ package com.medibook.api.service;
 
 import com.medibook.api.model.Appointment;
 
+import java.io.OutputStream;
+
 public interface PdfService {
     byte[] generatePrescription(Appointment appointment);
+
+    void writePrescription(Appointment appointment, OutputStream out);
+
+    /**
+     * Huella de todo lo que aparece en la receta de la cita (y del diseño). Dos
+     * citas con la misma huella producen el mismo PDF.
+     */
+    String prescriptionVersion(Appointment appointment);
 }
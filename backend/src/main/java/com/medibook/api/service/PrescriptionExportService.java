@@ -0,0 +1,172 @@
+package com.medibook.api.service;
+
+import com.medibook.api.model.Appointment;
+import com.medibook.api.repository.AppointmentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exporta en un ZIP las recetas de las citas completadas de un doctor o de un
+ * paciente en un período. Los PDF se generan en paralelo en un pool propio de
+ * tamaño fijo y se escriben en el ZIP a medida que terminan, no en el orden de
+ * las citas.
+ * <p>
+ * Cada exportación mantiene a lo sumo {@code max-in-flight} recetas entre
+ * encoladas, en curso y terminadas sin escribir, y carga las citas en lotes de
+ * ese tamaño: la memoria usada no depende de cuántas recetas tenga el período.
+ */
+@Service
+public class PrescriptionExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrescriptionExportService.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final PdfService pdfService;
+    private final ThreadPoolExecutor executor;
+    private final int maxInFlight;
+
+    public PrescriptionExportService(AppointmentRepository appointmentRepository, PdfService pdfService,
+            @Value("${medibook.prescription-export.threads:2}") int threads,
+            @Value("${medibook.prescription-export.max-in-flight:8}") int maxInFlight) {
+        this.appointmentRepository = appointmentRepository;
+        this.pdfService = pdfService;
+        this.maxInFlight = maxInFlight;
+        AtomicInteger sequence = new AtomicInteger();
+        // La cola no necesita límite propio: cada exportación acota lo que encola
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "medibook-pdf-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * IDs de las citas completadas a exportar, ordenados por fecha. Valida los
+     * parámetros antes de comprometer la respuesta: una vez que empieza el
+     * streaming ya no se puede devolver un código de error.
+     *
+     * @param doctorId  ID del doctor, o null si se filtra por paciente.
+     * @param patientId ID del paciente, o null si se filtra por doctor.
+     * @param from      Inicio del período (inclusive).
+     * @param to        Fin del período (exclusivo).
+     */
+    public List<Long> findCompletedIds(Long doctorId, Long patientId, LocalDateTime from, LocalDateTime to) {
+        if ((doctorId == null) == (patientId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Error: Indique 'doctorId' o 'patientId' (sólo uno).");
+        }
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Error: 'from' debe ser anterior a 'to'.");
+        }
+        return doctorId != null
+                ? appointmentRepository.findCompletedIdsByDoctorId(doctorId, from, to)
+                : appointmentRepository.findCompletedIdsByPatientId(patientId, from, to);
+    }
+
+    /**
+     * Genera las recetas de las citas indicadas y las escribe en {@code out} como
+     * ZIP. El stream de salida no se cierra.
+     *
+     * @return Cantidad de recetas exportadas.
+     */
+    public int writeZip(List<Long> appointmentIds, OutputStream out) throws IOException {
+        ExecutorCompletionService<RenderedPrescription> completion = new ExecutorCompletionService<>(executor);
+        Set<Future<RenderedPrescription>> pending = new HashSet<>();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        int written = 0;
+        try {
+            for (int start = 0; start < appointmentIds.size(); start += maxInFlight) {
+                List<Long> batch = appointmentIds.subList(start, Math.min(start + maxInFlight, appointmentIds.size()));
+                for (Appointment appointment : appointmentRepository.findWithPatientAndDoctorByIdIn(batch)) {
+                    if (pending.size() >= maxInFlight) {
+                        writeEntry(zip, next(completion, pending));
+                        written++;
+                    }
+                    pending.add(completion.submit(() -> render(appointment)));
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeEntry(zip, next(completion, pending));
+                written++;
+            }
+            zip.finish();
+            zip.flush();
+        } finally {
+            // Si la escritura falló (p. ej. el cliente cortó), no seguir generando
+            pending.forEach(future -> future.cancel(true));
+        }
+        logger.info("Exportación de recetas: {} PDF", written);
+        return written;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private RenderedPrescription render(Appointment appointment) {
+        String name = "receta_" + appointment.getDateTime().toLocalDate() + "_" + appointment.getId() + ".pdf";
+        return new RenderedPrescription(name, pdfService.generatePrescription(appointment));
+    }
+
+    private static RenderedPrescription next(ExecutorCompletionService<RenderedPrescription> completion,
+            Set<Future<RenderedPrescription>> pending) throws IOException {
+        try {
+            Future<RenderedPrescription> done = completion.take();
+            pending.remove(done);
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportación de recetas interrumpida");
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo generar una receta", e.getCause());
+        }
+    }
+
+    /**
+     * Los PDF ya vienen comprimidos: se guardan sin comprimir (STORED), lo que
+     * exige tamaño y CRC antes de escribir la entrada.
+     */
+    private static void writeEntry(ZipOutputStream zip, RenderedPrescription prescription) throws IOException {
+        byte[] content = prescription.content();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        ZipEntry entry = new ZipEntry(prescription.name());
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private record RenderedPrescription(String name, byte[] content) {
+    }
+}
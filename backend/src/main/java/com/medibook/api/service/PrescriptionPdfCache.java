@@ -0,0 +1,282 @@
+package com.medibook.api.service;
+
+import com.medibook.api.cache.TtlCache;
+import com.medibook.api.model.Appointment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recetas PDF ya generadas, por cita y versión. La versión es la huella de los
+ * datos impresos ({@link PdfService#prescriptionVersion}), así que un cambio de
+ * diagnóstico o tratamiento genera otra clave y la receta vieja deja de usarse
+ * sin invalidación explícita.
+ * <p>
+ * Hay dos niveles: uno en memoria, acotado en entradas, para las descargas
+ * recientes, y uno en disco con una copia por cita, que se sirve con sendfile
+ * (ver {@code AppointmentController}).
+ * <p>
+ * Tomcat abre el archivo recién al terminar la petición, así que entre
+ * {@link #get} y el envío el archivo no puede desaparecer. Por eso cada versión
+ * tiene su propio nombre y nunca se reescribe con otro contenido, cada acierto en
+ * disco renueva la fecha de modificación y sólo se borran archivos que nadie
+ * pidió durante el período de gracia: primero las versiones reemplazadas y
+ * después, si el disco sigue sobre el máximo, los de uso más antiguo.
+ */
+@Component
+public class PrescriptionPdfCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrescriptionPdfCache.class);
+
+    private static final String EXTENSION = ".pdf";
+
+    private final PdfService pdfService;
+    private final TtlCache<PdfKey, byte[]> memory;
+    private final Path directory;
+    private final long diskMaxBytes;
+    private final long deleteGraceMillis;
+    private final Counter diskHits;
+    private final Counter diskMisses;
+
+    public PrescriptionPdfCache(PdfService pdfService, MeterRegistry meterRegistry,
+            @Value("${medibook.pdf-cache.max-entries:2000}") int maxEntries,
+            @Value("${medibook.pdf-cache.ttl:PT1H}") Duration ttl,
+            @Value("${medibook.pdf-cache.dir:}") String dir,
+            @Value("${medibook.pdf-cache.disk-max-size:512MB}") DataSize diskMaxSize,
+            @Value("${medibook.pdf-cache.delete-grace:PT10M}") Duration deleteGrace) {
+        this.pdfService = pdfService;
+        this.memory = new TtlCache<>(maxEntries, ttl);
+        this.directory = createDirectory(dir);
+        this.diskMaxBytes = diskMaxSize.toBytes();
+        this.deleteGraceMillis = deleteGrace.toMillis();
+
+        FunctionCounter.builder("medibook.cache.gets", memory, TtlCache::hits)
+                .tags("cache", "prescription-pdf", "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("medibook.cache.gets", memory, TtlCache::misses)
+                .tags("cache", "prescription-pdf", "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("medibook.cache.size", memory, TtlCache::size)
+                .tags("cache", "prescription-pdf")
+                .register(meterRegistry);
+        this.diskHits = Counter.builder("medibook.cache.gets")
+                .tags("cache", "prescription-pdf-disk", "result", "hit")
+                .register(meterRegistry);
+        this.diskMisses = Counter.builder("medibook.cache.gets")
+                .tags("cache", "prescription-pdf-disk", "result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Receta de la cita desde memoria, desde disco o recién generada. Al no estar
+     * en caché se genera completa en un {@code byte[]}: es lo que guarda el nivel
+     * en memoria y lo que se escribe en disco.
+     *
+     * @param appointment Cita completada, con doctor y paciente cargados.
+     */
+    public Prescription get(Appointment appointment) {
+        PdfKey key = new PdfKey(appointment.getId(), pdfService.prescriptionVersion(appointment));
+        byte[] cached = memory.get(key);
+        if (cached != null) {
+            return Prescription.inMemory(cached);
+        }
+
+        if (directory != null) {
+            Path file = fileFor(key);
+            try {
+                // Recién pedido: el recorte no lo borra mientras se envía
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                long size = Files.size(file);
+                diskHits.increment();
+                return Prescription.onDisk(file, size);
+            } catch (NoSuchFileException e) {
+                diskMisses.increment();
+            } catch (IOException e) {
+                logger.warn("No se pudo leer la receta en caché {}: {}", file, e.getMessage());
+            }
+        }
+
+        byte[] rendered = pdfService.generatePrescription(appointment);
+        memory.putIfAbsent(key, rendered);
+        store(key, rendered);
+        return Prescription.inMemory(rendered);
+    }
+
+    /**
+     * Borra las versiones reemplazadas y, si el disco sigue sobre el máximo, los
+     * archivos de uso más antiguo. Nunca borra archivos usados dentro del período
+     * de gracia, que pueden estar por enviarse.
+     */
+    @Scheduled(fixedDelayString = "${medibook.pdf-cache.disk-trim-interval:PT10M}")
+    public void trimDisk() {
+        if (directory == null) {
+            return;
+        }
+        List<CachedFile> files = new ArrayList<>();
+        Map<String, Long> latestByAppointment = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                try {
+                    CachedFile cachedFile = new CachedFile(file, Files.size(file),
+                            Files.getLastModifiedTime(file).toMillis());
+                    files.add(cachedFile);
+                    latestByAppointment.merge(cachedFile.appointmentId(), cachedFile.usedAt(), Math::max);
+                    total += cachedFile.size();
+                } catch (NoSuchFileException e) {
+                    // Borrada por otra instancia mientras se listaba
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudo recorrer la caché de recetas: {}", e.getMessage());
+            return;
+        }
+
+        long graceLimit = System.currentTimeMillis() - deleteGraceMillis;
+        files.sort(Comparator.comparingLong(CachedFile::usedAt));
+        List<CachedFile> current = new ArrayList<>();
+        int deleted = 0;
+        for (CachedFile file : files) {
+            boolean superseded = file.usedAt() < latestByAppointment.get(file.appointmentId());
+            if (superseded && file.usedAt() < graceLimit) {
+                if (deleteUnused(file.path(), graceLimit)) {
+                    total -= file.size();
+                    deleted++;
+                }
+            } else {
+                current.add(file);
+            }
+        }
+        for (CachedFile file : current) {
+            if (total <= diskMaxBytes || file.usedAt() >= graceLimit) {
+                break;
+            }
+            if (deleteUnused(file.path(), graceLimit)) {
+                total -= file.size();
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Caché de recetas recortada: {} archivos borrados", deleted);
+        }
+    }
+
+    /**
+     * Escribe la receta en disco de forma atómica con el nombre de su versión. Las
+     * versiones anteriores de la misma cita quedan para el recorte, que las borra
+     * pasado el período de gracia. Un error de disco sólo se registra: la receta
+     * ya se generó.
+     */
+    private void store(PdfKey key, byte[] content) {
+        if (directory == null) {
+            return;
+        }
+        Path target = fileFor(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, key.appointmentId() + "-", ".tmp");
+            Files.write(temp, content);
+            // Misma versión, mismo contenido: reemplazar un archivo existente no cambia lo que se envía
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar la receta {} en disco: {}", key.appointmentId(), e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private Path fileFor(PdfKey key) {
+        return directory.resolve(key.appointmentId() + "-" + key.version() + EXTENSION);
+    }
+
+    private static Path createDirectory(String dir) {
+        Path path = dir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "medibook-prescriptions")
+                : Path.of(dir);
+        try {
+            return Files.createDirectories(path);
+        } catch (IOException e) {
+            logger.warn("Caché de recetas en disco deshabilitada, no se pudo crear {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Borra el archivo si sigue sin usarse desde antes del límite: un acierto
+     * posterior al listado lo conserva.
+     */
+    private static boolean deleteUnused(Path file, long graceLimit) {
+        try {
+            if (Files.getLastModifiedTime(file).toMillis() >= graceLimit) {
+                return false;
+            }
+            return Files.deleteIfExists(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record PdfKey(Long appointmentId, String version) {
+    }
+
+    private record CachedFile(Path path, long size, long usedAt) {
+
+        String appointmentId() {
+            String name = path.getFileName().toString();
+            return name.substring(0, name.indexOf('-'));
+        }
+    }
+
+    /**
+     * Receta lista para enviar: el contenido en memoria o el archivo en disco.
+     *
+     * @param content Bytes del PDF, o null si está en disco.
+     * @param file    Archivo del PDF, o null si está en memoria.
+     * @param size    Tamaño en bytes.
+     */
+    public record Prescription(byte[] content, Path file, long size) {
+
+        static Prescription inMemory(byte[] content) {
+            return new Prescription(content, null, content.length);
+        }
+
+        static Prescription onDisk(Path file, long size) {
+            return new Prescription(null, file, size);
+        }
+    }
+}
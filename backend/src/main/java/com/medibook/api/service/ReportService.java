@@ -0,0 +1,9 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.ReportDTO.RangeReport;
+
+import java.time.LocalDate;
+
+public interface ReportService {
+    RangeReport doctorReport(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,321 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.ReportDTO.DoctorReport;
+import com.medibook.api.dto.ReportDTO.RangeReport;
+import com.medibook.api.event.AppointmentChangedEvent;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.ReportRow;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reportes de facturación y ocupación por doctor sobre períodos arbitrarios.
+ * <p>
+ * Las citas se cargan una vez en una instantánea columnar de arreglos
+ * primitivos (doctor, minuto de inicio, duración, estado) ordenada por fecha;
+ * un período es un rango contiguo que se ubica con búsqueda binaria y se suma en
+ * paralelo con fork/join. La instantánea se carga en segundo plano al arrancar.
+ * Los cambios en las citas la marcan como vieja; pasada
+ * {@code medibook.reports.snapshot-max-age} se recarga en segundo plano mientras
+ * los reportes siguen usando la anterior. La recarga lee todas las citas, no
+ * sólo las que cambiaron. Los datos de los doctores (precio,
+ * horario) se leen en cada reporte.
+ */
+@Service
+public class ReportServiceImpl implements ReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportServiceImpl.class);
+
+    // Por debajo de esta cantidad de citas conviene sumar en un solo hilo
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+    private static final byte COMPLETED = (byte) AppointmentStatus.COMPLETED.ordinal();
+    private static final byte CANCELLED = (byte) AppointmentStatus.CANCELLED.ordinal();
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskExecutor taskExecutor;
+    private final long maxAgeNanos;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+    private volatile boolean stale = true;
+
+    public ReportServiceImpl(AppointmentRepository appointmentRepository, DoctorRepository doctorRepository,
+            DoctorScheduleIndex doctorScheduleIndex, PlatformTransactionManager transactionManager,
+            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+            @Value("${medibook.reports.snapshot-max-age:PT1M}") Duration maxAge) {
+        this.appointmentRepository = appointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.doctorScheduleIndex = doctorScheduleIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reloadInBackground();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        stale = true;
+    }
+
+    /**
+     * Facturación (precio de consulta por citas completadas) y ocupación
+     * (minutos reservados sobre minutos de atención) de cada doctor.
+     * 
+     * @param from Primer día del período.
+     * @param to   Último día del período (inclusive).
+     * @return Reporte por doctor.
+     */
+    @Override
+    public RangeReport doctorReport(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Error: La fecha final no puede ser anterior a la inicial.");
+        }
+
+        Snapshot current = currentSnapshot();
+        int lo = current.lowerBound(epochMinute(from.atStartOfDay()));
+        int hi = current.lowerBound(epochMinute(to.plusDays(1).atStartOfDay()));
+        long[] totals = ForkJoinPool.commonPool().invoke(new Aggregate(current, lo, hi));
+
+        long[] weekdays = countWeekdays(from, to);
+        List<DoctorReport> doctors = new ArrayList<>();
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (Doctor doctor : doctorRepository.findAll()) {
+            Integer index = current.doctorIndex().get(doctor.getId());
+            long completed = index != null ? totals[index * 2] : 0;
+            long booked = index != null ? totals[index * 2 + 1] : 0;
+
+            WeeklySchedule schedule = doctorScheduleIndex.get(doctor);
+            long available = 0;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                available += weekdays[day.ordinal()] * schedule.minutesOn(day);
+            }
+
+            BigDecimal price = doctor.getConsultationPrice() != null
+                    ? BigDecimal.valueOf(doctor.getConsultationPrice())
+                    : BigDecimal.ZERO;
+            BigDecimal revenue = price.multiply(BigDecimal.valueOf(completed));
+            totalRevenue = totalRevenue.add(revenue);
+            doctors.add(new DoctorReport(doctor.getId(), doctor.getFirstName() + " " + doctor.getLastName(),
+                    doctor.getSpecialty(), completed, revenue, booked, available,
+                    available > 0 ? (double) booked / available : 0));
+        }
+        doctors.sort((a, b) -> Long.compare(a.doctorId(), b.doctorId()));
+        return new RangeReport(from, to, current.takenAt(), totalRevenue, doctors);
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Sólo si se pide un reporte antes de que termine la carga inicial
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                return snapshot;
+            }
+        }
+        if (stale && System.nanoTime() - current.loadedAtNanos() >= maxAgeNanos) {
+            reloadInBackground();
+        }
+        return current;
+    }
+
+    private void reloadInBackground() {
+        if (!reloading.compareAndSet(false, true)) {
+            return;
+        }
+        taskExecutor.execute(() -> {
+            try {
+                synchronized (this) {
+                    reload();
+                }
+            } catch (RuntimeException e) {
+                logger.error("No se pudo cargar la instantánea de reportes", e);
+            } finally {
+                reloading.set(false);
+            }
+        });
+    }
+
+    private void reload() {
+        // Se baja la marca antes de leer: un cambio durante la carga la vuelve a subir
+        stale = false;
+        snapshot = readOnlyTransaction.execute(status -> load());
+    }
+
+    private Snapshot load() {
+        long started = System.nanoTime();
+        SnapshotBuilder builder = new SnapshotBuilder();
+        try (Stream<ReportRow> rows = appointmentRepository.streamReportRows()) {
+            Iterator<ReportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                builder.add(iterator.next());
+            }
+        }
+        Snapshot loaded = builder.build();
+        logger.info("Instantánea de reportes cargada: {} citas en {} ms", loaded.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return loaded;
+    }
+
+    private static long[] countWeekdays(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        long[] counts = new long[7];
+        Arrays.fill(counts, days / 7);
+        LocalDate day = from;
+        for (long i = 0; i < days % 7; i++) {
+            counts[day.getDayOfWeek().ordinal()]++;
+            day = day.plusDays(1);
+        }
+        return counts;
+    }
+
+    private static int epochMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    /**
+     * Citas en arreglos paralelos, ordenadas por {@code starts}.
+     */
+    private record Snapshot(int[] doctors, int[] starts, short[] durations, byte[] statuses, int size,
+            Map<Long, Integer> doctorIndex, LocalDateTime takenAt, long loadedAtNanos) {
+
+        /**
+         * Primera posición con inicio mayor o igual a {@code minute}.
+         */
+        int lowerBound(int minute) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < minute) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static final class SnapshotBuilder {
+
+        private final Map<Long, Integer> doctorIndex = new HashMap<>();
+        private int[] doctors = new int[1024];
+        private int[] starts = new int[1024];
+        private short[] durations = new short[1024];
+        private byte[] statuses = new byte[1024];
+        private int size;
+
+        void add(ReportRow row) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                doctors = Arrays.copyOf(doctors, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+            }
+            doctors[size] = doctorIndex.computeIfAbsent(row.doctorId(), id -> doctorIndex.size());
+            starts[size] = epochMinute(row.dateTime());
+            durations[size] = row.durationMinutes().shortValue();
+            statuses[size] = (byte) row.status().ordinal();
+            size++;
+        }
+
+        Snapshot build() {
+            return new Snapshot(doctors, starts, durations, statuses, size, Map.copyOf(doctorIndex),
+                    LocalDateTime.now(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Suma por doctor, en {@code [2d]} las citas completadas y en {@code [2d + 1]}
+     * los minutos reservados (todo lo que no está cancelado).
+     */
+    private static final class Aggregate extends RecursiveTask<long[]> {
+
+        private final Snapshot snapshot;
+        private final int from;
+        private final int to;
+
+        Aggregate(Snapshot snapshot, int from, int to) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                long[] totals = new long[snapshot.doctorIndex().size() * 2];
+                int[] doctors = snapshot.doctors();
+                short[] durations = snapshot.durations();
+                byte[] statuses = snapshot.statuses();
+                for (int i = from; i < to; i++) {
+                    int slot = doctors[i] * 2;
+                    byte status = statuses[i];
+                    if (status == COMPLETED) {
+                        totals[slot]++;
+                    }
+                    if (status != CANCELLED) {
+                        totals[slot + 1] += durations[i];
+                    }
+                }
+                return totals;
+            }
+
+            int middle = (from + to) >>> 1;
+            Aggregate left = new Aggregate(snapshot, from, middle);
+            left.fork();
+            long[] totals = new Aggregate(snapshot, middle, to).compute();
+            long[] other = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += other[i];
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.BookedSlot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reservas temporales de horarios para el flujo de dos pasos del turnero:
+ * el paciente aparta el horario al elegirlo y lo confirma al crear la cita.
+ * El intervalo se reserva en {@link SlotReservationService} mientras dura la
+ * reserva temporal, así que nadie más puede tomarlo. Todas las reservas
+ * temporales comparten una {@link DelayQueue} y un único hilo las vence, en
+ * lugar de programar una tarea por reserva.
+ * Las reservas temporales viven en la memoria del nodo. Los conjuntos por
+ * usuario sólo se modifican dentro de {@code compute} del mapa, así que el
+ * tope por usuario se comprueba y ocupa de forma atómica. Lo mismo vale para
+ * el alta en los conjuntos por doctor: la reserva en la base
+ * ({@link DatabaseSlotReservationService}) sólo ve citas guardadas, así que
+ * dos reservas temporales simultáneas del mismo horario la pasan ambas y es
+ * ese alta, posterior a la reserva, la que descarta a la segunda.
+ */
+@Component
+public class SlotHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotHoldService.class);
+
+    private final SlotReservationService slotReservationService;
+    private final Duration ttl;
+    private final int maxHoldsPerOwner;
+    private final ConcurrentHashMap<String, Hold> holds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Hold>> holdsByDoctor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Hold>> holdsByOwner = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expirations = new DelayQueue<>();
+    private Thread reaper;
+
+    public SlotHoldService(SlotReservationService slotReservationService,
+            @Value("${medibook.booking.hold-ttl:PT5M}") Duration ttl,
+            @Value("${medibook.booking.max-holds-per-user:3}") int maxHoldsPerOwner) {
+        this.slotReservationService = slotReservationService;
+        this.ttl = ttl;
+        this.maxHoldsPerOwner = maxHoldsPerOwner;
+    }
+
+    @PostConstruct
+    void startReaper() {
+        reaper = new Thread(this::reap, "slot-hold-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    void stopReaper() {
+        reaper.interrupt();
+    }
+
+    /**
+     * Aparta un intervalo durante el TTL configurado.
+     *
+     * @param owner           Usuario que aparta el horario.
+     * @param doctorId        ID del doctor.
+     * @param start           Inicio del turno.
+     * @param durationMinutes Duración del turno.
+     * @return La reserva temporal, o null si el horario ya está ocupado o apartado.
+     * @throws IllegalStateException si el usuario ya tiene el máximo de reservas temporales.
+     */
+    public Hold hold(String owner, Long doctorId, LocalDateTime start, int durationMinutes) {
+        Hold hold = new Hold(UUID.randomUUID().toString(), owner, doctorId, start, durationMinutes,
+                System.nanoTime() + ttl.toNanos(), Instant.now().plus(ttl));
+        // Ocupa el lugar en el tope del usuario antes de reservar: dos pedidos
+        // simultáneos no pueden pasar ambos la comprobación
+        holdsByOwner.compute(owner, (key, owned) -> {
+            Set<Hold> result = owned != null ? owned : new HashSet<>();
+            if (result.size() >= maxHoldsPerOwner) {
+                throw new IllegalStateException("Máximo de reservas temporales alcanzado");
+            }
+            result.add(hold);
+            return result;
+        });
+
+        LocalDateTime end = start.plusMinutes(durationMinutes);
+        boolean reserved;
+        try {
+            reserved = !isHeld(doctorId, start, end)
+                    && slotReservationService.tryReserve(doctorId, start, durationMinutes);
+        } catch (RuntimeException e) {
+            forgetOwner(hold);
+            throw e;
+        }
+        if (!reserved) {
+            forgetOwner(hold);
+            return null;
+        }
+
+        boolean[] registered = new boolean[1];
+        holdsByDoctor.compute(doctorId, (key, doctorHolds) -> {
+            Set<Hold> result = doctorHolds != null ? doctorHolds : ConcurrentHashMap.newKeySet();
+            if (!overlaps(result, start, end)) {
+                result.add(hold);
+                registered[0] = true;
+            }
+            return result;
+        });
+        if (!registered[0]) {
+            // Otra reserva temporal del mismo horario se registró mientras se reservaba
+            forgetOwner(hold);
+            slotReservationService.releaseAfterCommit(doctorId, start, durationMinutes);
+            return null;
+        }
+
+        holds.put(hold.id, hold);
+        expirations.add(hold);
+        return hold;
+    }
+
+    /**
+     * Consume la reserva temporal al confirmar la cita. El intervalo sigue
+     * reservado: pasa a ser responsabilidad de la transacción que crea la cita.
+     *
+     * @param owner Usuario que confirma la cita; debe ser quien apartó el horario.
+     * @return true si la reserva existía, pertenecía al usuario, no había vencido
+     *         y coincide con el turno.
+     */
+    public boolean consume(String holdId, String owner, Long doctorId, LocalDateTime start, int durationMinutes) {
+        Hold hold = holds.get(holdId);
+        if (hold == null || !hold.owner.equals(owner) || !hold.doctorId.equals(doctorId) || !hold.start.equals(start)
+                || hold.durationMinutes != durationMinutes || hold.getDelay(TimeUnit.NANOSECONDS) <= 0
+                || !hold.finish()) {
+            return false;
+        }
+        forget(hold);
+        return true;
+    }
+
+    /**
+     * Libera la reserva temporal antes de que venza (el paciente cerró el turnero).
+     *
+     * @return true si la reserva existía y pertenecía al usuario.
+     */
+    public boolean release(String holdId, String owner) {
+        Hold hold = holds.get(holdId);
+        if (hold == null || !hold.owner.equals(owner) || !hold.finish()) {
+            return false;
+        }
+        forget(hold);
+        slotReservationService.releaseAfterCommit(hold.doctorId, hold.start, hold.durationMinutes);
+        return true;
+    }
+
+    /**
+     * Indica si alguna reserva temporal vigente se superpone con el intervalo.
+     */
+    public boolean isHeld(Long doctorId, LocalDateTime start, LocalDateTime end) {
+        Set<Hold> doctorHolds = holdsByDoctor.get(doctorId);
+        return doctorHolds != null && overlaps(doctorHolds, start, end);
+    }
+
+    /**
+     * Reservas temporales vigentes de los doctores que empiezan en el rango.
+     */
+    public List<BookedSlot> heldSlots(Collection<Long> doctorIds, LocalDateTime start, LocalDateTime end) {
+        List<BookedSlot> result = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            Set<Hold> doctorHolds = holdsByDoctor.get(doctorId);
+            if (doctorHolds == null) {
+                continue;
+            }
+            for (Hold hold : doctorHolds) {
+                if (!hold.start.isBefore(start) && !hold.start.isAfter(end)) {
+                    result.add(new BookedSlot(doctorId, hold.start, hold.durationMinutes));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void reap() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Hold hold = expirations.take();
+                if (hold.finish()) {
+                    forget(hold);
+                    slotReservationService.releaseAfterCommit(hold.doctorId, hold.start, hold.durationMinutes);
+                    logger.info("Reserva temporal vencida: doctor ID {} a las {}", hold.doctorId, hold.start);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("Error al vencer una reserva temporal", e);
+            }
+        }
+    }
+
+    private static boolean overlaps(Set<Hold> doctorHolds, LocalDateTime start, LocalDateTime end) {
+        for (Hold hold : doctorHolds) {
+            if (hold.start.isBefore(end) && hold.start.plusMinutes(hold.durationMinutes).isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forget(Hold hold) {
+        holds.remove(hold.id);
+        Set<Hold> doctorHolds = holdsByDoctor.get(hold.doctorId);
+        if (doctorHolds != null) {
+            doctorHolds.remove(hold);
+        }
+        forgetOwner(hold);
+        expirations.remove(hold);
+    }
+
+    private void forgetOwner(Hold hold) {
+        holdsByOwner.computeIfPresent(hold.owner, (key, owned) -> {
+            owned.remove(hold);
+            return owned.isEmpty() ? null : owned;
+        });
+    }
+
+    /**
+     * Reserva temporal. Sólo uno de vencer, consumir o liberar puede terminarla.
+     */
+    public static final class Hold implements Delayed {
+
+        private final String id;
+        private final String owner;
+        private final Long doctorId;
+        private final LocalDateTime start;
+        private final int durationMinutes;
+        private final long deadlineNanos;
+        private final Instant expiresAt;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        private Hold(String id, String owner, Long doctorId, LocalDateTime start, int durationMinutes,
+                long deadlineNanos, Instant expiresAt) {
+            this.id = id;
+            this.owner = owner;
+            this.doctorId = doctorId;
+            this.start = start;
+            this.durationMinutes = durationMinutes;
+            this.deadlineNanos = deadlineNanos;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        private boolean finish() {
+            return active.compareAndSet(true, false);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((Hold) other).deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registro en memoria de los horarios ocupados por doctor y día.
+ * Cada día se representa como un bitset de minutos que se actualiza con CAS; una
+ * cita marca todos los minutos que dura, así que dos reservas superpuestas no
+ * pueden ganar ambas y el chequeo cuesta lo que la cita, no lo que el día.
+ * El día se carga desde la base de datos la primera vez que se consulta.
+ * Sólo es fiable con una única instancia del backend; con varias, usar el modo
+ * {@code cluster}.
+ */
+@Component
+@ConditionalOnProperty(name = "medibook.booking.reservation-mode", havingValue = "local", matchIfMissing = true)
+public class SlotReservationLedger implements SlotReservationService {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ConcurrentHashMap<DayKey, DaySlots> days = new ConcurrentHashMap<>();
+
+    public SlotReservationLedger(AppointmentRepository appointmentRepository) {
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    /**
+     * Reserva atómicamente el intervalo del doctor. Si hay una transacción activa,
+     * la reserva se libera automáticamente cuando ésta hace rollback.
+     *
+     * @param doctorId        ID del doctor.
+     * @param start           Fecha y hora de inicio del turno.
+     * @param durationMinutes Duración del turno.
+     * @return true si todo el intervalo estaba libre y quedó reservado.
+     */
+    @Override
+    public boolean tryReserve(Long doctorId, LocalDateTime start, int durationMinutes) {
+        DaySlots slots = slotsFor(doctorId, start.toLocalDate());
+        int from = minuteOfDay(start);
+        int to = endMinute(from, durationMinutes);
+        if (!slots.claim(from, to)) {
+            return false;
+        }
+        releaseOnRollback(slots, from, to);
+        return true;
+    }
+
+    /**
+     * El intervalo ya quedó reservado al apartarlo; sólo hace falta que se
+     * libere si la transacción que crea la cita no confirma.
+     */
+    @Override
+    public boolean reserveHeld(Long doctorId, LocalDateTime start, int durationMinutes) {
+        int from = minuteOfDay(start);
+        releaseOnRollback(slotsFor(doctorId, start.toLocalDate()), from, endMinute(from, durationMinutes));
+        return true;
+    }
+
+    private void releaseOnRollback(DaySlots slots, int from, int to) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        slots.release(from, to);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Libera un horario cuando la transacción actual confirma (por ejemplo, al
+     * cancelar la cita). Sin transacción activa se libera de inmediato.
+     *
+     * @param doctorId        ID del doctor.
+     * @param start           Fecha y hora de inicio del turno.
+     * @param durationMinutes Duración del turno.
+     */
+    @Override
+    public void releaseAfterCommit(Long doctorId, LocalDateTime start, int durationMinutes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(doctorId, start, durationMinutes);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(doctorId, start, durationMinutes);
+            }
+        });
+    }
+
+    private void release(Long doctorId, LocalDateTime start, int durationMinutes) {
+        DaySlots slots = days.get(new DayKey(doctorId, start.toLocalDate()));
+        if (slots != null) {
+            int from = minuteOfDay(start);
+            slots.release(from, endMinute(from, durationMinutes));
+        }
+    }
+
+    /**
+     * Carga con una sola consulta todos los días del lote que todavía no están
+     * en memoria; después cada turno se reserva como uno suelto.
+     */
+    @Override
+    public BatchReservation openBatch(Collection<BookedSlot> requested) {
+        Map<DayKey, DaySlots> created = new HashMap<>();
+        for (BookedSlot slot : requested) {
+            DayKey key = new DayKey(slot.doctorId(), slot.dateTime().toLocalDate());
+            if (!created.containsKey(key) && !days.containsKey(key)) {
+                DaySlots placeholder = new DaySlots();
+                if (days.putIfAbsent(key, placeholder) == null) {
+                    created.put(key, placeholder);
+                }
+            }
+        }
+        if (!created.isEmpty()) {
+            loadAll(created);
+        }
+        return this::tryReserve;
+    }
+
+    private void loadAll(Map<DayKey, DaySlots> created) {
+        Set<Long> doctorIds = new HashSet<>();
+        LocalDate first = null;
+        LocalDate last = null;
+        for (DayKey key : created.keySet()) {
+            doctorIds.add(key.doctorId());
+            first = first == null || key.date().isBefore(first) ? key.date() : first;
+            last = last == null || key.date().isAfter(last) ? key.date() : last;
+        }
+
+        Map<DayKey, List<BookedSlot>> booked = new HashMap<>();
+        try {
+            for (BookedSlot slot : appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(doctorIds,
+                    first.atStartOfDay(), last.atTime(LocalTime.MAX))) {
+                booked.computeIfAbsent(new DayKey(slot.doctorId(), slot.dateTime().toLocalDate()),
+                        key -> new ArrayList<>()).add(slot);
+            }
+        } catch (RuntimeException e) {
+            created.forEach((key, slots) -> {
+                days.remove(key, slots);
+                slots.failLoad();
+            });
+            throw e;
+        }
+        created.forEach((key, slots) -> slots.completeLoad(booked.getOrDefault(key, List.of())));
+    }
+
+    private DaySlots slotsFor(Long doctorId, LocalDate date) {
+        DayKey key = new DayKey(doctorId, date);
+        while (true) {
+            DaySlots slots = days.get(key);
+            if (slots == null) {
+                DaySlots created = new DaySlots();
+                slots = days.putIfAbsent(key, created);
+                if (slots == null) {
+                    load(key, created);
+                    LocalDate today = LocalDate.now();
+                    days.keySet().removeIf(day -> day.date().isBefore(today));
+                    return created;
+                }
+            }
+            if (slots.awaitLoad()) {
+                return slots;
+            }
+            // Falló la carga de otro hilo, que ya quitó el día del mapa: se reintenta
+        }
+    }
+
+    /**
+     * Carga el día desde la base de datos. El día ya está en el mapa mientras se
+     * consulta (sin bloquear otros días): una liberación confirmada durante la
+     * consulta lo encuentra y queda anotada, en lugar de perderse y dejar el
+     * horario tomado hasta reiniciar.
+     */
+    private void load(DayKey key, DaySlots slots) {
+        Collection<BookedSlot> booked;
+        try {
+            booked = appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(
+                    key.doctorId(), key.date().atStartOfDay(), key.date().atTime(LocalTime.MAX));
+        } catch (RuntimeException e) {
+            days.remove(key, slots);
+            slots.failLoad();
+            throw e;
+        }
+        slots.completeLoad(booked);
+    }
+
+    private static int minuteOfDay(LocalDateTime dateTime) {
+        return dateTime.getHour() * 60 + dateTime.getMinute();
+    }
+
+    private static int endMinute(int from, int durationMinutes) {
+        return Math.min(from + Math.max(durationMinutes, 1), MINUTES_PER_DAY);
+    }
+
+    private record DayKey(Long doctorId, LocalDate date) {
+    }
+
+    /**
+     * Bitset de minutos del día. Un intervalo contenido en una sola palabra se
+     * reserva con un único CAS; los que cruzan palabras se reservan bajo el
+     * monitor del día, palabra por palabra, deshaciendo lo tomado si alguna choca.
+     * <p>
+     * Mientras el día se carga nadie reserva (esperan a {@link #awaitLoad}) y las
+     * liberaciones se anotan para aplicarlas sobre lo cargado.
+     */
+    private static final class DaySlots {
+
+        private final AtomicLongArray words = new AtomicLongArray(WORDS_PER_DAY);
+        private final CountDownLatch loading = new CountDownLatch(1);
+        private volatile boolean loaded;
+        private volatile boolean failed;
+        // Guardada por this; null una vez cargado el día
+        private List<int[]> pendingReleases = new ArrayList<>();
+
+        void completeLoad(Collection<BookedSlot> booked) {
+            synchronized (this) {
+                for (BookedSlot slot : booked) {
+                    int from = minuteOfDay(slot.dateTime());
+                    // Datos previos podrían superponerse: se marcan igual, minuto a minuto
+                    mark(from, endMinute(from, slot.durationMinutes()));
+                }
+                // Una liberación ya visible en la consulta no encuentra nada que soltar
+                for (int[] released : pendingReleases) {
+                    releaseLoaded(released[0], released[1]);
+                }
+                pendingReleases = null;
+                loaded = true;
+            }
+            loading.countDown();
+        }
+
+        void failLoad() {
+            failed = true;
+            loading.countDown();
+        }
+
+        /**
+         * Espera a que termine la carga del día.
+         *
+         * @return false si la carga falló y el día debe volver a pedirse.
+         */
+        boolean awaitLoad() {
+            if (loaded) {
+                return true;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    loading.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return !failed;
+        }
+
+        boolean claim(int from, int to) {
+            int first = from / Long.SIZE;
+            int last = (to - 1) / Long.SIZE;
+            if (first == last) {
+                return claimWord(first, mask(first, from, to));
+            }
+
+            synchronized (this) {
+                for (int index = first; index <= last; index++) {
+                    if (!claimWord(index, mask(index, from, to))) {
+                        for (int undo = first; undo < index; undo++) {
+                            releaseWord(undo, mask(undo, from, to));
+                        }
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+
+        void release(int from, int to) {
+            if (!loaded) {
+                synchronized (this) {
+                    if (!loaded) {
+                        pendingReleases.add(new int[] { from, to });
+                        return;
+                    }
+                }
+            }
+            releaseLoaded(from, to);
+        }
+
+        private void releaseLoaded(int from, int to) {
+            for (int index = from / Long.SIZE; index <= (to - 1) / Long.SIZE; index++) {
+                releaseWord(index, mask(index, from, to));
+            }
+        }
+
+        private void mark(int from, int to) {
+            for (int index = from / Long.SIZE; index <= (to - 1) / Long.SIZE; index++) {
+                long mask = mask(index, from, to);
+                while (true) {
+                    long current = words.get(index);
+                    if (words.compareAndSet(index, current, current | mask)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private boolean claimWord(int index, long mask) {
+            while (true) {
+                long current = words.get(index);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+                if (words.compareAndSet(index, current, current | mask)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseWord(int index, long mask) {
+            while (true) {
+                long current = words.get(index);
+                if ((current & mask) == 0 || words.compareAndSet(index, current, current & ~mask)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Bits de la palabra {@code index} que caen dentro de {@code [from, to)}.
+         */
+        private static long mask(int index, int from, int to) {
+            int low = Math.max(from - index * Long.SIZE, 0);
+            int high = Math.min(to - index * Long.SIZE, Long.SIZE);
+            long upper = high == Long.SIZE ? -1L : (1L << high) - 1;
+            return upper & (-1L << low);
+        }
+    }
+}
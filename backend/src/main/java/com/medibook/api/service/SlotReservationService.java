@@ -0,0 +1,49 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.BookedSlot;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Estrategia de reserva de horarios previa a la inserción de una cita.
+ * Una reserva ocupa el intervalo {@code [inicio, inicio + duración)} y choca con
+ * cualquier cita activa que se superponga.
+ * Se elige con la propiedad {@code medibook.booking.reservation-mode}:
+ * {@code local} (por defecto) usa un registro en memoria del nodo y
+ * {@code cluster} serializa las reservas del doctor en la base de datos.
+ */
+public interface SlotReservationService {
+    boolean tryReserve(Long doctorId, LocalDateTime start, int durationMinutes);
+
+    void releaseAfterCommit(Long doctorId, LocalDateTime start, int durationMinutes);
+
+    /**
+     * Confirma dentro de la transacción actual un intervalo que estaba apartado
+     * por una reserva temporal. Por defecto lo vuelve a verificar como una
+     * reserva nueva.
+     */
+    default boolean reserveHeld(Long doctorId, LocalDateTime start, int durationMinutes) {
+        return tryReserve(doctorId, start, durationMinutes);
+    }
+
+    /**
+     * Prepara la reserva de los turnos de un lote (alta masiva o serie): los
+     * días que tocan se cargan o bloquean una sola vez para todo el lote, no
+     * una vez por turno. Las reservas del lote se hacen con el objeto devuelto,
+     * dentro de la transacción actual, y sólo para los turnos declarados.
+     *
+     * @param requested Turnos que el lote intentará reservar.
+     */
+    default BatchReservation openBatch(Collection<BookedSlot> requested) {
+        return this::tryReserve;
+    }
+
+    /**
+     * Reservas de un lote abierto con {@link #openBatch}. Dos turnos del mismo
+     * lote que se superponen también chocan entre sí.
+     */
+    interface BatchReservation {
+        boolean tryReserve(Long doctorId, LocalDateTime start, int durationMinutes);
+    }
+}
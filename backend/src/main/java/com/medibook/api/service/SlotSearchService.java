@@ -0,0 +1,11 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AvailableSlotResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SlotSearchService {
+    List<AvailableSlotResponse> findNextAvailable(String specialty, LocalDate from, LocalDate to, int limit,
+            int slotMinutes);
+}
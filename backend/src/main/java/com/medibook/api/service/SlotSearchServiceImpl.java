@@ -0,0 +1,200 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AvailableSlotResponse;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import com.medibook.api.repository.DoctorRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Búsqueda de los primeros turnos libres entre todos los doctores de una
+ * especialidad. Los turnos libres se calculan en memoria a partir del horario
+ * semanal de cada doctor menos las citas ocupadas, y los candidatos de cada doctor se mezclan
+ * en orden cronológico con una cola de prioridad. La ventana se recorre por
+ * tramos de pocos días, así que normalmente basta con una sola consulta.
+ */
+@Service
+public class SlotSearchServiceImpl implements SlotSearchService {
+
+    private static final int MAX_WINDOW_DAYS = 60;
+    private static final int MAX_LIMIT = 100;
+    private static final int CHUNK_DAYS = 7;
+    private static final TreeMap<Long, Long> EMPTY = new TreeMap<>();
+
+    private final DoctorRepository doctorRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final SlotHoldService slotHoldService;
+
+    public SlotSearchServiceImpl(DoctorRepository doctorRepository, AppointmentRepository appointmentRepository,
+            DoctorScheduleIndex doctorScheduleIndex, SlotHoldService slotHoldService) {
+        this.doctorRepository = doctorRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.doctorScheduleIndex = doctorScheduleIndex;
+        this.slotHoldService = slotHoldService;
+    }
+
+    /**
+     * Busca los primeros turnos libres de una especialidad.
+     *
+     * @param specialty   Especialidad (sin distinguir mayúsculas).
+     * @param from        Primer día de la ventana.
+     * @param to          Último día de la ventana (inclusive).
+     * @param limit       Cantidad máxima de turnos a devolver.
+     * @param slotMinutes Duración de cada turno.
+     * @return Turnos libres ordenados por fecha y hora.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AvailableSlotResponse> findNextAvailable(String specialty, LocalDate from, LocalDate to, int limit,
+            int slotMinutes) {
+        if (to.isBefore(from) || from.plusDays(MAX_WINDOW_DAYS).isBefore(to)
+                || limit < 1 || limit > MAX_LIMIT || slotMinutes < 5 || slotMinutes > 240) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Búsqueda inválida: ventana de hasta " + MAX_WINDOW_DAYS + " días y hasta " + MAX_LIMIT
+                            + " resultados.");
+        }
+
+        List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCase(specialty).stream()
+                .filter(doctor -> !doctorScheduleIndex.get(doctor).isEmpty())
+                .toList();
+        List<AvailableSlotResponse> results = new ArrayList<>(limit);
+        if (doctors.isEmpty()) {
+            return results;
+        }
+
+        List<Long> doctorIds = doctors.stream().map(Doctor::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (LocalDate chunkStart = from; !chunkStart.isAfter(to) && results.size() < limit; chunkStart = chunkStart
+                .plusDays(CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunkStart.plusDays(CHUNK_DAYS - 1).isAfter(to) ? to
+                    : chunkStart.plusDays(CHUNK_DAYS - 1);
+
+            // Índice de ocupación por doctor: inicio -> fin de cada cita, en minutos epoch
+            // (incluye los horarios apartados temporalmente)
+            Map<Long, TreeMap<Long, Long>> occupancy = new HashMap<>();
+            List<BookedSlot> taken = new ArrayList<>(appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(
+                    doctorIds, chunkStart.atStartOfDay(), chunkEnd.atTime(LocalTime.MAX)));
+            taken.addAll(slotHoldService.heldSlots(doctorIds, chunkStart.atStartOfDay(), chunkEnd.atTime(LocalTime.MAX)));
+            for (BookedSlot slot : taken) {
+                long start = epochMinute(slot.dateTime());
+                occupancy.computeIfAbsent(slot.doctorId(), id -> new TreeMap<>())
+                        .merge(start, start + slot.durationMinutes(), Math::max);
+            }
+
+            PriorityQueue<DoctorCursor> queue = new PriorityQueue<>(
+                    Comparator.comparing((DoctorCursor cursor) -> cursor.current).thenComparing(cursor -> cursor.doctor.getId()));
+            for (Doctor doctor : doctors) {
+                DoctorCursor cursor = new DoctorCursor(doctor, doctorScheduleIndex.get(doctor),
+                        occupancy.getOrDefault(doctor.getId(), EMPTY), chunkStart, chunkEnd, slotMinutes, now);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+
+            while (!queue.isEmpty() && results.size() < limit) {
+                DoctorCursor cursor = queue.poll();
+                Doctor doctor = cursor.doctor;
+                results.add(new AvailableSlotResponse(doctor.getId(),
+                        doctor.getFirstName() + " " + doctor.getLastName(), doctor.getSpecialty(), cursor.current));
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static long epochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * Recorre en orden los turnos libres de un doctor dentro de un tramo, intervalo
+     * por intervalo de su horario semanal.
+     */
+    private static final class DoctorCursor {
+
+        private final Doctor doctor;
+        private final WeeklySchedule schedule;
+        private final TreeMap<Long, Long> booked;
+        private final LocalDate lastDay;
+        private final int slotMinutes;
+        private final LocalDateTime notBefore;
+        private LocalDate day;
+        private int interval;
+        private int nextMinute = -1;
+        private LocalDateTime current;
+
+        DoctorCursor(Doctor doctor, WeeklySchedule schedule, TreeMap<Long, Long> booked, LocalDate firstDay,
+                LocalDate lastDay, int slotMinutes, LocalDateTime notBefore) {
+            this.doctor = doctor;
+            this.schedule = schedule;
+            this.booked = booked;
+            this.lastDay = lastDay;
+            this.slotMinutes = slotMinutes;
+            this.notBefore = notBefore;
+            this.day = firstDay;
+        }
+
+        boolean advance() {
+            while (!day.isAfter(lastDay)) {
+                int[] intervals = schedule.intervals(day.getDayOfWeek());
+                while (interval < intervals.length) {
+                    if (nextMinute < intervals[interval]) {
+                        nextMinute = intervals[interval];
+                    }
+                    while (nextMinute + slotMinutes <= intervals[interval + 1]) {
+                        LocalDateTime candidate = day.atStartOfDay().plusMinutes(nextMinute);
+                        nextMinute += slotMinutes;
+                        if (!candidate.isBefore(notBefore) && !isBooked(epochMinute(candidate))) {
+                            current = candidate;
+                            return true;
+                        }
+                    }
+                    interval += 2;
+                }
+                day = day.plusDays(1);
+                interval = 0;
+                nextMinute = -1;
+            }
+            return false;
+        }
+
+        /**
+         * El turno {@code [start, start + slotMinutes)} está ocupado si alguna cita
+         * que empieza antes de su fin termina después de su inicio.
+         */
+        private boolean isBooked(long start) {
+            for (Map.Entry<Long, Long> entry = booked.lowerEntry(start + slotMinutes); entry != null; entry = booked
+                    .lowerEntry(entry.getKey())) {
+                if (entry.getValue() > start) {
+                    return true;
+                }
+                if (entry.getKey() + Appointment.MAX_DURATION_MINUTES <= start) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+}
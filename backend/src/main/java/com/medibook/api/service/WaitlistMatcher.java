@@ -0,0 +1,44 @@
+package com.medibook.api.service;
+
+import com.medibook.api.event.AppointmentChangedEvent;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispara el relleno desde la lista de espera cuando una cancelación confirma.
+ * Corre en el ejecutor asíncrono, así la petición que cancela no espera.
+ */
+@Component
+public class WaitlistMatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistMatcher.class);
+
+    private final WaitlistService waitlistService;
+
+    public WaitlistMatcher(WaitlistService waitlistService) {
+        this.waitlistService = waitlistService;
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (!event.isCancellation()) {
+            return;
+        }
+        try {
+            waitlistService.backfill(event);
+        } catch (ResponseStatusException e) {
+            // Otro paciente tomó el horario primero, o ya no entra en la agenda
+            logger.info("Lista de espera: horario de doctor ID {} en {} no reasignado: {}", event.doctorId(),
+                    event.dateTime(), e.getReason());
+        } catch (RuntimeException e) {
+            logger.error("Error al reasignar desde la lista de espera la cita ID {}", event.appointmentId(), e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.WaitlistDTO.WaitlistRequest;
+import com.medibook.api.dto.WaitlistDTO.WaitlistResponse;
+import com.medibook.api.event.AppointmentChangedEvent;
+
+import java.util.List;
+
+public interface WaitlistService {
+    WaitlistResponse add(WaitlistRequest request);
+
+    WaitlistResponse join(WaitlistRequest request, String username);
+
+    List<WaitlistResponse> getMine(String username);
+
+    void leave(Long id, String username);
+
+    void backfill(AppointmentChangedEvent event);
+}
@@ -0,0 +1,215 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.dto.WaitlistDTO.WaitlistRequest;
+import com.medibook.api.dto.WaitlistDTO.WaitlistResponse;
+import com.medibook.api.event.AppointmentChangedEvent;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.model.WaitlistEntry;
+import com.medibook.api.model.WaitlistStatus;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import com.medibook.api.repository.UserRepository;
+import com.medibook.api.repository.WaitlistEntryRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lista de espera por doctor y rango de fechas. Cuando una cita se cancela, el
+ * primer paciente en espera cuyo rango cubre el horario liberado (por prioridad
+ * y luego por orden de llegada) y que está libre a esa hora recibe la cita
+ * automáticamente.
+ */
+@Service
+public class WaitlistServiceImpl implements WaitlistService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistServiceImpl.class);
+
+    private static final int MAX_WINDOW_DAYS = 60;
+    private static final int MAX_ACTIVE_ENTRIES = 5;
+
+    private final WaitlistEntryRepository waitlistEntryRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final UserRepository userRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentService appointmentService;
+
+    public WaitlistServiceImpl(WaitlistEntryRepository waitlistEntryRepository, DoctorRepository doctorRepository,
+            PatientRepository patientRepository, UserRepository userRepository,
+            AppointmentRepository appointmentRepository, AppointmentService appointmentService) {
+        this.waitlistEntryRepository = waitlistEntryRepository;
+        this.doctorRepository = doctorRepository;
+        this.patientRepository = patientRepository;
+        this.userRepository = userRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.appointmentService = appointmentService;
+    }
+
+    /**
+     * Anota a un paciente (alta administrativa, admite prioridad).
+     * 
+     * @param request Doctor, rango, email del paciente y prioridad.
+     * @return Entrada creada.
+     */
+    @Override
+    @Transactional
+    public WaitlistResponse add(WaitlistRequest request) {
+        Patient patient = patientRepository.findByEmail(request.patientEmail())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Paciente no encontrado: " + request.patientEmail()));
+        return create(request, patient, request.priority() == null ? 0 : request.priority());
+    }
+
+    /**
+     * Anota al paciente del usuario autenticado, con prioridad normal.
+     * 
+     * @param request  Doctor y rango de fechas aceptable.
+     * @param username Usuario autenticado.
+     * @return Entrada creada.
+     */
+    @Override
+    @Transactional
+    public WaitlistResponse join(WaitlistRequest request, String username) {
+        return create(request, patientOf(username), 0);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<WaitlistResponse> getMine(String username) {
+        return waitlistEntryRepository.findByPatientEmail(patientOf(username).getEmail()).stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public void leave(Long id, String username) {
+        WaitlistEntry entry = waitlistEntryRepository.findById(id)
+                .filter(found -> found.getPatient().getId().equals(patientOf(username).getId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Entrada de lista de espera no encontrada: " + id));
+        if (entry.getStatus() == WaitlistStatus.WAITING) {
+            entry.setStatus(WaitlistStatus.CANCELLED);
+        }
+    }
+
+    /**
+     * Asigna el horario liberado al primer candidato libre a esa hora. La cita
+     * se crea por el camino normal dentro de esta misma transacción: si el
+     * horario ya no está libre, nada se confirma y la entrada sigue en espera.
+     * Los candidatos se leen de a uno con {@code SKIP LOCKED}, así dos
+     * cancelaciones simultáneas no le asignan dos citas al mismo paciente; el
+     * paciente que canceló nunca es candidato.
+     * 
+     * @param event Cancelación confirmada.
+     */
+    @Override
+    @Transactional
+    public void backfill(AppointmentChangedEvent event) {
+        LocalDateTime start = event.dateTime();
+        if (start.isBefore(LocalDateTime.now())) {
+            return;
+        }
+
+        LocalDateTime end = start.plusMinutes(event.durationMinutes());
+        WaitlistEntry entry = null;
+        for (int page = 0; entry == null; page++) {
+            // Las filas ya bloqueadas por esta transacción siguen visibles, así que la página avanza
+            List<WaitlistEntry> candidates = waitlistEntryRepository.findNextCandidates(event.doctorId(),
+                    event.patientId(), start, end, PageRequest.of(page, 1));
+            if (candidates.isEmpty()) {
+                return;
+            }
+            WaitlistEntry candidate = candidates.get(0);
+            if (isBusy(candidate.getPatient(), start, end)) {
+                logger.info("Lista de espera: entrada ID {} salteada, el paciente ya tiene una cita a esa hora",
+                        candidate.getId());
+            } else {
+                entry = candidate;
+            }
+        }
+
+        Patient patient = entry.getPatient();
+        AppointmentResponse appointment = appointmentService.createAppointment(new AppointmentRequest(
+                event.doctorId(), start, patient.getFirstName() + " " + patient.getLastName(), patient.getEmail(),
+                event.durationMinutes(), null, null));
+
+        entry.setStatus(WaitlistStatus.BOOKED);
+        entry.setAppointmentId(appointment.id());
+        logger.info("Lista de espera: cita ID {} asignada a {} (entrada ID {})", appointment.id(),
+                patient.getEmail(), entry.getId());
+    }
+
+    private boolean isBusy(Patient patient, LocalDateTime start, LocalDateTime end) {
+        return appointmentRepository.findActiveSlotsByPatientIdAndDateTimeBetween(patient.getId(),
+                start.minusMinutes(Appointment.MAX_DURATION_MINUTES), end.minusMinutes(1)).stream()
+                .anyMatch(slot -> slot.endTime().isAfter(start));
+    }
+
+    private WaitlistResponse create(WaitlistRequest request, Patient patient, int priority) {
+        if (request.doctorId() == null || request.windowStart() == null || request.windowEnd() == null
+                || !request.windowStart().isBefore(request.windowEnd())
+                || request.windowStart().plusDays(MAX_WINDOW_DAYS).isBefore(request.windowEnd())
+                || request.windowEnd().isBefore(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Rango inválido: debe ser futuro y de hasta " + MAX_WINDOW_DAYS + " días.");
+        }
+        if (waitlistEntryRepository.countByPatientIdAndStatus(patient.getId(), WaitlistStatus.WAITING)
+                >= MAX_ACTIVE_ENTRIES) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "El paciente ya tiene " + MAX_ACTIVE_ENTRIES + " esperas activas.");
+        }
+        Doctor doctor = doctorRepository.findById(request.doctorId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Doctor not found with ID: " + request.doctorId()));
+
+        WaitlistEntry entry = waitlistEntryRepository.save(WaitlistEntry.builder()
+                .doctor(doctor)
+                .patient(patient)
+                .windowStart(request.windowStart())
+                .windowEnd(request.windowEnd())
+                .priority(priority)
+                .createdAt(LocalDateTime.now())
+                .build());
+        logger.info("Paciente {} anotado en lista de espera del doctor ID {}", patient.getEmail(), doctor.getId());
+        return toResponse(entry);
+    }
+
+    private Patient patientOf(String username) {
+        Patient patient = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuario no encontrado"))
+                .getPatient();
+        if (patient == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User not linked to a patient");
+        }
+        return patient;
+    }
+
+    private WaitlistResponse toResponse(WaitlistEntry entry) {
+        Doctor doctor = entry.getDoctor();
+        return new WaitlistResponse(
+                entry.getId(),
+                doctor.getId(),
+                doctor.getFirstName() + " " + doctor.getLastName(),
+                entry.getPatient().getEmail(),
+                entry.getWindowStart(),
+                entry.getWindowEnd(),
+                entry.getPriority(),
+                entry.getStatus(),
+                entry.getAppointmentId());
+    }
+}
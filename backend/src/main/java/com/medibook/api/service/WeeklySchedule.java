@@ -0,0 +1,152 @@
+package com.medibook.api.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Horario semanal inmutable de un doctor. Para cada día de la semana guarda los
+ * intervalos de atención como pares {@code [inicio, fin)} en minutos del día,
+ * ordenados y fusionados, de modo que los turnos partidos (mañana y tarde) se
+ * consultan sin tocar la base de datos.
+ */
+public final class WeeklySchedule {
+
+    public static final WeeklySchedule EMPTY = new WeeklySchedule(new int[7][0]);
+
+    private final int[][] days;
+
+    private WeeklySchedule(int[][] days) {
+        this.days = days;
+    }
+
+    /**
+     * Mismo horario de lunes a domingo; es el comportamiento de los doctores que
+     * sólo tienen cargado {@code workStart/workEnd}.
+     */
+    public static WeeklySchedule everyDay(LocalTime start, LocalTime end) {
+        Builder builder = new Builder();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            builder.add(day, start, end);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isEmpty() {
+        for (int[] day : days) {
+            if (day.length > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indica si un turno de la duración dada empieza y termina dentro de un mismo
+     * intervalo de atención.
+     */
+    public boolean covers(LocalDateTime start, int minutes) {
+        int[] intervals = days[start.getDayOfWeek().ordinal()];
+        int from = start.getHour() * 60 + start.getMinute();
+        int to = from + minutes;
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (from >= intervals[i] && to <= intervals[i + 1]) {
+                return true;
+            }
+            if (from < intervals[i]) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Intervalos del día como pares planos {@code [inicio0, fin0, inicio1, ...]} en
+     * minutos. No modificar el arreglo devuelto.
+     */
+    int[] intervals(DayOfWeek day) {
+        return days[day.ordinal()];
+    }
+
+    /**
+     * Minutos de atención del día.
+     */
+    public int minutesOn(DayOfWeek day) {
+        int[] intervals = days[day.ordinal()];
+        int total = 0;
+        for (int i = 0; i < intervals.length; i += 2) {
+            total += intervals[i + 1] - intervals[i];
+        }
+        return total;
+    }
+
+    /**
+     * Texto legible del horario de un día, por ejemplo {@code 08:00-12:00, 15:00-19:00}.
+     */
+    public String describe(DayOfWeek day) {
+        int[] intervals = days[day.ordinal()];
+        if (intervals.length == 0) {
+            return "sin atención";
+        }
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < intervals.length; i += 2) {
+            parts.add(toTime(intervals[i]) + "-" + toTime(intervals[i + 1]));
+        }
+        return String.join(", ", parts);
+    }
+
+    private static String toTime(int minute) {
+        return minute >= 24 * 60 ? "24:00" : LocalTime.of(minute / 60, minute % 60).toString();
+    }
+
+    public static final class Builder {
+
+        private final List<List<int[]>> days = new ArrayList<>();
+
+        private Builder() {
+            for (int i = 0; i < 7; i++) {
+                days.add(new ArrayList<>());
+            }
+        }
+
+        /**
+         * Agrega un intervalo. Un fin en 00:00 se interpreta como medianoche.
+         */
+        public Builder add(DayOfWeek day, LocalTime start, LocalTime end) {
+            int from = start.getHour() * 60 + start.getMinute();
+            int to = end.equals(LocalTime.MIDNIGHT) ? 24 * 60 : end.getHour() * 60 + end.getMinute();
+            if (to > from) {
+                days.get(day.ordinal()).add(new int[] { from, to });
+            }
+            return this;
+        }
+
+        public WeeklySchedule build() {
+            int[][] result = new int[7][];
+            for (int d = 0; d < 7; d++) {
+                List<int[]> intervals = days.get(d);
+                Collections.sort(intervals, (a, b) -> Integer.compare(a[0], b[0]));
+                int[] flat = new int[intervals.size() * 2];
+                int size = 0;
+                for (int[] interval : intervals) {
+                    if (size > 0 && interval[0] <= flat[size - 1]) {
+                        flat[size - 1] = Math.max(flat[size - 1], interval[1]);
+                    } else {
+                        flat[size++] = interval[0];
+                        flat[size++] = interval[1];
+                    }
+                }
+                result[d] = Arrays.copyOf(flat, size);
+            }
+            return new WeeklySchedule(result);
+        }
+    }
+}
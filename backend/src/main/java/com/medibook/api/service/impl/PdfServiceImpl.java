@@ -8,88 +8,141 @@ import org.springframework.stereotype.Service;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HexFormat;
 
 @Service
 public class PdfServiceImpl implements PdfService {
 
+    // Incrementar al cambiar el diseño: invalida las recetas ya generadas
+    private static final String LAYOUT_VERSION = "2";
+
+    // Fuentes y bloques fijos se crean una sola vez: OpenPDF sólo los lee al
+    // agregarlos al documento (igual que Chunk.NEWLINE), así que se comparten
+    private static final Font HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Color.BLACK);
+    private static final Font SUB_HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.DARK_GRAY);
+    private static final Font BODY_FONT = FontFactory.getFont(FontFactory.HELVETICA, 12, Color.BLACK);
+    private static final Font SMALL_FONT = FontFactory.getFont(FontFactory.HELVETICA, 10, Color.GRAY);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    // Chunk.NEWLINE usa la fuente por defecto, que OpenPDF incrusta como subconjunto
+    // TrueType en cada documento; con Helvetica (estándar, no se incrusta) no hace falta
+    private static final Chunk NEWLINE = new Chunk("\n", BODY_FONT);
+    private static final Paragraph HEADER = centered("MediBook - Clínica Privada", HEADER_FONT);
+    private static final Paragraph SEPARATOR = new Paragraph(
+            "____________________________________________________________", BODY_FONT);
+    private static final Paragraph DIAGNOSIS_TITLE = new Paragraph("Diagnóstico", SUB_HEADER_FONT);
+    private static final Paragraph TREATMENT_TITLE = new Paragraph("Tratamiento / Rx", SUB_HEADER_FONT);
+    private static final Paragraph SIGNATURE_LINE = centered("__________________________", BODY_FONT);
+    private static final Paragraph SIGNATURE_LABEL = centered("Firma y Sello", SMALL_FONT);
+
     @Override
     public byte[] generatePrescription(Appointment appointment) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        writePrescription(appointment, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Escribe la receta directamente en {@code out} a medida que se arma. El
+     * stream no se cierra: es de quien lo pasó.
+     */
+    @Override
+    public void writePrescription(Appointment appointment, OutputStream out) {
+        try {
             Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, out);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
 
             document.open();
 
-            // Fonts
-            Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Color.BLACK);
-            Font subHeaderFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, Color.DARK_GRAY);
-            Font bodyFont = FontFactory.getFont(FontFactory.HELVETICA, 12, Color.BLACK);
-            Font smallFont = FontFactory.getFont(FontFactory.HELVETICA, 10, Color.GRAY);
-
             // Header
-            Paragraph header = new Paragraph("MediBook - Clínica Privada", headerFont);
-            header.setAlignment(Element.ALIGN_CENTER);
-            document.add(header);
-            document.add(Chunk.NEWLINE);
+            document.add(HEADER);
+            document.add(NEWLINE);
 
             // Doctor Info
             String doctorName = "Dr. " + appointment.getDoctor().getFirstName() + " "
                     + appointment.getDoctor().getLastName();
-            Paragraph doctorInfo = new Paragraph(doctorName, subHeaderFont);
-            doctorInfo.add(new Chunk("\nEspecialidad: " + appointment.getDoctor().getSpecialty(), bodyFont));
+            Paragraph doctorInfo = new Paragraph(doctorName, SUB_HEADER_FONT);
+            doctorInfo.add(new Chunk("\nEspecialidad: " + appointment.getDoctor().getSpecialty(), BODY_FONT));
             document.add(doctorInfo);
 
             // Separator
-            document.add(Chunk.NEWLINE);
-            document.add(new Paragraph("____________________________________________________________"));
-            document.add(Chunk.NEWLINE);
+            document.add(NEWLINE);
+            document.add(SEPARATOR);
+            document.add(NEWLINE);
 
             // Patient Info
             Paragraph patientInfo = new Paragraph(
                     "Paciente: " + appointment.getPatient().getFirstName() + " "
                             + appointment.getPatient().getLastName(),
-                    bodyFont);
-            patientInfo.add(new Chunk("\nEmail: " + appointment.getPatient().getEmail(), bodyFont));
-            patientInfo.add(new Chunk(
-                    "\nFecha: " + appointment.getDateTime().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")),
-                    bodyFont));
+                    BODY_FONT);
+            patientInfo.add(new Chunk("\nEmail: " + appointment.getPatient().getEmail(), BODY_FONT));
+            patientInfo.add(new Chunk("\nFecha: " + appointment.getDateTime().format(DATE_FORMAT), BODY_FONT));
             document.add(patientInfo);
 
-            document.add(Chunk.NEWLINE);
+            document.add(NEWLINE);
 
             // Diagnosis
-            Paragraph diagnosisTitle = new Paragraph("Diagnóstico", subHeaderFont);
-            document.add(diagnosisTitle);
-            Paragraph diagnosisText = new Paragraph(
-                    appointment.getDiagnosis() != null ? appointment.getDiagnosis() : "N/A", bodyFont);
-            document.add(diagnosisText);
+            document.add(DIAGNOSIS_TITLE);
+            document.add(new Paragraph(
+                    appointment.getDiagnosis() != null ? appointment.getDiagnosis() : "N/A", BODY_FONT));
 
-            document.add(Chunk.NEWLINE);
+            document.add(NEWLINE);
 
             // Treatment
-            Paragraph treatmentTitle = new Paragraph("Tratamiento / Rx", subHeaderFont);
-            document.add(treatmentTitle);
-            Paragraph treatmentText = new Paragraph(
-                    appointment.getTreatment() != null ? appointment.getTreatment() : "N/A", bodyFont);
-            document.add(treatmentText);
+            document.add(TREATMENT_TITLE);
+            document.add(new Paragraph(
+                    appointment.getTreatment() != null ? appointment.getTreatment() : "N/A", BODY_FONT));
 
-            document.add(Chunk.NEWLINE);
-            document.add(Chunk.NEWLINE);
-            document.add(Chunk.NEWLINE);
+            document.add(NEWLINE);
+            document.add(NEWLINE);
+            document.add(NEWLINE);
 
             // Footer / Signature
-            Paragraph footer = new Paragraph("__________________________", bodyFont);
-            footer.setAlignment(Element.ALIGN_CENTER);
-            document.add(footer);
-            Paragraph signature = new Paragraph("Firma y Sello", smallFont);
-            signature.setAlignment(Element.ALIGN_CENTER);
-            document.add(signature);
+            document.add(SIGNATURE_LINE);
+            document.add(SIGNATURE_LABEL);
 
             document.close();
-            return out.toByteArray();
         } catch (Exception e) {
             throw new RuntimeException("Error generating PDF", e);
         }
     }
+
+    /**
+     * SHA-256 (truncado) de los campos que imprime {@link #writePrescription}.
+     * Si se agrega un campo a la receta, debe agregarse también aquí.
+     */
+    @Override
+    public String prescriptionVersion(Appointment appointment) {
+        String fields = String.join("\u0000",
+                LAYOUT_VERSION,
+                appointment.getDoctor().getFirstName(),
+                appointment.getDoctor().getLastName(),
+                appointment.getDoctor().getSpecialty(),
+                appointment.getPatient().getFirstName(),
+                appointment.getPatient().getLastName(),
+                appointment.getPatient().getEmail(),
+                appointment.getDateTime().format(DATE_FORMAT),
+                appointment.getDiagnosis(),
+                appointment.getTreatment());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static Paragraph centered(String text, Font font) {
+        Paragraph paragraph = new Paragraph(text, font);
+        paragraph.setAlignment(Element.ALIGN_CENTER);
+        return paragraph;
+    }
 }
@@ -0,0 +1,50 @@
+package com.medibook.api;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Base de los tests de integración: levantan el contexto completo contra un
+ * Postgres real, porque varias consultas (advisory locks, {@code SKIP LOCKED},
+ * {@code ON CONFLICT}) no tienen equivalente en una base embebida.
+ * <p>
+ * Con la variable {@code TEST_DB_URL} (y opcionalmente {@code TEST_DB_USERNAME}
+ * y {@code TEST_DB_PASSWORD}) se usa esa base; si no, se levanta un contenedor
+ * con Testcontainers, compartido por todos los tests de la corrida. Los tests
+ * no deben depender de que la base esté vacía.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+public abstract class PostgresIntegrationTest {
+
+    private static PostgreSQLContainer<?> container;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        String url = System.getenv("TEST_DB_URL");
+        if (url != null && !url.isBlank()) {
+            registry.add("spring.datasource.url", () -> url);
+            registry.add("spring.datasource.username", () -> env("TEST_DB_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> env("TEST_DB_PASSWORD", ""));
+            return;
+        }
+        PostgreSQLContainer<?> postgres = container();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,45 @@
+package com.medibook.api;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual. Se
+ * registra con {@code @Import(QueryCounter.Config.class)}; contar por hilo
+ * deja afuera las consultas de tareas en segundo plano que corren a la vez.
+ */
+public final class QueryCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> statements = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get()[0]++;
+        return sql;
+    }
+
+    public void reset() {
+        statements.get()[0] = 0;
+    }
+
+    public int count() {
+        return statements.get()[0];
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public QueryCounter queryCounter() {
+            return new QueryCounter();
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+        }
+    }
+}
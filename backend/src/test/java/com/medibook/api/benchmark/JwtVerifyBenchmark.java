@@ -0,0 +1,108 @@
+package com.medibook.api.benchmark;
+
+import com.medibook.api.security.AuthenticatedUser;
+import com.medibook.api.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de autenticar una petición por su JWT:
+ * <ul>
+ * <li>{@code perRequestParser}: el camino anterior, que armaba clave y parser en
+ * cada llamada y parseaba el token tres veces por petición.</li>
+ * <li>{@code verifyMiss}: {@link JwtUtil#verify} con un token nuevo en cada
+ * llamada (un parseo con el parser compartido).</li>
+ * <li>{@code verifyHit}: {@link JwtUtil#verify} con un token ya verificado.</li>
+ * </ul>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="JwtVerifyBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String LEGACY_SECRET = "benchmarkSecretKey12345678901234567890";
+    // Más tokens que entradas en la caché de la variante sin aciertos
+    private static final int DISTINCT_TOKENS = 4096;
+
+    private JwtUtil cachingJwt;
+    private JwtUtil missingJwt;
+    private String cachedToken;
+    private String[] tokens;
+    private String legacyToken;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cachingJwt = new JwtUtil(new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5));
+        missingJwt = new JwtUtil(new SimpleMeterRegistry(), 1, Duration.ofMinutes(5));
+        cachedToken = cachingJwt.generateToken(user(1));
+        cachingJwt.verify(cachedToken);
+
+        tokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = missingJwt.generateToken(user(i));
+        }
+
+        legacyToken = Jwts.builder()
+                .setSubject("paciente1@test.medibook.com")
+                .claim(JwtUtil.USER_ID_CLAIM, 1L)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(LEGACY_SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public Object perRequestParser() {
+        // Sujeto, vencimiento y validación: tres parseos, cada uno con su clave y su parser
+        Object subject = legacyClaims().getSubject();
+        Object expiration = legacyClaims().getExpiration();
+        return legacyClaims().getExpiration().before(new Date()) ? subject : expiration;
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken verifyMiss() {
+        String token = tokens[next];
+        next = (next + 1) % tokens.length;
+        return missingJwt.verify(token);
+    }
+
+    @Benchmark
+    public JwtUtil.VerifiedToken verifyHit() {
+        return cachingJwt.verify(cachedToken);
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(LEGACY_SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(legacyToken)
+                .getBody();
+    }
+
+    private static AuthenticatedUser user(long id) {
+        return new AuthenticatedUser(id, "paciente" + id + "@test.medibook.com", "PATIENT", id,
+                "Paciente " + id, "paciente" + id + "@test.medibook.com", "stamp");
+    }
+}
@@ -0,0 +1,71 @@
+package com.medibook.api.benchmark;
+
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.service.PdfService;
+import com.medibook.api.service.impl.PdfServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recetas generadas por segundo, escribiendo directo a un stream
+ * ({@code stream}) o armando el {@code byte[]} completo ({@code bytes}). Con
+ * {@code -prof gc} JMH informa además los bytes asignados por receta
+ * ({@code gc.alloc.rate.norm}):
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PrescriptionPdfBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrescriptionPdfBenchmark {
+
+    private final PdfService pdfService = new PdfServiceImpl();
+    private Appointment appointment;
+
+    @Setup
+    public void setUp() {
+        Doctor doctor = Doctor.builder()
+                .id(1L).firstName("Juan").lastName("Gómez").specialty("Clínica médica")
+                .email("juan.gomez@medibook.com").consultationPrice(100.0)
+                .build();
+        Patient patient = Patient.builder()
+                .id(1L).firstName("Ana").lastName("Pérez").email("ana.perez@test.medibook.com")
+                .build();
+        appointment = Appointment.builder()
+                .id(1L).doctor(doctor).patient(patient)
+                .dateTime(LocalDateTime.of(2030, 3, 4, 10, 0)).durationMinutes(30)
+                .status(AppointmentStatus.COMPLETED)
+                .diagnosis("Faringitis aguda")
+                .treatment("Ibuprofeno 400 mg cada 8 horas por 5 días.\nReposo relativo e hidratación abundante.")
+                .build();
+    }
+
+    @Benchmark
+    public OutputStream stream() {
+        OutputStream out = OutputStream.nullOutputStream();
+        pdfService.writePrescription(appointment, out);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] bytes() {
+        return pdfService.generatePrescription(appointment);
+    }
+}
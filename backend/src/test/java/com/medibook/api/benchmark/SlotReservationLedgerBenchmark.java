@@ -0,0 +1,73 @@
+package com.medibook.api.benchmark;
+
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.service.SlotReservationLedger;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Reservas por segundo del registro en memoria a medida que crecen los clientes
+ * concurrentes. Cada operación intenta apartar un turno de 30 minutos en un
+ * horario al azar de la jornada y, si lo logra, lo libera (como una
+ * cancelación), así el día nunca se llena. Con {@code doctors=1} todos los
+ * hilos compiten por el mismo bitset.
+ * <p>
+ * Se corre una vez por cantidad de hilos:
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="SlotReservationLedgerBenchmark -t 8"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotReservationLedgerBenchmark {
+
+    private static final int SLOTS_PER_DAY = 16;
+    private static final int DURATION_MINUTES = 30;
+
+    @Param({ "1", "20" })
+    public int doctors;
+
+    private SlotReservationLedger ledger;
+    private LocalDateTime dayStart;
+
+    @Setup
+    public void setUp() {
+        AppointmentRepository repository = Mockito.mock(AppointmentRepository.class);
+        Mockito.when(repository.findActiveSlotsByDoctorIdAndDateTimeBetween(any(), any(), any()))
+                .thenReturn(List.of());
+        ledger = new SlotReservationLedger(repository);
+        dayStart = LocalDate.now().plusDays(1).atTime(9, 0);
+    }
+
+    @Benchmark
+    public boolean reserveAndCancel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long doctorId = (long) random.nextInt(doctors);
+        LocalDateTime start = dayStart.plusMinutes((long) random.nextInt(SLOTS_PER_DAY) * DURATION_MINUTES);
+        if (!ledger.tryReserve(doctorId, start, DURATION_MINUTES)) {
+            return false;
+        }
+        ledger.releaseAfterCommit(doctorId, start, DURATION_MINUTES);
+        return true;
+    }
+}
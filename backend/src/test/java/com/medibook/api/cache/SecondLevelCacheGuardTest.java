@@ -0,0 +1,111 @@
+package com.medibook.api.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SecondLevelCacheGuardTest {
+
+    private static final String REGION = "com.medibook.api.entity.Doctor";
+    private static final long MIN_WRITES = 20;
+    private static final double MAX_WRITE_RATIO = 2.0;
+
+    private final SwitchableJCacheRegionFactory regionFactory = new SwitchableJCacheRegionFactory();
+    private final EntityStatistics entityStats = mock(EntityStatistics.class);
+    private final CacheRegionStatistics regionStats = mock(CacheRegionStatistics.class);
+    private SecondLevelCacheGuard guard;
+    private long writes;
+    private long reads;
+
+    @BeforeEach
+    void setUp() {
+        regionFactory.wrap(REGION, mock(DomainDataStorageAccess.class));
+        Statistics statistics = mock(Statistics.class);
+        when(statistics.getEntityStatistics(REGION)).thenReturn(entityStats);
+        when(statistics.getDomainDataRegionStatistics(REGION)).thenReturn(regionStats);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+        guard = new SecondLevelCacheGuard(entityManagerFactory, regionFactory, Map.of(REGION, REGION), MIN_WRITES,
+                MAX_WRITE_RATIO);
+    }
+
+    @Test
+    void firstCheckOnlyRecordsTheBaseline() {
+        interval(1000, 0);
+
+        assertThat(regionFactory.isEnabled(REGION)).isTrue();
+    }
+
+    @Test
+    void disablesWhenWritesExceedTheRatio() {
+        interval(0, 0);
+        interval(30, 10);
+
+        assertThat(regionFactory.isEnabled(REGION)).isFalse();
+    }
+
+    @Test
+    void ignoresIntervalsWithFewerThanMinWrites() {
+        interval(0, 0);
+        interval(MIN_WRITES - 1, 0);
+
+        assertThat(regionFactory.isEnabled(REGION)).isTrue();
+    }
+
+    @Test
+    void staysEnabledExactlyAtTheRatio() {
+        interval(0, 0);
+        interval(40, 20);
+
+        assertThat(regionFactory.isEnabled(REGION)).isTrue();
+    }
+
+    @Test
+    void reEnablesOnlyBelowHalfTheRatio() {
+        interval(0, 0);
+        interval(30, 10);
+        assertThat(regionFactory.isEnabled(REGION)).isFalse();
+
+        interval(30, 20);
+        assertThat(regionFactory.isEnabled(REGION)).isFalse();
+
+        interval(20, 20);
+        assertThat(regionFactory.isEnabled(REGION)).isTrue();
+    }
+
+    @Test
+    void countsInsertsUpdatesAndDeletesAsWrites() {
+        interval(0, 0);
+        when(entityStats.getInsertCount()).thenReturn(10L);
+        when(entityStats.getUpdateCount()).thenReturn(10L);
+        when(entityStats.getDeleteCount()).thenReturn(10L);
+        when(regionStats.getHitCount()).thenReturn(5L);
+        when(regionStats.getMissCount()).thenReturn(5L);
+        guard.check();
+
+        assertThat(regionFactory.isEnabled(REGION)).isFalse();
+    }
+
+    /** Suma un intervalo con las escrituras y lecturas indicadas y ejecuta la revisión. */
+    private void interval(long deltaWrites, long deltaReads) {
+        writes += deltaWrites;
+        reads += deltaReads;
+        when(entityStats.getUpdateCount()).thenReturn(writes);
+        when(regionStats.getHitCount()).thenReturn(reads);
+        guard.check();
+    }
+}
@@ -0,0 +1,87 @@
+package com.medibook.api.cache;
+
+import org.hibernate.cache.spi.support.AbstractReadWriteAccess;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SwitchableJCacheRegionFactoryTest {
+
+    private static final String REGION = "com.medibook.api.entity.Doctor";
+
+    private final SwitchableJCacheRegionFactory factory = new SwitchableJCacheRegionFactory();
+    private DomainDataStorageAccess delegate;
+    private DomainDataStorageAccess access;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(DomainDataStorageAccess.class);
+        access = factory.wrap(REGION, delegate);
+    }
+
+    @Test
+    void enabledRegionDelegatesEverything() {
+        when(delegate.getFromCache("k", null)).thenReturn("item");
+
+        assertThat(factory.isEnabled(REGION)).isTrue();
+        assertThat(access.getFromCache("k", null)).isEqualTo("item");
+        access.putIntoCache("k", "item", null);
+        access.putFromLoad("k", "item", null);
+
+        verify(delegate).putIntoCache("k", "item", null);
+        verify(delegate).putFromLoad("k", "item", null);
+    }
+
+    @Test
+    void disablingEvictsAndDropsDataButKeepsSoftLocks() {
+        AbstractReadWriteAccess.SoftLockImpl lock = mock(AbstractReadWriteAccess.SoftLockImpl.class);
+
+        assertThat(factory.setEnabled(REGION, false)).isTrue();
+        verify(delegate).evictData();
+        assertThat(factory.isEnabled(REGION)).isFalse();
+
+        access.putIntoCache("k", "item", null);
+        access.putFromLoad("k", "item", null);
+        verify(delegate, never()).putIntoCache("k", "item", null);
+        verify(delegate, never()).putFromLoad(any(), any(), any());
+
+        access.putIntoCache("k", lock, null);
+        verify(delegate).putIntoCache("k", lock, null);
+
+        when(delegate.getFromCache("k", null)).thenReturn(lock);
+        assertThat(access.getFromCache("k", null)).isSameAs(lock);
+        when(delegate.getFromCache("k", null)).thenReturn("item");
+        assertThat(access.getFromCache("k", null)).isNull();
+        assertThat(access.contains("k")).isFalse();
+
+        access.removeFromCache("k", null);
+        verify(delegate).removeFromCache("k", null);
+    }
+
+    @Test
+    void reEnablingKeepsTheLocksWrittenWhileDisabled() {
+        factory.setEnabled(REGION, false);
+        clearInvocations(delegate);
+
+        assertThat(factory.setEnabled(REGION, true)).isTrue();
+
+        verify(delegate, never()).evictData();
+        assertThat(factory.isEnabled(REGION)).isTrue();
+        access.putFromLoad("k", "item", null);
+        verify(delegate).putFromLoad("k", "item", null);
+    }
+
+    @Test
+    void unknownRegionCannotBeSwitched() {
+        assertThat(factory.setEnabled("otra", false)).isFalse();
+        assertThat(factory.isEnabled("otra")).isFalse();
+    }
+}
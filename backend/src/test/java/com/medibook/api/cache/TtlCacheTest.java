@@ -0,0 +1,76 @@
+package com.medibook.api.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TtlCacheTest {
+
+    @Test
+    void coldLoadCountsOneMissAndLaterReadsCountHits() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+
+        assertThat(cache.get("a")).isNull();
+        cache.putIfAbsent("a", "uno");
+        assertThat(cache.get("a")).isEqualTo("uno");
+        assertThat(cache.get("a")).isEqualTo("uno");
+
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(2);
+    }
+
+    @Test
+    void losingAConcurrentLoadKeepsTheFirstValueAndIsNotCounted() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        cache.get("a");
+        cache.get("a");
+
+        assertThat(cache.putIfAbsent("a", "primero")).isNull();
+        assertThat(cache.putIfAbsent("a", "segundo")).isEqualTo("primero");
+
+        assertThat(cache.misses()).isEqualTo(2);
+        assertThat(cache.hits()).isZero();
+        assertThat(cache.get("a")).isEqualTo("primero");
+    }
+
+    @Test
+    void expiredEntryIsAMissAndCanBeReplaced() throws InterruptedException {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMillis(20));
+        cache.putIfAbsent("a", "viejo");
+
+        Thread.sleep(40);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.putIfAbsent("a", "nuevo")).isNull();
+        assertThat(cache.get("a")).isEqualTo("nuevo");
+        assertThat(cache.misses()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test
+    void oldestEntryIsDroppedOverTheLimit() {
+        TtlCache<String, String> cache = new TtlCache<>(2, Duration.ofMinutes(1));
+        cache.putIfAbsent("a", "1");
+        cache.putIfAbsent("b", "2");
+        cache.putIfAbsent("c", "3");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void removeWithValueOnlyDropsThatValue() {
+        TtlCache<String, String> cache = new TtlCache<>(10, Duration.ofMinutes(1));
+        String current = new String("actual");
+        cache.putIfAbsent("a", current);
+
+        cache.remove("a", new String("actual"));
+        assertThat(cache.get("a")).isSameAs(current);
+
+        cache.remove("a", current);
+        assertThat(cache.get("a")).isNull();
+    }
+}
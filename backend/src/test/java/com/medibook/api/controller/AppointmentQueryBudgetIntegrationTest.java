@@ -0,0 +1,166 @@
+package com.medibook.api.controller;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.QueryCounter;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import com.medibook.api.security.AuthenticatedUser;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Presupuesto de consultas SQL por endpoint de citas. Los datos cruzan varios
+ * doctores y pacientes, así que un N+1 sobre las asociaciones perezosas supera
+ * el presupuesto en cuanto aparece. El contexto de persistencia se vacía antes
+ * de cada petición para que ninguna carga perezosa se resuelva desde memoria.
+ */
+@Transactional
+@AutoConfigureMockMvc
+@Import(QueryCounter.Config.class)
+class AppointmentQueryBudgetIntegrationTest extends PostgresIntegrationTest {
+
+    private static final int APPOINTMENTS = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private Patient patient;
+    private Doctor firstDoctor;
+    private List<Appointment> appointments;
+
+    @BeforeEach
+    void createAppointments() {
+        patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Budget").email(unique("eva")).build());
+        LocalDateTime day = LocalDateTime.now().plusDays(30).toLocalDate().atTime(9, 0);
+        appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Doctor doctor = doctorRepository.save(Doctor.builder()
+                    .firstName("Test").lastName("Budget " + i).specialty("Clínica")
+                    .email(unique("doctor")).consultationPrice(100.0)
+                    .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                    .build());
+            if (firstDoctor == null) {
+                firstDoctor = doctor;
+            }
+            Patient other = patientRepository.save(Patient.builder()
+                    .firstName("Otro").lastName("Budget " + i).email(unique("otro")).build());
+            appointments.add(appointmentRepository.save(Appointment.builder()
+                    .doctor(doctor).patient(patient).dateTime(day.plusHours(i)).durationMinutes(30)
+                    .status(AppointmentStatus.CONFIRMED).build()));
+            appointmentRepository.save(Appointment.builder()
+                    .doctor(firstDoctor).patient(other).dateTime(day.plusDays(1).plusHours(i)).durationMinutes(30)
+                    .status(AppointmentStatus.CONFIRMED).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void listingAllAppointmentsIsOneQuery() throws Exception {
+        assertThat(statementsFor(get("/api/appointments").with(admin()))).isEqualTo(1);
+    }
+
+    @Test
+    void pageOfAppointmentsIsOneQuery() throws Exception {
+        assertThat(statementsFor(get("/api/appointments")
+                .param("limit", "4").param("doctorId", firstDoctor.getId().toString()).with(admin())))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void patientHistoryIsOneQuery() throws Exception {
+        assertThat(statementsFor(get("/api/appointments/patient/{email}", patient.getEmail()).with(admin())))
+                .isEqualTo(1);
+        assertThat(statementsFor(get("/api/appointments/my-appointments").with(patientUser()))).isEqualTo(1);
+    }
+
+    @Test
+    void updatingStatusDoesNotLoadAssociationsOneByOne() throws Exception {
+        Long id = appointments.get(0).getId();
+
+        // Lectura con fetch join y el UPDATE
+        assertThat(statementsFor(patch("/api/appointments/{id}/status", id)
+                .param("status", "COMPLETED").with(admin()))).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void updatingDiagnosisDoesNotLoadAssociationsOneByOne() throws Exception {
+        Long id = appointments.get(0).getId();
+
+        assertThat(statementsFor(patch("/api/appointments/{id}/diagnosis", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"diagnosis\":\"Gripe\",\"treatment\":\"Reposo\"}")
+                .with(admin()))).isLessThanOrEqualTo(2);
+    }
+
+    private int statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        queryCounter.reset();
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+        // Las escrituras pendientes también cuentan
+        entityManager.flush();
+        int count = queryCounter.count();
+        entityManager.clear();
+        return count;
+    }
+
+    private static RequestPostProcessor admin() {
+        return authentication(token(new AuthenticatedUser(1L, "admin@test.medibook.com", "ADMIN", null, null, null,
+                "stamp")));
+    }
+
+    private RequestPostProcessor patientUser() {
+        return authentication(token(new AuthenticatedUser(2L, patient.getEmail(), "PATIENT", patient.getId(),
+                "Eva Budget", patient.getEmail(), "stamp")));
+    }
+
+    private static UsernamePasswordAuthenticationToken token(AuthenticatedUser user) {
+        return new UsernamePasswordAuthenticationToken(user, null, user.authorities());
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}
@@ -0,0 +1,138 @@
+package com.medibook.api.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void addressRunsOutAfterItsCapacityAndReportsRetryAfter() {
+        LoginThrottle throttle = throttle(100, Duration.ofMinutes(1), 3, Duration.ofSeconds(30));
+
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("10.0.0.1", "user" + i + "@test.medibook.com");
+        }
+
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", null))
+                .isInstanceOfSatisfying(TooManyRequestsException.class, e -> assertThat(
+                        Long.parseLong(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isBetween(1L, 30L));
+        assertThatCode(() -> throttle.acquire("10.0.0.2", null)).doesNotThrowAnyException();
+        assertThat(throttled("ip")).isEqualTo(1);
+    }
+
+    @Test
+    void accountIsLimitedAcrossAddressesIgnoringCase() {
+        LoginThrottle throttle = throttle(2, Duration.ofMinutes(1), 100, Duration.ofMinutes(1));
+
+        throttle.acquire("10.0.0.1", "Ana@test.medibook.com");
+        throttle.acquire("10.0.0.2", "ana@TEST.medibook.com");
+
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.3", "ana@test.medibook.com"))
+                .isInstanceOf(TooManyRequestsException.class);
+        assertThatCode(() -> throttle.acquire("10.0.0.3", "luis@test.medibook.com")).doesNotThrowAnyException();
+        assertThat(throttled("account")).isEqualTo(1);
+    }
+
+    @Test
+    void bucketRefillsOneTokenPerInterval() throws InterruptedException {
+        LoginThrottle throttle = throttle(100, Duration.ofMinutes(1), 2, Duration.ofMillis(100));
+        throttle.acquire("10.0.0.1", null);
+        throttle.acquire("10.0.0.1", null);
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", null)).isInstanceOf(TooManyRequestsException.class);
+
+        Thread.sleep(150);
+
+        throttle.acquire("10.0.0.1", null);
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", null)).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void idleTimeDoesNotBankMoreThanTheCapacity() throws InterruptedException {
+        LoginThrottle throttle = throttle(100, Duration.ofMinutes(1), 2, Duration.ofMillis(20));
+        throttle.acquire("10.0.0.1", null);
+
+        Thread.sleep(200);
+
+        throttle.acquire("10.0.0.1", null);
+        throttle.acquire("10.0.0.1", null);
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", null)).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void concurrentAttemptsNeverExceedTheCapacity() throws Exception {
+        int capacity = 25;
+        LoginThrottle throttle = throttle(100, Duration.ofMinutes(1), capacity, Duration.ofMinutes(1));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        throttle.acquire("10.0.0.1", null);
+                        return true;
+                    } catch (TooManyRequestsException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int granted = 0;
+            for (Future<Boolean> attempt : attempts) {
+                if (attempt.get(10, TimeUnit.SECONDS)) {
+                    granted++;
+                }
+            }
+            assertThat(granted).isEqualTo(capacity);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictionDropsOnlyRefilledBuckets() throws InterruptedException {
+        LoginThrottle throttle = throttle(100, Duration.ofMinutes(1), 5, Duration.ofMillis(20));
+        throttle.acquire("10.0.0.1", "ana@test.medibook.com");
+        throttle.acquire("10.0.0.2", null);
+        Thread.sleep(100);
+        // Recién usado: no está lleno y no se descarta
+        throttle.acquire("10.0.0.3", null);
+
+        throttle.evictIdle();
+
+        assertThat(buckets("ip")).isEqualTo(1);
+        // La cuenta se recarga cada minuto: sigue sin llenarse
+        assertThat(buckets("account")).isEqualTo(1);
+    }
+
+    private LoginThrottle throttle(int accountCapacity, Duration accountRefill, int addressCapacity,
+            Duration addressRefill) {
+        return new LoginThrottle(meterRegistry, accountCapacity, accountRefill, addressCapacity, addressRefill);
+    }
+
+    private double throttled(String scope) {
+        return meterRegistry.get("medibook.auth.throttled").tag("scope", scope).counter().count();
+    }
+
+    private double buckets(String scope) {
+        return meterRegistry.get("medibook.auth.throttle.buckets").tag("scope", scope).gauge().value();
+    }
+}
@@ -0,0 +1,160 @@
+package com.medibook.api.security;
+
+import com.medibook.api.model.User;
+import com.medibook.api.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Invalidación de usuarios autenticados: un cambio de rol o contraseña no puede
+ * quedar tapado por una carga concurrente que leyó el usuario anterior.
+ */
+class PrincipalCacheTest {
+
+    private static final String USERNAME = "eva@test.medibook.com";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AtomicReference<User> database = new AtomicReference<>(user("PATIENT"));
+    private final AtomicBoolean blockNextLoad = new AtomicBoolean();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private PrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findByUsername(anyString())).thenAnswer(invocation -> {
+            if (!USERNAME.equals(invocation.getArgument(0))) {
+                return Optional.empty();
+            }
+            User user = database.get();
+            if (blockNextLoad.compareAndSet(true, false)) {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return Optional.of(user);
+        });
+        cache = new PrincipalCache(userRepository, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadThatRacesAnInvalidationIsNotKept() throws Exception {
+        Future<AuthenticatedUser> slowRead = startSlowRead();
+
+        database.set(user("ADMIN"));
+        cache.invalidate(USERNAME);
+        release.countDown();
+
+        assertThat(slowRead.get(5, TimeUnit.SECONDS).role()).isEqualTo("PATIENT");
+        assertThat(cache.get(USERNAME).role()).isEqualTo("ADMIN");
+    }
+
+    @Test
+    void loadThatRacesAnInvalidateAllIsNotKept() throws Exception {
+        Future<AuthenticatedUser> slowRead = startSlowRead();
+
+        database.set(user("ADMIN"));
+        cache.invalidateAll();
+        release.countDown();
+
+        assertThat(slowRead.get(5, TimeUnit.SECONDS).role()).isEqualTo("PATIENT");
+        assertThat(cache.get(USERNAME).role()).isEqualTo("ADMIN");
+    }
+
+    @Test
+    void invalidationWaitsForTheCommit() {
+        AuthenticatedUser before = cache.get(USERNAME);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidateAfterCommit(USERNAME);
+        database.set(user("ADMIN"));
+
+        assertThat(cache.get(USERNAME)).isSameAs(before);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(cache.get(USERNAME).role()).isEqualTo("ADMIN");
+        assertThat(cache.get(USERNAME).credentialsStamp()).isNotEqualTo(before.credentialsStamp());
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        assertThat(cache.get("nadie@test.medibook.com")).isNull();
+        assertThat(cache.get("nadie@test.medibook.com")).isNull();
+
+        verify(userRepository, times(2)).findByUsername("nadie@test.medibook.com");
+    }
+
+    @Test
+    void readersNeverLeaveAStaleUserBehindAnInvalidation() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(pool.submit(() -> {
+                while (writing.get()) {
+                    cache.get(USERNAME);
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < 2_000; i++) {
+                String role = i % 2 == 0 ? "ADMIN" : "PATIENT";
+                User changed = user(role);
+                changed.setPassword("hash-" + i);
+                database.set(changed);
+                cache.invalidate(USERNAME);
+                assertThat(cache.get(USERNAME).credentialsStamp())
+                        .isEqualTo(AuthenticatedUser.of(changed).credentialsStamp());
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<?> reader : readers) {
+            reader.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private Future<AuthenticatedUser> startSlowRead() throws InterruptedException {
+        blockNextLoad.set(true);
+        Future<AuthenticatedUser> slowRead = pool.submit(() -> cache.get(USERNAME));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        return slowRead;
+    }
+
+    private static User user(String role) {
+        return User.builder().id(1L).username(USERNAME).password("hash").role(role).build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.event.AppointmentChangedEvent;
+import com.medibook.api.model.AppointmentStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Invalidación de agendas frente a lecturas concurrentes: una carga que empezó
+ * antes de una invalidación no puede dejar guardada la agenda vieja.
+ */
+class AgendaCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 4);
+
+    private final AgendaCache cache = new AgendaCache(100, Duration.ofMinutes(10));
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void loadThatRacesAnInvalidationIsNotKept() throws Exception {
+        AtomicLong database = new AtomicLong(1);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<List<AppointmentResponse>> slowRead = pool.submit(() -> cache.get(1L, DAY, () -> {
+            List<AppointmentResponse> agenda = agenda(database.get());
+            loading.countDown();
+            await(release);
+            return agenda;
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        database.set(2);
+        cache.invalidate(1L, DAY);
+        release.countDown();
+
+        assertThat(slowRead.get(5, TimeUnit.SECONDS)).isEqualTo(agenda(1));
+        assertThat(cache.get(1L, DAY, () -> agenda(database.get()))).isEqualTo(agenda(2));
+    }
+
+    @Test
+    void invalidationOnlyDropsThatDoctorAndDay() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<AppointmentResponse>> loader = () -> agenda(loads.incrementAndGet());
+        cache.get(1L, DAY, loader);
+        cache.get(1L, DAY.plusDays(1), loader);
+        cache.get(2L, DAY, loader);
+
+        cache.onAppointmentChanged(new AppointmentChangedEvent(10L, 1L, 5L, DAY.atTime(9, 0), 30,
+                AppointmentStatus.CONFIRMED, AppointmentStatus.CANCELLED));
+
+        cache.get(1L, DAY.plusDays(1), loader);
+        cache.get(2L, DAY, loader);
+        assertThat(loads).hasValue(3);
+        assertThat(cache.get(1L, DAY, loader)).isEqualTo(agenda(4));
+    }
+
+    @Test
+    void readersNeverLeaveAStaleAgendaBehindAnInvalidation() throws Exception {
+        AtomicLong database = new AtomicLong();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(pool.submit(() -> {
+                while (writing.get()) {
+                    cache.get(1L, DAY, () -> {
+                        List<AppointmentResponse> agenda = agenda(database.get());
+                        Thread.yield();
+                        return agenda;
+                    });
+                }
+            }));
+        }
+
+        try {
+            for (long version = 1; version <= 2_000; version++) {
+                database.set(version);
+                cache.invalidate(1L, DAY);
+                assertThat(cache.get(1L, DAY, () -> agenda(database.get()))).isEqualTo(agenda(version));
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<?> reader : readers) {
+            reader.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<AppointmentResponse> agenda(long version) {
+        return List.of(new AppointmentResponse(version, DAY.atTime(9, 0), 30, "Eva", "eva@test.medibook.com",
+                AppointmentStatus.CONFIRMED, "Dr. Test", "Clínica", null, null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.medibook.api.service;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
+import com.medibook.api.dto.AppointmentDTO.BatchItemResult;
+import com.medibook.api.dto.AppointmentDTO.BatchResponse;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Alta masiva de citas con el modo de reserva por defecto ({@code local}). Cada
+ * test corre en una transacción que se deshace al terminar.
+ */
+@Transactional
+class AppointmentBatchIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private Doctor doctor;
+    private LocalDateTime day;
+
+    @BeforeEach
+    void createDoctor() {
+        doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Test").lastName("Lote").specialty("Clínica")
+                .email(unique("doctor")).consultationPrice(100.0)
+                .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                .build());
+        day = LocalDateTime.now().plusDays(30).toLocalDate().atStartOfDay();
+    }
+
+    @Test
+    void missingNameOfANewPatientFailsOnlyThatItem() {
+        BatchResponse response = appointmentService.createAppointments(List.of(
+                request(day.withHour(9), "Ana Pérez", unique("ana")),
+                request(day.withHour(10), null, unique("sin-nombre")),
+                request(day.withHour(11), "  ", unique("en-blanco"))));
+
+        assertThat(statuses(response)).containsExactly(201, 400, 400);
+        assertThat(response.created()).isEqualTo(1);
+        // El turno del elemento rechazado no quedó reservado
+        assertThat(statuses(appointmentService.createAppointments(List.of(
+                request(day.withHour(10), "Otro Paciente", unique("otro")))))).containsExactly(201);
+    }
+
+    @Test
+    void existingPatientDoesNotNeedAName() {
+        Patient patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Gómez").email(unique("eva")).build());
+
+        BatchResponse response = appointmentService.createAppointments(List.of(
+                request(day.withHour(9), null, patient.getEmail())));
+
+        assertThat(statuses(response)).containsExactly(201);
+    }
+
+    @Test
+    void overlappingItemsOfTheSameBatchConflict() {
+        String email = unique("lote");
+        BatchResponse response = appointmentService.createAppointments(List.of(
+                request(day.withHour(9), 60, "Lote Uno", email),
+                request(day.withHour(9).withMinute(30), 30, "Lote Uno", email),
+                request(day.withHour(10), 30, "Lote Uno", email)));
+
+        assertThat(statuses(response)).containsExactly(201, 409, 201);
+    }
+
+    @Test
+    void itemsOverlappingExistingAppointmentsConflict() {
+        Patient patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Gómez").email(unique("eva")).build());
+        appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(patient).dateTime(day.withHour(12)).durationMinutes(60)
+                .status(AppointmentStatus.CONFIRMED).build());
+        appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(patient).dateTime(day.withHour(14)).durationMinutes(60)
+                .status(AppointmentStatus.CANCELLED).build());
+
+        BatchResponse response = appointmentService.createAppointments(List.of(
+                request(day.withHour(12).withMinute(30), 30, "Eva Gómez", patient.getEmail()),
+                request(day.withHour(11).withMinute(45), 30, "Eva Gómez", patient.getEmail()),
+                request(day.withHour(13), 30, "Eva Gómez", patient.getEmail()),
+                request(day.withHour(14), 30, "Eva Gómez", patient.getEmail())));
+
+        assertThat(statuses(response)).containsExactly(409, 409, 201, 201);
+    }
+
+    @Test
+    void itemsOnSeveralDaysAreCheckedPerDay() {
+        String email = unique("dias");
+        BatchResponse response = appointmentService.createAppointments(List.of(
+                request(day.withHour(9), "Varios Días", email),
+                request(day.plusDays(1).withHour(9), "Varios Días", email),
+                request(day.plusDays(7).withHour(9), "Varios Días", email),
+                request(day.plusDays(7).withHour(9), "Varios Días", email)));
+
+        assertThat(statuses(response)).containsExactly(201, 201, 201, 409);
+    }
+
+    private AppointmentRequest request(LocalDateTime dateTime, String name, String email) {
+        return request(dateTime, 30, name, email);
+    }
+
+    private AppointmentRequest request(LocalDateTime dateTime, int duration, String name, String email) {
+        return new AppointmentRequest(doctor.getId(), dateTime, name, email, duration, null, null);
+    }
+
+    private static List<Integer> statuses(BatchResponse response) {
+        return response.results().stream().map(BatchItemResult::status).toList();
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}
@@ -0,0 +1,168 @@
+package com.medibook.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exportación por bloques con keyset. El servicio se arma con bloques de dos
+ * filas para que los cortes caigan entre citas con la misma fecha. Cada test
+ * corre en una transacción que se deshace al terminar.
+ */
+@Transactional
+class AppointmentExportIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AppointmentExportService exportService;
+    private Doctor doctor;
+    private Patient patient;
+    private LocalDateTime day;
+    private List<Long> expectedIds;
+
+    @BeforeEach
+    void createAppointments() {
+        exportService = new AppointmentExportService(appointmentRepository, objectMapper, transactionManager, 2);
+        doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Test").lastName("Export").specialty("Clínica")
+                .email(unique("doctor")).consultationPrice(100.0)
+                .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                .build());
+        patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Export, \"CSV\"").email(unique("eva")).build());
+        // Un día lejano, para no cruzarse con otros datos de la base de pruebas
+        day = LocalDateTime.now().plusYears(5).toLocalDate().atStartOfDay();
+
+        expectedIds = new ArrayList<>();
+        for (LocalDateTime dateTime : List.of(day.withHour(9), day.withHour(9), day.withHour(9),
+                day.withHour(10), day.withHour(11))) {
+            expectedIds.add(appointmentRepository.save(Appointment.builder()
+                    .doctor(doctor).patient(patient).dateTime(dateTime).durationMinutes(30)
+                    .status(AppointmentStatus.CANCELLED).build()).getId());
+        }
+        // Fuera del período
+        appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(patient).dateTime(day.plusDays(1)).durationMinutes(30)
+                .status(AppointmentStatus.CONFIRMED).build());
+    }
+
+    @Test
+    void ndjsonCrossesChunksWithoutRepeatingOrSkippingRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exportService.export(day, day.plusDays(1), AppointmentExportService.Format.NDJSON, out);
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : lines(out)) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertThat(rows).isEqualTo(5);
+        assertThat(ids).containsExactlyElementsOf(expectedIds);
+    }
+
+    @Test
+    void csvHasHeaderAndQuotesFieldsThatNeedIt() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(day, day.plusDays(1), AppointmentExportService.Format.CSV, out);
+
+        List<String> lines = lines(out);
+        assertThat(lines).hasSize(6);
+        assertThat(lines.get(0)).startsWith("id,dateTime,");
+        assertThat(lines.get(1)).startsWith(expectedIds.get(0) + ",")
+                .contains(",\"Eva Export, \"\"CSV\"\"\",");
+    }
+
+    @Test
+    void exactMultipleOfTheChunkAndEmptyRangesEndCleanly() throws Exception {
+        assertThat(exportService.export(day, day.withHour(11), AppointmentExportService.Format.NDJSON,
+                new ByteArrayOutputStream())).isEqualTo(4);
+        assertThat(exportService.export(day.withHour(12), day.plusDays(1), AppointmentExportService.Format.NDJSON,
+                new ByteArrayOutputStream())).isZero();
+    }
+
+    /**
+     * Cada bloque lee del índice sólo sus propias filas: el total leído crece con
+     * las filas exportadas, no con su cuadrado.
+     */
+    @Test
+    void eachChunkSeeksToTheCursorInsteadOfRescanningTheRange() throws Exception {
+        LocalDateTime busyDay = day.plusDays(3);
+        for (int i = 0; i < 300; i++) {
+            appointmentRepository.save(Appointment.builder()
+                    .doctor(doctor).patient(patient).dateTime(busyDay.plusMinutes(i)).durationMinutes(30)
+                    .status(AppointmentStatus.CONFIRMED).build());
+        }
+        entityManager.flush();
+        // Con pocas filas en la base el planificador preferiría recorrer la tabla
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+        AppointmentExportService chunked = new AppointmentExportService(appointmentRepository, objectMapper,
+                transactionManager, 50);
+        long before = indexFetches();
+
+        long rows = chunked.export(busyDay, busyDay.plusDays(1), AppointmentExportService.Format.NDJSON,
+                new ByteArrayOutputStream());
+
+        assertThat(rows).isEqualTo(300);
+        // Releer el período desde el principio en cada bloque supera las mil filas
+        assertThat(indexFetches() - before).isLessThanOrEqualTo(rows + 7 * 2);
+    }
+
+    private long indexFetches() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(idx_tup_fetch, 0) FROM pg_stat_xact_user_tables"
+                + " WHERE relname = 'appointments'", Long.class);
+    }
+
+    private static List<String> lines(ByteArrayOutputStream out) {
+        String text = out.toString(StandardCharsets.UTF_8);
+        return text.isEmpty() ? List.of() : Arrays.asList(text.split("\n"));
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}
@@ -0,0 +1,211 @@
+package com.medibook.api.service;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentPage;
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Listado paginado por cursor (fecha, ID). Cada test corre en una transacción
+ * que se deshace al terminar y filtra por su propio doctor.
+ */
+@Transactional
+class AppointmentPageIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Doctor doctor;
+    private Patient patient;
+    private LocalDateTime day;
+    private List<Appointment> saved;
+
+    @BeforeEach
+    void createAppointments() {
+        doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Test").lastName("Cursor").specialty("Clínica")
+                .email(unique("doctor")).consultationPrice(100.0)
+                .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                .build());
+        patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Cursor").email(unique("eva")).build());
+        day = LocalDateTime.now().plusDays(30).toLocalDate().atStartOfDay();
+
+        saved = new ArrayList<>();
+        // Varias citas en la misma fecha: el ID desempata
+        saved.add(save(day.withHour(9), AppointmentStatus.CONFIRMED));
+        saved.add(save(day.withHour(9), AppointmentStatus.CANCELLED));
+        saved.add(save(day.withHour(9), AppointmentStatus.CANCELLED));
+        saved.add(save(day.withHour(10), AppointmentStatus.COMPLETED));
+        saved.add(save(day.withHour(11), AppointmentStatus.CONFIRMED));
+        saved.add(save(day.plusDays(1).withHour(9), AppointmentStatus.CANCELLED));
+        saved.add(save(day.plusDays(1).withHour(9), AppointmentStatus.CONFIRMED));
+    }
+
+    @Test
+    void walkingAscendingPagesVisitsEveryRowOnceInOrder() {
+        List<Long> expected = saved.stream()
+                .sorted(Comparator.comparing(Appointment::getDateTime).thenComparing(Appointment::getId))
+                .map(Appointment::getId).toList();
+
+        assertThat(walk(false, null, 2)).containsExactlyElementsOf(expected);
+        assertThat(walk(false, null, 7)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void walkingDescendingPagesVisitsEveryRowOnceInReverseOrder() {
+        List<Long> expected = saved.stream()
+                .sorted(Comparator.comparing(Appointment::getDateTime).thenComparing(Appointment::getId).reversed())
+                .map(Appointment::getId).toList();
+
+        assertThat(walk(true, null, 3)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        AppointmentPage page = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                null, saved.size());
+
+        assertThat(page.items()).hasSize(saved.size());
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void filtersApplyOnEveryPage() {
+        List<Long> cancelled = saved.stream()
+                .filter(appointment -> appointment.getStatus() == AppointmentStatus.CANCELLED)
+                .map(Appointment::getId).sorted().toList();
+
+        assertThat(walk(false, AppointmentStatus.CANCELLED, 1)).containsExactlyElementsOf(cancelled);
+
+        AppointmentPage firstDay = appointmentService.getAppointmentsPage(doctor.getId(), null, day,
+                day.plusDays(1), false, null, 50);
+        assertThat(firstDay.items()).hasSize(5)
+                .allSatisfy(item -> assertThat(item.dateTime()).isBefore(day.plusDays(1)));
+    }
+
+    @Test
+    void rowsInsertedBehindTheCursorDoNotShiftTheNextPage() {
+        AppointmentPage first = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                null, 3);
+        save(day.withHour(8), AppointmentStatus.CONFIRMED);
+
+        AppointmentPage second = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                first.nextCursor(), 3);
+
+        assertThat(second.items()).extracting(AppointmentResponse::id)
+                .containsExactly(saved.get(3).getId(), saved.get(4).getId(), saved.get(5).getId());
+    }
+
+    /**
+     * Una página lejana lee del índice sólo sus filas: el cursor es el punto de
+     * partida del recorrido, no un filtro sobre todo lo anterior. Se cuentan las
+     * filas leídas por índice en la transacción actual.
+     */
+    @Test
+    void farPageSeeksToTheCursorInsteadOfRescanningEarlierRows() {
+        for (int i = 0; i < 300; i++) {
+            save(day.plusDays(2).plusMinutes(i), AppointmentStatus.CONFIRMED);
+        }
+        entityManager.flush();
+        // Con pocas filas en la base el planificador preferiría recorrer la tabla
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+
+        for (boolean descending : new boolean[] { false, true }) {
+            String cursor = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, descending,
+                    null, 200).nextCursor();
+            cursor = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, descending,
+                    cursor, 100).nextCursor();
+            long before = indexFetches();
+
+            AppointmentPage page = appointmentService.getAppointmentsPage(doctor.getId(), null, null, null,
+                    descending, cursor, 5);
+
+            assertThat(page.items()).hasSize(5);
+            assertThat(indexFetches() - before).isLessThanOrEqualTo(10);
+        }
+    }
+
+    @Test
+    void invalidCursorOrLimitIsRejected() {
+        assertBadRequest(() -> appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                "no-es-un-cursor", 10));
+        assertBadRequest(() -> appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                null, 0));
+        assertBadRequest(() -> appointmentService.getAppointmentsPage(doctor.getId(), null, null, null, false,
+                null, 201));
+    }
+
+    private List<Long> walk(boolean descending, AppointmentStatus status, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            AppointmentPage page = appointmentService.getAppointmentsPage(doctor.getId(), status, null, null,
+                    descending, cursor, limit);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(limit);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private long indexFetches() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(idx_tup_fetch, 0) FROM pg_stat_xact_user_tables"
+                + " WHERE relname = 'appointments'", Long.class);
+    }
+
+    private Appointment save(LocalDateTime dateTime, AppointmentStatus status) {
+        return appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(patient).dateTime(dateTime).durationMinutes(30)
+                .status(status).build());
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run).isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}
@@ -0,0 +1,282 @@
+package com.medibook.api.service;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
+import com.medibook.api.dto.StatsDTO.DashboardStats;
+import com.medibook.api.dto.StatsDTO.DayStats;
+import com.medibook.api.dto.StatsDTO.DoctorStats;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Resumen de estadísticas mantenido por los triggers. Cada test corre en una
+ * transacción que se deshace al terminar; los triggers actúan en cada
+ * {@code flush}, así que las lecturas de la misma transacción ya los ven.
+ */
+@Transactional
+class AppointmentStatsIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private AppointmentStatsService statsService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Doctor doctor;
+    private Patient patient;
+    private LocalDate day;
+
+    @BeforeEach
+    void createDoctor() {
+        doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Test").lastName("Stats").specialty("Clínica")
+                .email(unique("doctor")).consultationPrice(100.0)
+                .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                .build());
+        patient = patientRepository.save(Patient.builder()
+                .firstName("Eva").lastName("Stats").email(unique("eva")).build());
+        // Un día lejano, para no cruzarse con otros datos de la base de pruebas
+        day = LocalDate.now().plusYears(6);
+    }
+
+    @Test
+    void insertsAndStatusChangesMoveTheCounters() {
+        Appointment first = save(day.atTime(9, 0), AppointmentStatus.CONFIRMED);
+        save(day.atTime(10, 0), AppointmentStatus.CONFIRMED);
+        save(day.plusDays(1).atTime(9, 0), AppointmentStatus.PENDING);
+        entityManager.flush();
+
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 2L)
+                .containsEntry(AppointmentStatus.PENDING, 1L);
+
+        appointmentService.updateStatus(first.getId(), AppointmentStatus.CANCELLED);
+        appointmentService.updateDiagnosis(first.getId(), "Control", "Nada");
+        entityManager.flush();
+
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 1L)
+                .containsEntry(AppointmentStatus.CANCELLED, 1L)
+                .containsEntry(AppointmentStatus.PENDING, 1L);
+        assertThat(dayCounts(day)).containsEntry(AppointmentStatus.CONFIRMED, 1L)
+                .containsEntry(AppointmentStatus.CANCELLED, 1L);
+    }
+
+    @Test
+    void batchInsertsAreCounted() {
+        appointmentService.createAppointments(List.of(
+                request(day.atTime(9, 0)), request(day.atTime(9, 30)), request(day.plusDays(2).atTime(9, 0))));
+        entityManager.flush();
+
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 3L);
+        assertThat(dayCounts(day)).containsEntry(AppointmentStatus.CONFIRMED, 2L);
+    }
+
+    @Test
+    void deletingAPatientRemovesTheirAppointmentsFromTheCounts() {
+        Patient other = patientRepository.save(Patient.builder()
+                .firstName("Otro").lastName("Stats").email(unique("otro")).build());
+        save(day.atTime(9, 0), AppointmentStatus.CONFIRMED);
+        save(day.atTime(10, 0), AppointmentStatus.COMPLETED);
+        appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(other).dateTime(day.atTime(11, 0)).durationMinutes(30)
+                .status(AppointmentStatus.CONFIRMED).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        patientRepository.delete(patientRepository.findById(patient.getId()).orElseThrow());
+        entityManager.flush();
+
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 1L)
+                .containsEntry(AppointmentStatus.COMPLETED, 0L);
+    }
+
+    @Test
+    void deletingADoctorDropsThemFromTheDashboard() {
+        save(day.atTime(9, 0), AppointmentStatus.CONFIRMED);
+        entityManager.flush();
+        entityManager.clear();
+
+        doctorRepository.delete(doctorRepository.findById(doctor.getId()).orElseThrow());
+        entityManager.flush();
+
+        assertThat(statsService.snapshot(day, day).byDoctor()).extracting(DoctorStats::doctorId)
+                .doesNotContain(doctor.getId());
+        assertThat(statsService.snapshot(day, day).byDay()).isEmpty();
+    }
+
+    @Test
+    void rebuildMatchesTheTriggerMaintainedSummary() {
+        save(day.atTime(9, 0), AppointmentStatus.CONFIRMED);
+        save(day.atTime(10, 0), AppointmentStatus.CANCELLED);
+        save(day.plusDays(3).atTime(9, 0), AppointmentStatus.PENDING);
+        entityManager.flush();
+        DashboardStats before = statsService.snapshot(day, day.plusDays(5));
+
+        statsService.rebuild();
+
+        assertThat(statsService.snapshot(day, day.plusDays(5))).isEqualTo(before);
+    }
+
+    @Test
+    void startupLeavesCurrentTriggersAndSummariesAlone() {
+        // Un total que el recálculo borraría
+        jdbcTemplate.update("INSERT INTO appointment_doctor_stats (doctor_id, status, stripe, total, updated_at)"
+                + " VALUES (?, 'PENDING', 0, 7, now())", doctor.getId());
+
+        statsService.afterSingletonsInstantiated();
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.PENDING, 7L);
+
+        statsService.rebuild();
+        assertThat(doctorCounts()).isEmpty();
+    }
+
+    @Test
+    void startupReinstallsMissingTriggersAndBackfills() {
+        jdbcTemplate.execute("DROP TRIGGER trg_appointment_daily_stats_insert ON appointments");
+        save(day.atTime(9, 0), AppointmentStatus.CONFIRMED);
+        entityManager.flush();
+        assertThat(doctorCounts()).isEmpty();
+
+        statsService.afterSingletonsInstantiated();
+
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 1L);
+        save(day.atTime(10, 0), AppointmentStatus.CONFIRMED);
+        entityManager.flush();
+        assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 2L);
+    }
+
+    /**
+     * Dos reservas sin confirmar del mismo doctor y día, desde conexiones de
+     * franjas distintas: la segunda no espera a la primera. Sin transacción de
+     * test, porque cada conexión confirma (o no) por su cuenta.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void concurrentBookingsForTheSameDoctorAndDayDoNotWaitOnEachOther() throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            Connection first = open(connections);
+            Connection second = open(connections);
+            while (stripe(second) == stripe(first)) {
+                second = open(connections);
+            }
+            insert(first, day.atTime(9, 0));
+
+            try (Statement statement = second.createStatement()) {
+                statement.execute("SET LOCAL lock_timeout = '2s'");
+            }
+            insert(second, day.atTime(10, 0));
+            first.commit();
+            second.commit();
+
+            assertThat(doctorCounts()).containsEntry(AppointmentStatus.CONFIRMED, 2L);
+            assertThat(dayCounts(day)).containsEntry(AppointmentStatus.CONFIRMED, 2L);
+        } finally {
+            for (Connection connection : connections) {
+                connection.rollback();
+                connection.close();
+            }
+            jdbcTemplate.update("DELETE FROM appointments WHERE doctor_id = ?", doctor.getId());
+            patientRepository.deleteById(patient.getId());
+            doctorRepository.deleteById(doctor.getId());
+        }
+    }
+
+    private Connection open(List<Connection> connections) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connections.add(connection);
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private static int stripe(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT pg_backend_pid() % 16")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void insert(Connection connection, LocalDateTime dateTime) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO appointments"
+                + " (id, doctor_id, patient_id, date_time, duration_minutes, status)"
+                + " VALUES (nextval('appointments_seq'), ?, ?, ?, 30, 'CONFIRMED')")) {
+            statement.setLong(1, doctor.getId());
+            statement.setLong(2, patient.getId());
+            statement.setTimestamp(3, Timestamp.valueOf(dateTime));
+            statement.executeUpdate();
+        }
+    }
+
+    private Map<AppointmentStatus, Long> doctorCounts() {
+        return statsService.snapshot(day, day).byDoctor().stream()
+                .filter(stats -> stats.doctorId().equals(doctor.getId()))
+                .findFirst().map(DoctorStats::byStatus).orElse(Map.of());
+    }
+
+    private Map<AppointmentStatus, Long> dayCounts(LocalDate date) {
+        return statsService.snapshot(date, date).byDay().stream()
+                .filter(stats -> stats.day().equals(date))
+                .findFirst().map(DayStats::byStatus).orElse(Map.of());
+    }
+
+    private Appointment save(LocalDateTime dateTime, AppointmentStatus status) {
+        return appointmentRepository.save(Appointment.builder()
+                .doctor(doctor).patient(patient).dateTime(dateTime).durationMinutes(30)
+                .status(status).build());
+    }
+
+    private AppointmentRequest request(LocalDateTime dateTime) {
+        return new AppointmentRequest(doctor.getId(), dateTime, "Eva Stats", patient.getEmail(), 30, null, null);
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}
@@ -0,0 +1,11 @@
+package com.medibook.api.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Los mismos casos de alta masiva con el modo de reserva {@code cluster}
+ * (advisory locks por doctor y día y verificación en memoria del lote).
+ */
+@TestPropertySource(properties = "medibook.booking.reservation-mode=cluster")
+class ClusterAppointmentBatchIntegrationTest extends AppointmentBatchIntegrationTest {
+}
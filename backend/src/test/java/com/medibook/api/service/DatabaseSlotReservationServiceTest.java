@@ -0,0 +1,91 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabaseSlotReservationServiceTest {
+
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(?, ?)";
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 12);
+
+    private AppointmentRepository appointmentRepository;
+    private JdbcTemplate jdbcTemplate;
+    private DatabaseSlotReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        service = new DatabaseSlotReservationService(appointmentRepository, jdbcTemplate);
+    }
+
+    @Test
+    void locksThePreviousDayWhenTheLookbackCrossesMidnight() {
+        service.tryReserve(1L, DAY.atTime(0, 30), 30);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(1), eq(epochDay(DAY.minusDays(1))));
+        order.verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(1), eq(epochDay(DAY)));
+    }
+
+    @Test
+    void locksTheNextDayWhenTheBookingEndsAfterMidnight() {
+        service.tryReserve(1L, DAY.atTime(23, 30), 60);
+
+        verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(1), eq(epochDay(DAY)));
+        verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(1), eq(epochDay(DAY.plusDays(1))));
+        verify(jdbcTemplate, times(2)).query(eq(LOCK), any(ResultSetExtractor.class), any(), any());
+    }
+
+    @Test
+    void batchLocksEachDoctorDayOnceInOrderAndQueriesOnce() {
+        when(appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(any(), any(), any()))
+                .thenReturn(List.of(new BookedSlot(2L, DAY.atTime(10, 0), 60)));
+
+        SlotReservationService.BatchReservation batch = service.openBatch(List.of(
+                new BookedSlot(2L, DAY.atTime(9, 0), 30),
+                new BookedSlot(1L, DAY.atTime(9, 0), 30),
+                new BookedSlot(2L, DAY.atTime(10, 30), 30),
+                new BookedSlot(1L, DAY.atTime(9, 15), 30)));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(1), eq(epochDay(DAY)));
+        order.verify(jdbcTemplate).query(eq(LOCK), any(ResultSetExtractor.class), eq(2), eq(epochDay(DAY)));
+        verify(jdbcTemplate, times(2)).query(eq(LOCK), any(ResultSetExtractor.class), any(), any());
+        verify(appointmentRepository, times(1)).findActiveSlotsByDoctorIdInAndDateTimeBetween(any(), any(), any());
+
+        assertThat(batch.tryReserve(2L, DAY.atTime(9, 0), 30)).isTrue();
+        assertThat(batch.tryReserve(1L, DAY.atTime(9, 0), 30)).isTrue();
+        // Choca con la cita existente de 10:00 a 11:00
+        assertThat(batch.tryReserve(2L, DAY.atTime(10, 30), 30)).isFalse();
+        // Choca con el turno de 9:00 aceptado antes en el mismo lote
+        assertThat(batch.tryReserve(1L, DAY.atTime(9, 15), 30)).isFalse();
+        assertThat(batch.tryReserve(1L, DAY.atTime(9, 30), 30)).isTrue();
+
+        verify(jdbcTemplate, times(2)).query(anyString(), any(ResultSetExtractor.class), any(), any());
+        verify(appointmentRepository, never()).findActiveSlotsByDoctorIdAndDateTimeBetween(any(), any(), any());
+    }
+
+    private static int epochDay(LocalDate day) {
+        return (int) day.toEpochDay();
+    }
+}
@@ -0,0 +1,64 @@
+package com.medibook.api.service;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.dto.AppointmentDTO.AppointmentRequest;
+import com.medibook.api.dto.AvailabilityInterval;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.DoctorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Transactional
+class DoctorAvailabilityIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Test
+    void eveningShiftEndingAtMidnightIsBookable() {
+        Doctor doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Guardia").lastName("Nocturna").specialty("Clínica")
+                .email("guardia-" + UUID.randomUUID() + "@test.medibook.com").consultationPrice(100.0)
+                .build());
+
+        doctorService.replaceAvailability(doctor.getId(), List.of(
+                new AvailabilityInterval(DayOfWeek.MONDAY, LocalTime.of(18, 0), LocalTime.MIDNIGHT)));
+
+        assertThat(doctorService.getAvailability(doctor.getId()))
+                .containsExactly(new AvailabilityInterval(DayOfWeek.MONDAY, LocalTime.of(18, 0), LocalTime.MIDNIGHT));
+        LocalDate monday = LocalDate.now().plusDays(1).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        assertThat(appointmentService.createAppointment(new AppointmentRequest(doctor.getId(),
+                monday.atTime(23, 30), "Paciente Tarde", "tarde-" + UUID.randomUUID() + "@test.medibook.com",
+                30, null, null)).id()).isNotNull();
+    }
+
+    @Test
+    void intervalEndingBeforeItStartsIsRejected() {
+        Doctor doctor = doctorRepository.save(Doctor.builder()
+                .firstName("Horario").lastName("Invertido").specialty("Clínica")
+                .email("invertido-" + UUID.randomUUID() + "@test.medibook.com").consultationPrice(100.0)
+                .build());
+
+        assertThatThrownBy(() -> doctorService.replaceAvailability(doctor.getId(), List.of(
+                new AvailabilityInterval(DayOfWeek.MONDAY, LocalTime.of(18, 0), LocalTime.of(9, 0)))))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+}
@@ -0,0 +1,163 @@
+package com.medibook.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medibook.api.dto.DoctorResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Invalidación del catálogo de doctores: sólo al confirmar la transacción, y sin
+ * que una carga concurrente deje guardado el catálogo anterior.
+ */
+class DoctorCatalogCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DoctorCatalogCache cache = new DoctorCatalogCache(objectMapper, new SimpleMeterRegistry(), 100,
+            Duration.ofMinutes(10));
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final AtomicLong database = new AtomicLong(1);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void catalogLoadThatRacesAnInvalidationIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<byte[]> slowRead = pool.submit(() -> cache.catalogJson(() -> {
+            List<DoctorResponse> doctors = catalog(database.get());
+            loading.countDown();
+            await(release);
+            return doctors;
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        database.set(2);
+        cache.invalidate(1L);
+        release.countDown();
+
+        assertThat(slowRead.get(5, TimeUnit.SECONDS)).isEqualTo(objectMapper.writeValueAsBytes(catalog(1)));
+        assertThat(cache.catalogJson(() -> catalog(database.get())))
+                .isEqualTo(objectMapper.writeValueAsBytes(catalog(2)));
+        assertThat(cache.catalogList(() -> catalog(database.get()))).isEqualTo(catalog(2));
+    }
+
+    @Test
+    void doctorLoadThatRacesAnInvalidationIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<DoctorResponse> slowRead = pool.submit(() -> cache.get(1L, () -> {
+            DoctorResponse doctor = doctor(database.get());
+            loading.countDown();
+            await(release);
+            return doctor;
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        database.set(2);
+        cache.invalidate(1L);
+        release.countDown();
+
+        assertThat(slowRead.get(5, TimeUnit.SECONDS)).isEqualTo(doctor(1));
+        assertThat(cache.get(1L, () -> doctor(database.get()))).isEqualTo(doctor(2));
+    }
+
+    @Test
+    void invalidationWaitsForTheCommit() {
+        cache.catalogList(() -> catalog(database.get()));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidateAfterCommit(1L);
+        database.set(2);
+
+        // Antes de confirmar se sigue viendo el catálogo confirmado
+        assertThat(cache.catalogList(() -> catalog(database.get()))).isEqualTo(catalog(1));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(cache.catalogList(() -> catalog(database.get()))).isEqualTo(catalog(2));
+    }
+
+    @Test
+    void rollbackKeepsTheCatalog() {
+        cache.catalogList(() -> catalog(database.get()));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidateAfterCommit(1L);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        database.set(2);
+
+        assertThat(cache.catalogList(() -> catalog(database.get()))).isEqualTo(catalog(1));
+    }
+
+    @Test
+    void readersNeverLeaveAStaleCatalogBehindAnInvalidation() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(pool.submit(() -> {
+                while (writing.get()) {
+                    cache.catalogList(() -> {
+                        List<DoctorResponse> doctors = catalog(database.get());
+                        Thread.yield();
+                        return doctors;
+                    });
+                }
+            }));
+        }
+
+        try {
+            for (long version = 2; version <= 2_000; version++) {
+                database.set(version);
+                cache.invalidate(1L);
+                assertThat(cache.catalogList(() -> catalog(database.get()))).isEqualTo(catalog(version));
+            }
+        } finally {
+            writing.set(false);
+        }
+        for (Future<?> reader : readers) {
+            reader.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<DoctorResponse> catalog(long version) {
+        return List.of(doctor(version), new DoctorResponse(2L, "Ana", "Ruiz", "Pediatría", "ana@medibook.com",
+                null, 90.0));
+    }
+
+    private static DoctorResponse doctor(long version) {
+        return new DoctorResponse(1L, "Juan", "Gómez", "Clínica", "juan@medibook.com", "Versión " + version, 100.0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
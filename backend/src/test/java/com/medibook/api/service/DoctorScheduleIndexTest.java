@@ -0,0 +1,114 @@
+package com.medibook.api.service;
+
+import com.medibook.api.model.Availability;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AvailabilityRepository;
+import com.medibook.api.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DoctorScheduleIndexTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 1).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private AvailabilityRepository availabilityRepository;
+    private DoctorRepository doctorRepository;
+    private DoctorScheduleIndex index;
+    private Doctor doctor;
+
+    @BeforeEach
+    void setUp() {
+        availabilityRepository = mock(AvailabilityRepository.class);
+        doctorRepository = mock(DoctorRepository.class);
+        index = new DoctorScheduleIndex(availabilityRepository, doctorRepository);
+        doctor = Doctor.builder().id(7L).build();
+    }
+
+    @Test
+    void loadsOnceAndServesFromMemory() {
+        when(availabilityRepository.findByDoctorId(7L)).thenReturn(List.of(monday(9, 12)));
+
+        assertThat(index.get(doctor).covers(MONDAY.atTime(9, 0), 30)).isTrue();
+        assertThat(index.get(doctor).covers(MONDAY.atTime(12, 0), 30)).isFalse();
+        verify(availabilityRepository, times(1)).findByDoctorId(7L);
+    }
+
+    @Test
+    void invalidationDuringALoadIsNotOverwritten() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        // La primera carga lee el horario viejo y termina después de la invalidación
+        when(availabilityRepository.findByDoctorId(7L))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    assertThat(invalidated.await(5, TimeUnit.SECONDS)).isTrue();
+                    return List.of(monday(9, 12));
+                })
+                .thenReturn(List.of(monday(14, 18)));
+
+        CompletableFuture<WeeklySchedule> stale = CompletableFuture.supplyAsync(() -> index.get(doctor));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        index.invalidate(7L);
+        invalidated.countDown();
+        assertThat(stale.get(5, TimeUnit.SECONDS).covers(MONDAY.atTime(9, 0), 30)).isTrue();
+
+        WeeklySchedule current = index.get(doctor);
+        assertThat(current.covers(MONDAY.atTime(9, 0), 30)).isFalse();
+        assertThat(current.covers(MONDAY.atTime(14, 0), 30)).isTrue();
+    }
+
+    @Test
+    void warmUpDoesNotRestoreAnInvalidatedSchedule() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Availability old = monday(9, 12);
+        old.setDoctor(doctor);
+        when(availabilityRepository.findAllWithDoctor()).thenAnswer(invocation -> {
+            loading.countDown();
+            assertThat(invalidated.await(5, TimeUnit.SECONDS)).isTrue();
+            return List.of(old);
+        });
+        when(doctorRepository.findAll()).thenReturn(List.of(doctor));
+        when(availabilityRepository.findByDoctorId(7L)).thenReturn(List.of(monday(14, 18)));
+
+        CompletableFuture<Void> warmUp = CompletableFuture.runAsync(index::warmUp);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        index.invalidate(7L);
+        invalidated.countDown();
+        warmUp.get(5, TimeUnit.SECONDS);
+
+        assertThat(index.get(doctor).covers(MONDAY.atTime(14, 0), 30)).isTrue();
+    }
+
+    @Test
+    void scheduleEndingAtMidnightCoversTheLastSlot() {
+        when(availabilityRepository.findByDoctorId(7L)).thenReturn(List.of(Availability.builder()
+                .dayOfWeek(DayOfWeek.MONDAY).startTime(LocalTime.of(18, 0)).endTime(LocalTime.MIDNIGHT).build()));
+
+        assertThat(index.get(doctor).covers(MONDAY.atTime(23, 30), 30)).isTrue();
+        assertThat(index.get(doctor).describe(DayOfWeek.MONDAY)).isEqualTo("18:00-24:00");
+    }
+
+    private static Availability monday(int startHour, int endHour) {
+        return Availability.builder()
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .startTime(LocalTime.of(startHour, 0))
+                .endTime(LocalTime.of(endHour, 0))
+                .build();
+    }
+}
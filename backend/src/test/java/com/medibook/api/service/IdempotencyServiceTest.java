@@ -0,0 +1,168 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AppointmentDTO.AppointmentResponse;
+import com.medibook.api.model.AppointmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyService service;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(100, Duration.ofHours(1), Duration.ofSeconds(2));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void repeatedKeyReturnsTheFirstResponse() {
+        AppointmentResponse first = service.execute("user", "k1", "body", () -> create(1L));
+        AppointmentResponse second = service.execute("user", "k1", "body", () -> create(2L));
+
+        assertThat(second).isSameAs(first);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void keysAreScopedPerClient() {
+        service.execute("ana", "k1", "body", () -> create(1L));
+        AppointmentResponse other = service.execute("luis", "k1", "body", () -> create(2L));
+
+        assertThat(other.id()).isEqualTo(2L);
+    }
+
+    @Test
+    void sameKeyWithADifferentBodyIsRejected() {
+        service.execute("user", "k1", "body", () -> create(1L));
+
+        assertThatThrownBy(() -> service.execute("user", "k1", "otro", () -> create(2L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void withoutKeyEveryRequestRuns() {
+        service.execute("user", null, "body", () -> create(1L));
+        service.execute("user", null, "body", () -> create(2L));
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void failedRequestsAreNotRemembered() {
+        assertThatThrownBy(() -> service.execute("user", "k1", "body", () -> {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        })).isInstanceOf(ResponseStatusException.class);
+
+        assertThat(service.execute("user", "k1", "body", () -> create(1L)).id()).isEqualTo(1L);
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheOriginal() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<AppointmentResponse> original = CompletableFuture.supplyAsync(() ->
+                service.execute("user", "k1", "body", () -> {
+                    started.countDown();
+                    await(finish);
+                    return create(1L);
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<AppointmentResponse> duplicate = startWaitingDuplicate();
+        finish.countDown();
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS)).isSameAs(original.get(5, TimeUnit.SECONDS));
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void duplicateGivesUpWith409WhenTheOriginalHangs() throws Exception {
+        service = new IdempotencyService(100, Duration.ofHours(1), Duration.ofMillis(200));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<AppointmentResponse> original = CompletableFuture.supplyAsync(() ->
+                service.execute("user", "k1", "body", () -> {
+                    started.countDown();
+                    await(finish);
+                    return create(1L);
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> service.execute("user", "k1", "body", () -> create(2L)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        finish.countDown();
+        original.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void anErrorInTheOriginalReleasesWaitersAndTheKey() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<AppointmentResponse> original = CompletableFuture.supplyAsync(() ->
+                service.execute("user", "k1", "body", () -> {
+                    started.countDown();
+                    await(finish);
+                    throw new StackOverflowError();
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<AppointmentResponse> duplicate = startWaitingDuplicate();
+        finish.countDown();
+
+        assertThatThrownBy(() -> duplicate.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> original.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+        assertThat(service.execute("user", "k1", "body", () -> create(3L)).id()).isEqualTo(3L);
+    }
+
+    private AppointmentResponse create(Long id) {
+        executions.incrementAndGet();
+        return new AppointmentResponse(id, LocalDateTime.of(2030, 1, 1, 10, 0), 30, "Ana Pérez",
+                "ana@test.com", AppointmentStatus.CONFIRMED, "Juan Gómez", "Clínica", null, null);
+    }
+
+    /**
+     * Lanza el duplicado en su propio hilo y espera a que quede bloqueado aguardando la respuesta original.
+     */
+    private CompletableFuture<AppointmentResponse> startWaitingDuplicate() throws InterruptedException {
+        CompletableFuture<AppointmentResponse> duplicate = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                duplicate.complete(service.execute("user", "k1", "body", () -> create(2L)));
+            } catch (Throwable e) {
+                duplicate.completeExceptionally(e);
+            }
+        });
+        thread.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+        return duplicate;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
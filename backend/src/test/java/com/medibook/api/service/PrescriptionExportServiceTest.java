@@ -0,0 +1,241 @@
+package com.medibook.api.service;
+
+import com.medibook.api.model.Appointment;
+import com.medibook.api.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exportación de recetas con un generador de PDF falso: contenido del ZIP,
+ * lotes acotados por {@code max-in-flight} y cancelación de lo pendiente.
+ */
+class PrescriptionExportServiceTest {
+
+    private static final int THREADS = 2;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final LocalDateTime DATE = LocalDateTime.of(2030, 3, 4, 9, 0);
+
+    private final StubPdfService pdfService = new StubPdfService();
+    private AppointmentRepository appointmentRepository;
+    private PrescriptionExportService service;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findWithPatientAndDoctorByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> Appointment.builder().id(id).dateTime(DATE).build()).toList();
+        });
+        service = new PrescriptionExportService(appointmentRepository, pdfService, THREADS, MAX_IN_FLIGHT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pdfService.release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void writesEveryPrescriptionAsAStoredEntry() throws IOException {
+        List<Long> ids = ids(23);
+        pdfService.release.countDown();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(service.writeZip(ids, out)).isEqualTo(ids.size());
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                byte[] content = zip.readAllBytes();
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                assertThat(entry.getSize()).isEqualTo(content.length);
+                assertThat(entry.getCompressedSize()).isEqualTo(content.length);
+                assertThat(entry.getCrc()).isEqualTo(crc.getValue());
+                entries.put(entry.getName(), content);
+            }
+        }
+        assertThat(entries).hasSize(ids.size());
+        for (Long id : ids) {
+            assertThat(entries.get("receta_2030-03-04_" + id + ".pdf")).isEqualTo(StubPdfService.content(id));
+        }
+        verify(appointmentRepository, times(6)).findWithPatientAndDoctorByIdIn(anyCollection());
+    }
+
+    @Test
+    void stopsLoadingWhileMaxInFlightPrescriptionsAreUnwritten() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                service.writeZip(ids(40), OutputStream.nullOutputStream());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+        assertThat(pdfService.started.await(THREADS)).isTrue();
+
+        // Con los PDF trabados sólo se cargó el lote que ya no entra en la cola
+        Thread.sleep(200);
+        verify(appointmentRepository, atMost(2)).findWithPatientAndDoctorByIdIn(anyCollection());
+
+        pdfService.release.countDown();
+        writer.join(5000);
+        assertThat(writer.isAlive()).isFalse();
+        assertThat(failure.get()).isNull();
+        verify(appointmentRepository, times(10)).findWithPatientAndDoctorByIdIn(anyCollection());
+    }
+
+    @Test
+    void renderFailureCancelsThePendingPrescriptions() throws Exception {
+        pdfService.failing = id -> id == 1;
+
+        assertThatThrownBy(() -> service.writeZip(ids(MAX_IN_FLIGHT), OutputStream.nullOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasRootCauseMessage("PDF roto");
+
+        assertPendingRendersWereInterrupted(1);
+    }
+
+    @Test
+    void interruptingTheExportCancelsThePendingPrescriptions() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<Boolean> stillInterrupted = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                service.writeZip(ids(MAX_IN_FLIGHT), OutputStream.nullOutputStream());
+            } catch (Throwable e) {
+                failure.set(e);
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        writer.start();
+        assertThat(pdfService.started.await(THREADS)).isTrue();
+
+        writer.interrupt();
+        writer.join(5000);
+
+        assertThat(failure.get()).isInstanceOf(InterruptedIOException.class);
+        assertThat(stillInterrupted.get()).isTrue();
+        assertPendingRendersWereInterrupted(0);
+    }
+
+    /**
+     * Todo render que llegó a empezar (menos los que fallaron a propósito) tiene
+     * que terminar interrumpido, y ninguno de los que seguían en la cola arranca.
+     */
+    private void assertPendingRendersWereInterrupted(int failed) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pdfService.interrupted.get() < pdfService.started.get() - failed && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        int started = pdfService.started.get();
+        assertThat(pdfService.interrupted.get()).isEqualTo(started - failed);
+        Thread.sleep(100);
+        assertThat(pdfService.started.get()).isEqualTo(started);
+        assertThat(pdfService.completed.get()).isZero();
+    }
+
+    private static List<Long> ids(int count) {
+        return LongStream.rangeClosed(1, count).boxed().toList();
+    }
+
+    private static final class StubPdfService implements PdfService {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Counter started = new Counter();
+        private final AtomicInteger interrupted = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile LongPredicate failing = id -> false;
+
+        static byte[] content(long id) {
+            return ("%PDF receta " + id + " ").repeat((int) id).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public byte[] generatePrescription(Appointment appointment) {
+            started.increment();
+            if (failing.test(appointment.getId())) {
+                throw new IllegalStateException("PDF roto");
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Render interrumpido", e);
+            }
+            completed.incrementAndGet();
+            return content(appointment.getId());
+        }
+
+        @Override
+        public void writePrescription(Appointment appointment, OutputStream out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String prescriptionVersion(Appointment appointment) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /** Contador que permite esperar a que llegue a un valor. */
+    private static final class Counter {
+
+        private int value;
+
+        synchronized void increment() {
+            value++;
+            notifyAll();
+        }
+
+        synchronized int get() {
+            return value;
+        }
+
+        synchronized boolean await(int target) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (value < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+}
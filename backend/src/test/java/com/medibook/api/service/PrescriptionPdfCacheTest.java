@@ -0,0 +1,142 @@
+package com.medibook.api.service;
+
+import com.medibook.api.model.Appointment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Caché de recetas en disco: un archivo devuelto por {@code get} no se borra
+ * mientras puede estar enviándose. Cada instancia nueva sobre el mismo
+ * directorio equivale a un reinicio (memoria vacía, disco intacto).
+ */
+class PrescriptionPdfCacheTest {
+
+    private static final Duration GRACE = Duration.ofMinutes(10);
+
+    @TempDir
+    Path directory;
+
+    private PdfService pdfService;
+    private Appointment appointment;
+
+    @BeforeEach
+    void setUp() {
+        pdfService = mock(PdfService.class);
+        when(pdfService.generatePrescription(any())).thenAnswer(
+                invocation -> ("pdf " + pdfService.prescriptionVersion(appointment)).getBytes());
+        when(pdfService.prescriptionVersion(any())).thenReturn("v1");
+        appointment = Appointment.builder().id(7L).build();
+    }
+
+    @Test
+    void missRendersOnceAndLaterHitsComeFromMemoryOrDisk() throws IOException {
+        PrescriptionPdfCache cache = cache(DataSize.ofMegabytes(1));
+
+        PrescriptionPdfCache.Prescription rendered = cache.get(appointment);
+        PrescriptionPdfCache.Prescription fromMemory = cache.get(appointment);
+        PrescriptionPdfCache.Prescription fromDisk = cache(DataSize.ofMegabytes(1)).get(appointment);
+
+        assertThat(rendered.content()).isEqualTo("pdf v1".getBytes());
+        assertThat(fromMemory.content()).isEqualTo(rendered.content());
+        assertThat(fromDisk.file()).isNotNull();
+        assertThat(Files.readAllBytes(fromDisk.file())).isEqualTo(rendered.content());
+        assertThat(fromDisk.size()).isEqualTo(rendered.content().length);
+        verify(pdfService, times(1)).generatePrescription(any());
+    }
+
+    @Test
+    void newVersionDoesNotDeleteTheFileBeingServed() throws IOException {
+        cache(DataSize.ofMegabytes(1)).get(appointment);
+        PrescriptionPdfCache.Prescription served = cache(DataSize.ofMegabytes(1)).get(appointment);
+
+        when(pdfService.prescriptionVersion(any())).thenReturn("v2");
+        PrescriptionPdfCache cache = cache(DataSize.ofMegabytes(1));
+        cache.get(appointment);
+        cache.trimDisk();
+
+        assertThat(Files.readAllBytes(served.file())).isEqualTo("pdf v1".getBytes());
+        assertThat(pdfFiles()).hasSize(2);
+    }
+
+    @Test
+    void supersededVersionIsDeletedAfterTheGracePeriod() throws IOException {
+        PrescriptionPdfCache cache = cache(DataSize.ofMegabytes(1));
+        cache.get(appointment);
+        Path old = directory.resolve("7-v1.pdf");
+        age(old, GRACE.plusMinutes(1));
+        when(pdfService.prescriptionVersion(any())).thenReturn("v2");
+        cache.get(appointment);
+
+        cache.trimDisk();
+
+        assertThat(pdfFiles()).containsExactly(directory.resolve("7-v2.pdf"));
+    }
+
+    @Test
+    void trimOverTheLimitKeepsRecentlyServedFiles() throws IOException {
+        PrescriptionPdfCache cache = cache(DataSize.ofBytes(1));
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            Appointment other = Appointment.builder().id(100L + i).build();
+            cache.get(other);
+            files[i] = directory.resolve((100 + i) + "-v1.pdf");
+            age(files[i], GRACE.plusMinutes(10 - i));
+        }
+        // Pedido otra vez desde disco: vuelve a estar en uso
+        PrescriptionPdfCache.Prescription served = cache(DataSize.ofBytes(1))
+                .get(Appointment.builder().id(100L).build());
+
+        cache.trimDisk();
+
+        assertThat(served.file()).isEqualTo(files[0]);
+        assertThat(pdfFiles()).containsExactly(files[0]);
+    }
+
+    @Test
+    void trimStopsOnceUnderTheLimit() throws IOException {
+        PrescriptionPdfCache cache = cache(DataSize.ofBytes(15));
+        for (int i = 0; i < 3; i++) {
+            cache.get(Appointment.builder().id(200L + i).build());
+            age(directory.resolve((200 + i) + "-v1.pdf"), GRACE.plusMinutes(10 - i));
+        }
+
+        cache.trimDisk();
+
+        // Cada receta ocupa 6 bytes: alcanza con borrar la de uso más antiguo
+        assertThat(pdfFiles()).containsExactlyInAnyOrder(directory.resolve("201-v1.pdf"),
+                directory.resolve("202-v1.pdf"));
+    }
+
+    private PrescriptionPdfCache cache(DataSize diskMaxSize) {
+        return new PrescriptionPdfCache(pdfService, new SimpleMeterRegistry(), 100, Duration.ofHours(1),
+                directory.toString(), diskMaxSize, GRACE);
+    }
+
+    private static void age(Path file, Duration age) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age.toMillis()));
+    }
+
+    private List<Path> pdfFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".pdf")).sorted().toList();
+        }
+    }
+}
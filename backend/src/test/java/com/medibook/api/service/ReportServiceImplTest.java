@@ -0,0 +1,216 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.ReportDTO.DoctorReport;
+import com.medibook.api.dto.ReportDTO.RangeReport;
+import com.medibook.api.event.AppointmentChangedEvent;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.ReportRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Totales del reporte armados desde una instantánea de filas conocidas.
+ */
+class ReportServiceImplTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 1).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private final List<ReportRow> rows = new ArrayList<>();
+    private AppointmentRepository appointmentRepository;
+    private DoctorRepository doctorRepository;
+    private DoctorScheduleIndex doctorScheduleIndex;
+    private Doctor first;
+    private Doctor second;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        doctorRepository = mock(DoctorRepository.class);
+        doctorScheduleIndex = mock(DoctorScheduleIndex.class);
+        first = Doctor.builder().id(1L).firstName("Ana").lastName("Paz").consultationPrice(100.0).build();
+        second = Doctor.builder().id(2L).firstName("Luis").lastName("Gil").consultationPrice(50.0).build();
+
+        when(appointmentRepository.streamReportRows()).thenAnswer(invocation -> List.copyOf(rows).stream());
+        when(doctorRepository.findAll()).thenReturn(List.of(second, first));
+        when(doctorScheduleIndex.get(first)).thenReturn(WeeklySchedule.EMPTY);
+        when(doctorScheduleIndex.get(second)).thenReturn(WeeklySchedule.EMPTY);
+    }
+
+    @Test
+    void lastDayIsInclusiveAndNeighbouringDaysAreLeftOut() {
+        LocalDate from = MONDAY;
+        LocalDate to = MONDAY.plusDays(2);
+        row(1L, from.minusDays(1).atTime(23, 59), 30, AppointmentStatus.COMPLETED);
+        row(1L, from.atStartOfDay(), 30, AppointmentStatus.COMPLETED);
+        row(2L, from.atTime(10, 0), 45, AppointmentStatus.CONFIRMED);
+        row(1L, from.atTime(11, 0), 30, AppointmentStatus.CANCELLED);
+        row(2L, to.atTime(12, 0), 15, AppointmentStatus.PENDING);
+        row(1L, to.atTime(23, 59), 30, AppointmentStatus.COMPLETED);
+        row(1L, to.plusDays(1).atStartOfDay(), 30, AppointmentStatus.COMPLETED);
+
+        RangeReport report = service(Duration.ofMinutes(1)).doctorReport(from, to);
+
+        assertThat(report.doctors()).extracting(DoctorReport::doctorId).containsExactly(1L, 2L);
+        DoctorReport ana = report.doctors().get(0);
+        assertThat(ana.completedAppointments()).isEqualTo(2);
+        assertThat(ana.bookedMinutes()).isEqualTo(60);
+        assertThat(ana.revenue()).isEqualByComparingTo("200");
+        DoctorReport luis = report.doctors().get(1);
+        assertThat(luis.completedAppointments()).isZero();
+        assertThat(luis.bookedMinutes()).isEqualTo(60);
+        assertThat(report.totalRevenue()).isEqualByComparingTo("200");
+    }
+
+    @Test
+    void singleDayRangeCountsOnlyThatDay() {
+        row(1L, MONDAY.atTime(9, 0), 30, AppointmentStatus.COMPLETED);
+        row(1L, MONDAY.plusDays(1).atTime(9, 0), 30, AppointmentStatus.COMPLETED);
+
+        RangeReport report = service(Duration.ofMinutes(1)).doctorReport(MONDAY.plusDays(1), MONDAY.plusDays(1));
+
+        assertThat(report.doctors().get(0).completedAppointments()).isEqualTo(1);
+    }
+
+    @Test
+    void rangeWithoutAppointmentsOrDoctorsWithoutRowsReportZero() {
+        row(1L, MONDAY.atTime(9, 0), 30, AppointmentStatus.COMPLETED);
+
+        RangeReport report = service(Duration.ofMinutes(1)).doctorReport(MONDAY.plusYears(1), MONDAY.plusYears(1));
+
+        assertThat(report.doctors()).allSatisfy(doctor -> {
+            assertThat(doctor.completedAppointments()).isZero();
+            assertThat(doctor.bookedMinutes()).isZero();
+        });
+        assertThat(report.totalRevenue()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void parallelSplitMatchesASequentialSum() {
+        // Muchas más filas que el umbral secuencial, para que fork/join divida el rango varias veces
+        AppointmentStatus[] statuses = AppointmentStatus.values();
+        LocalDateTime start = MONDAY.atStartOfDay();
+        for (int i = 0; i < 100_000; i++) {
+            row(i % 3 == 0 ? 2L : 1L, start.plusMinutes(i * 7L), 10 + i % 5, statuses[i % statuses.length]);
+        }
+        LocalDate from = MONDAY.plusDays(40);
+        LocalDate to = MONDAY.plusDays(400);
+
+        RangeReport report = service(Duration.ofMinutes(1)).doctorReport(from, to);
+
+        long[] expected = new long[4];
+        int inRange = 0;
+        for (ReportRow row : rows) {
+            LocalDate day = row.dateTime().toLocalDate();
+            if (day.isBefore(from) || day.isAfter(to)) {
+                continue;
+            }
+            inRange++;
+            int slot = row.doctorId() == 1L ? 0 : 2;
+            if (row.status() == AppointmentStatus.COMPLETED) {
+                expected[slot]++;
+            }
+            if (row.status() != AppointmentStatus.CANCELLED) {
+                expected[slot + 1] += row.durationMinutes();
+            }
+        }
+        assertThat(inRange).isGreaterThan(4 << 14);
+        assertThat(report.doctors().get(0).completedAppointments()).isEqualTo(expected[0]);
+        assertThat(report.doctors().get(0).bookedMinutes()).isEqualTo(expected[1]);
+        assertThat(report.doctors().get(1).completedAppointments()).isEqualTo(expected[2]);
+        assertThat(report.doctors().get(1).bookedMinutes()).isEqualTo(expected[3]);
+    }
+
+    @Test
+    void availableMinutesCountEachWeekdayOfTheRange() {
+        when(doctorScheduleIndex.get(first)).thenReturn(WeeklySchedule.builder()
+                .add(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0))
+                .add(DayOfWeek.WEDNESDAY, LocalTime.of(9, 0), LocalTime.of(9, 30))
+                .build());
+        when(doctorScheduleIndex.get(second)).thenReturn(WeeklySchedule.everyDay(LocalTime.of(9, 0), LocalTime.of(10, 0)));
+        row(1L, MONDAY.atTime(9, 0), 45, AppointmentStatus.CONFIRMED);
+        ReportService service = service(Duration.ofMinutes(1));
+
+        // Lunes a miércoles de la semana siguiente: dos lunes y dos miércoles
+        RangeReport tenDays = service.doctorReport(MONDAY, MONDAY.plusDays(9));
+        assertThat(tenDays.doctors().get(0).availableMinutes()).isEqualTo(180);
+        assertThat(tenDays.doctors().get(0).utilization()).isEqualTo(0.25);
+        assertThat(tenDays.doctors().get(1).availableMinutes()).isEqualTo(600);
+
+        // Una semana exacta que empieza en jueves tiene un solo lunes y un solo miércoles
+        RangeReport week = service.doctorReport(MONDAY.plusDays(3), MONDAY.plusDays(9));
+        assertThat(week.doctors().get(0).availableMinutes()).isEqualTo(90);
+
+        RangeReport tuesday = service.doctorReport(MONDAY.plusDays(1), MONDAY.plusDays(1));
+        assertThat(tuesday.doctors().get(0).availableMinutes()).isZero();
+        assertThat(tuesday.doctors().get(0).utilization()).isZero();
+    }
+
+    @Test
+    void changesAreIgnoredUntilTheSnapshotIsBothStaleAndOld() {
+        row(1L, MONDAY.atTime(9, 0), 30, AppointmentStatus.COMPLETED);
+        ReportServiceImpl service = service(Duration.ofHours(1));
+        assertThat(completed(service)).isEqualTo(1);
+
+        row(1L, MONDAY.atTime(10, 0), 30, AppointmentStatus.COMPLETED);
+        service.onAppointmentChanged(changed());
+
+        assertThat(completed(service)).isEqualTo(1);
+        verify(appointmentRepository, times(1)).streamReportRows();
+    }
+
+    @Test
+    void staleSnapshotIsServedWhileTheReloadRunsAndReplacedAfterwards() {
+        row(1L, MONDAY.atTime(9, 0), 30, AppointmentStatus.COMPLETED);
+        ReportServiceImpl service = service(Duration.ZERO);
+        assertThat(completed(service)).isEqualTo(1);
+
+        // Sin cambios no se recarga aunque la instantánea ya sea vieja
+        row(1L, MONDAY.atTime(10, 0), 30, AppointmentStatus.COMPLETED);
+        assertThat(completed(service)).isEqualTo(1);
+        verify(appointmentRepository, times(1)).streamReportRows();
+
+        service.onAppointmentChanged(changed());
+        assertThat(completed(service)).isEqualTo(1);
+        assertThat(completed(service)).isEqualTo(2);
+        verify(appointmentRepository, times(2)).streamReportRows();
+    }
+
+    private ReportServiceImpl service(Duration maxAge) {
+        return new ReportServiceImpl(appointmentRepository, doctorRepository, doctorScheduleIndex,
+                mock(PlatformTransactionManager.class), new SyncTaskExecutor(), maxAge);
+    }
+
+    private long completed(ReportService service) {
+        return service.doctorReport(MONDAY, MONDAY).doctors().get(0).completedAppointments();
+    }
+
+    private void row(Long doctorId, LocalDateTime dateTime, int minutes, AppointmentStatus status) {
+        rows.add(new ReportRow(doctorId, dateTime, minutes, status));
+    }
+
+    private static AppointmentChangedEvent changed() {
+        return new AppointmentChangedEvent(1L, 1L, 1L, MONDAY.atTime(10, 0), 30, null,
+                AppointmentStatus.COMPLETED);
+    }
+}
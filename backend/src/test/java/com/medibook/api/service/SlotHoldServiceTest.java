@@ -0,0 +1,219 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlotHoldServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 3, 4, 10, 0);
+
+    private SlotReservationService reservations;
+    private SlotHoldService service;
+
+    @BeforeEach
+    void setUp() {
+        reservations = mock(SlotReservationService.class);
+        when(reservations.tryReserve(anyLong(), any(), anyInt())).thenReturn(true);
+        service = new SlotHoldService(reservations, Duration.ofMinutes(5), 3);
+        service.startReaper();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopReaper();
+    }
+
+    @Test
+    void onlyTheOwnerCanConsumeAHold() {
+        SlotHoldService.Hold hold = service.hold("ana", 1L, START, 30);
+
+        assertThat(service.consume(hold.getId(), "luis", 1L, START, 30)).isFalse();
+        assertThat(service.consume(hold.getId(), null, 1L, START, 30)).isFalse();
+        assertThat(service.consume(hold.getId(), "ana", 1L, START, 30)).isTrue();
+        assertThat(service.consume(hold.getId(), "ana", 1L, START, 30)).isFalse();
+    }
+
+    @Test
+    void consumeRejectsADifferentSlot() {
+        SlotHoldService.Hold hold = service.hold("ana", 1L, START, 30);
+
+        assertThat(service.consume(hold.getId(), "ana", 1L, START.plusMinutes(30), 30)).isFalse();
+        assertThat(service.consume(hold.getId(), "ana", 1L, START, 60)).isFalse();
+        assertThat(service.consume(hold.getId(), "ana", 2L, START, 30)).isFalse();
+    }
+
+    @Test
+    void overlappingHoldIsRefused() {
+        assertThat(service.hold("ana", 1L, START, 30)).isNotNull();
+
+        assertThat(service.hold("luis", 1L, START.plusMinutes(15), 30)).isNull();
+        assertThat(service.hold("luis", 2L, START, 30)).isNotNull();
+    }
+
+    @Test
+    void takenSlotDoesNotCountAgainstTheLimit() {
+        when(reservations.tryReserve(1L, START, 30)).thenReturn(false);
+
+        assertThat(service.hold("ana", 1L, START, 30)).isNull();
+        assertThat(ownerCount()).isZero();
+    }
+
+    @Test
+    void limitHoldsUnderConcurrentRequests() throws Exception {
+        int attempts = 12;
+        ExecutorService pool = Executors.newFixedThreadPool(attempts);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            LocalDateTime start = START.plusHours(i);
+            results.add(pool.submit(() -> {
+                go.await();
+                try {
+                    return service.hold("ana", 1L, start, 30) != null;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            }));
+        }
+        go.countDown();
+
+        int granted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(5, TimeUnit.SECONDS)) {
+                granted++;
+            }
+        }
+        pool.shutdown();
+        assertThat(granted).isEqualTo(3);
+    }
+
+    /**
+     * Con la reserva en la base, dos reservas temporales del mismo horario pasan
+     * ambas el chequeo inicial: la segunda espera el advisory lock de la primera
+     * y, como no hay cita guardada, la reserva también la acepta. El lock se
+     * simula con un {@link ReentrantLock} que se suelta al volver de
+     * {@code hold}, como al confirmar la transacción.
+     */
+    @Test
+    void concurrentHoldsOfTheSameSlotWithTheDatabaseReservation() throws Exception {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ReentrantLock advisoryLock = new ReentrantLock();
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class), any(), any())).thenAnswer(invocation -> {
+            if (!advisoryLock.isHeldByCurrentThread()) {
+                advisoryLock.lock();
+            }
+            return null;
+        });
+        CountDownLatch firstReserving = new CountDownLatch(1);
+        CountDownLatch secondWaiting = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        when(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(eq(1L), any(), any()))
+                .thenAnswer(invocation -> {
+                    if (first.compareAndSet(true, false)) {
+                        firstReserving.countDown();
+                        secondWaiting.await(5, TimeUnit.SECONDS);
+                    }
+                    return List.of();
+                });
+        service.stopReaper();
+        service = new SlotHoldService(new DatabaseSlotReservationService(appointmentRepository, jdbcTemplate),
+                Duration.ofMinutes(5), 3);
+        service.startReaper();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<SlotHoldService.Hold> ana = pool.submit(() -> holdInTransaction(advisoryLock, "ana"));
+            assertThat(firstReserving.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<SlotHoldService.Hold> luis = pool.submit(() -> holdInTransaction(advisoryLock, "luis"));
+            while (!advisoryLock.hasQueuedThreads()) {
+                Thread.sleep(5);
+            }
+            secondWaiting.countDown();
+
+            assertThat(ana.get(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(luis.get(5, TimeUnit.SECONDS)).isNull();
+            assertThat(service.heldSlots(List.of(1L), START, START)).hasSize(1);
+            assertThat(ownerCount()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SlotHoldService.Hold holdInTransaction(ReentrantLock advisoryLock, String owner) {
+        try {
+            return service.hold(owner, 1L, START, 30);
+        } finally {
+            if (advisoryLock.isHeldByCurrentThread()) {
+                advisoryLock.unlock();
+            }
+        }
+    }
+
+    @Test
+    void releasingEveryHoldForgetsTheOwner() {
+        List<SlotHoldService.Hold> held = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            held.add(service.hold("ana", 1L, START.plusHours(i), 30));
+        }
+        assertThatThrownBy(() -> service.hold("ana", 1L, START.plusHours(5), 30))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.release(held.get(0).getId(), "luis")).isFalse();
+        assertThat(service.release(held.get(0).getId(), "ana")).isTrue();
+        assertThat(service.consume(held.get(1).getId(), "ana", 1L, START.plusHours(1), 30)).isTrue();
+        assertThat(service.release(held.get(2).getId(), "ana")).isTrue();
+
+        assertThat(ownerCount()).isZero();
+        verify(reservations).releaseAfterCommit(1L, START, 30);
+        verify(reservations, never()).releaseAfterCommit(1L, START.plusHours(1), 30);
+    }
+
+    @Test
+    void expiredHoldReleasesTheSlot() {
+        service.stopReaper();
+        service = new SlotHoldService(reservations, Duration.ofMillis(50), 3);
+        service.startReaper();
+
+        SlotHoldService.Hold hold = service.hold("ana", 1L, START, 30);
+
+        verify(reservations, timeout(2000)).releaseAfterCommit(1L, START, 30);
+        assertThat(service.consume(hold.getId(), "ana", 1L, START, 30)).isFalse();
+        assertThat(service.isHeld(1L, START, START.plusMinutes(30))).isFalse();
+        assertThat(ownerCount()).isZero();
+    }
+
+    private int ownerCount() {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(service, "holdsByOwner")).size();
+    }
+}
@@ -0,0 +1,200 @@
+package com.medibook.api.service;
+
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlotReservationLedgerTest {
+
+    private static final Long DOCTOR_ID = 1L;
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+
+    private AppointmentRepository appointmentRepository;
+    private SlotReservationLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(any(), any(), any()))
+                .thenReturn(List.of());
+        ledger = new SlotReservationLedger(appointmentRepository);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void overlappingIntervalsConflict() {
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isFalse();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(9, 45), 30)).isFalse();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 29), 5)).isFalse();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(9, 30), 30)).isTrue();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 30), 30)).isTrue();
+        assertThat(ledger.tryReserve(2L, DAY.atTime(10, 0), 30)).isTrue();
+    }
+
+    @Test
+    void intervalsSpanningSeveralWordsAreAllOrNothing() {
+        // 01:00 es el minuto 60: el turno cruza la primera palabra de 64 minutos
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(1, 10), 10)).isTrue();
+
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(0, 30), 45)).isFalse();
+        // Lo tomado antes de chocar se deshizo
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(0, 30), 40)).isTrue();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(1, 20), 200)).isTrue();
+    }
+
+    @Test
+    void loadsEachDayOnceWithExistingAppointments() {
+        when(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(eq(DOCTOR_ID), any(), any()))
+                .thenReturn(List.of(new BookedSlot(DOCTOR_ID, DAY.atTime(11, 0), 60)));
+
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(11, 30), 30)).isFalse();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(12, 0), 30)).isTrue();
+
+        verify(appointmentRepository, times(1)).findActiveSlotsByDoctorIdAndDateTimeBetween(eq(DOCTOR_ID), any(),
+                any());
+    }
+
+    @Test
+    void batchLoadsAllItsDaysWithOneQuery() {
+        when(appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(any(), any(), any()))
+                .thenReturn(List.of(new BookedSlot(DOCTOR_ID, DAY.plusDays(1).atTime(9, 0), 30)));
+
+        SlotReservationService.BatchReservation batch = ledger.openBatch(List.of(
+                new BookedSlot(DOCTOR_ID, DAY.atTime(9, 0), 30),
+                new BookedSlot(DOCTOR_ID, DAY.plusDays(1).atTime(9, 0), 30),
+                new BookedSlot(2L, DAY.atTime(9, 0), 30)));
+
+        assertThat(batch.tryReserve(DOCTOR_ID, DAY.atTime(9, 0), 30)).isTrue();
+        assertThat(batch.tryReserve(DOCTOR_ID, DAY.atTime(9, 15), 30)).isFalse();
+        assertThat(batch.tryReserve(DOCTOR_ID, DAY.plusDays(1).atTime(9, 0), 30)).isFalse();
+        assertThat(batch.tryReserve(2L, DAY.atTime(9, 0), 30)).isTrue();
+        verify(appointmentRepository, times(1)).findActiveSlotsByDoctorIdInAndDateTimeBetween(any(), any(), any());
+        verify(appointmentRepository, never()).findActiveSlotsByDoctorIdAndDateTimeBetween(any(), any(), any());
+    }
+
+    @Test
+    void concurrentClaimsOnTheSameSlotHaveOneWinner() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                LocalDateTime start = DAY.atTime(9, 0).plusMinutes(round * 10L);
+                CountDownLatch go = new CountDownLatch(1);
+                AtomicInteger winners = new AtomicInteger();
+                Future<?>[] futures = new Future<?>[threads];
+                for (int t = 0; t < threads; t++) {
+                    // Turnos de distinta duración que se pisan en el mismo minuto inicial
+                    int duration = 5 + t % 4;
+                    futures[t] = executor.submit(() -> {
+                        go.await();
+                        if (ledger.tryReserve(DOCTOR_ID, start, duration)) {
+                            winners.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+                go.countDown();
+                for (Future<?> future : futures) {
+                    future.get(5, TimeUnit.SECONDS);
+                }
+                assertThat(winners).hasValue(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rollbackReleasesTheReservation() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+    }
+
+    @Test
+    void releaseWaitsForCommit() {
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.releaseAfterCommit(DOCTOR_ID, DAY.atTime(10, 0), 30);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isFalse();
+        TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+    }
+
+    @Test
+    void releaseCommittedWhileTheDayLoadsIsNotLost() throws Exception {
+        CountDownLatch queried = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        // La consulta lee la cita todavía activa; la cancelación confirma antes de que termine
+        when(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(eq(DOCTOR_ID), any(), any()))
+                .thenAnswer(invocation -> {
+                    queried.countDown();
+                    assertThat(released.await(5, TimeUnit.SECONDS)).isTrue();
+                    return List.of(new BookedSlot(DOCTOR_ID, DAY.atTime(10, 0), 30));
+                });
+
+        CompletableFuture<Boolean> reserve = CompletableFuture
+                .supplyAsync(() -> ledger.tryReserve(DOCTOR_ID, DAY.atTime(14, 0), 30));
+        assertThat(queried.await(5, TimeUnit.SECONDS)).isTrue();
+        ledger.releaseAfterCommit(DOCTOR_ID, DAY.atTime(10, 0), 30);
+        released.countDown();
+
+        assertThat(reserve.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isTrue();
+    }
+
+    @Test
+    void failedLoadIsRetried() {
+        when(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(eq(DOCTOR_ID), any(), any()))
+                .thenThrow(new IllegalStateException("sin conexión"))
+                .thenReturn(List.of(new BookedSlot(DOCTOR_ID, DAY.atTime(10, 0), 30)));
+
+        assertThatThrownBy(() -> ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(ledger.tryReserve(DOCTOR_ID, DAY.atTime(10, 0), 30)).isFalse();
+    }
+}
@@ -0,0 +1,161 @@
+package com.medibook.api.service;
+
+import com.medibook.api.dto.AvailableSlotResponse;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.BookedSlot;
+import com.medibook.api.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlotSearchServiceImplTest {
+
+    private static final String SPECIALTY = "Cardiología";
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 1).with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private static final WeeklySchedule MONDAY_NINE_TO_TEN = WeeklySchedule.builder()
+            .add(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0))
+            .build();
+
+    private AppointmentRepository appointmentRepository;
+    private DoctorRepository doctorRepository;
+    private DoctorScheduleIndex doctorScheduleIndex;
+    private SlotHoldService slotHoldService;
+    private SlotSearchService service;
+    private Doctor first;
+    private Doctor second;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        doctorRepository = mock(DoctorRepository.class);
+        doctorScheduleIndex = mock(DoctorScheduleIndex.class);
+        slotHoldService = mock(SlotHoldService.class);
+        service = new SlotSearchServiceImpl(doctorRepository, appointmentRepository, doctorScheduleIndex,
+                slotHoldService);
+        first = Doctor.builder().id(3L).firstName("Ana").lastName("Paz").specialty(SPECIALTY).build();
+        second = Doctor.builder().id(8L).firstName("Luis").lastName("Gil").specialty(SPECIALTY).build();
+        when(doctorRepository.findBySpecialtyIgnoreCase(SPECIALTY)).thenReturn(List.of(first));
+        when(doctorScheduleIndex.get(first)).thenReturn(WeeklySchedule.everyDay(LocalTime.of(9, 0), LocalTime.of(11, 0)));
+    }
+
+    @Test
+    void appointmentsBlockEverySlotTheyOverlap() {
+        booked(new BookedSlot(3L, MONDAY.atTime(9, 15), 30));
+
+        assertThat(starts(search(MONDAY, MONDAY, 10, 30))).containsExactly(MONDAY.atTime(10, 0), MONDAY.atTime(10, 30));
+    }
+
+    @Test
+    void longAppointmentIsFoundBehindShorterLaterOnes() {
+        booked(new BookedSlot(3L, MONDAY.atTime(9, 0), 90), new BookedSlot(3L, MONDAY.atTime(9, 40), 5));
+
+        assertThat(starts(search(MONDAY, MONDAY, 10, 30))).containsExactly(MONDAY.atTime(10, 30));
+    }
+
+    @Test
+    void slotsAdjacentToAnAppointmentStayFree() {
+        booked(new BookedSlot(3L, MONDAY.atTime(9, 30), 30));
+
+        assertThat(starts(search(MONDAY, MONDAY, 10, 30)))
+                .containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(10, 0), MONDAY.atTime(10, 30));
+    }
+
+    @Test
+    void heldSlotsAreSkipped() {
+        when(slotHoldService.heldSlots(anyCollection(), any(), any()))
+                .thenReturn(List.of(new BookedSlot(first.getId(), MONDAY.atTime(9, 30), 30)));
+
+        assertThat(starts(search(MONDAY, MONDAY, 10, 30)))
+                .containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(10, 0), MONDAY.atTime(10, 30));
+    }
+
+    @Test
+    void simultaneousSlotsAreOrderedByDoctorId() {
+        when(doctorRepository.findBySpecialtyIgnoreCase(SPECIALTY)).thenReturn(List.of(second, first));
+        when(doctorScheduleIndex.get(first)).thenReturn(MONDAY_NINE_TO_TEN);
+        when(doctorScheduleIndex.get(second)).thenReturn(MONDAY_NINE_TO_TEN);
+
+        List<AvailableSlotResponse> slots = search(MONDAY, MONDAY, 10, 30);
+
+        assertThat(slots).extracting(AvailableSlotResponse::doctorId).containsExactly(3L, 8L, 3L, 8L);
+        assertThat(starts(slots)).containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(9, 0), MONDAY.atTime(9, 30),
+                MONDAY.atTime(9, 30));
+    }
+
+    @Test
+    void doctorsWithoutScheduleAreLeftOut() {
+        when(doctorRepository.findBySpecialtyIgnoreCase(SPECIALTY)).thenReturn(List.of(second, first));
+        when(doctorScheduleIndex.get(second)).thenReturn(WeeklySchedule.EMPTY);
+
+        assertThat(search(MONDAY, MONDAY, 10, 30)).extracting(AvailableSlotResponse::doctorId).containsOnly(3L);
+    }
+
+    @Test
+    void eachChunkReadsItsOwnDaysAndUsesItsOwnAppointments() {
+        when(doctorScheduleIndex.get(first)).thenReturn(MONDAY_NINE_TO_TEN);
+        LocalDate nextMonday = MONDAY.plusDays(7);
+        LocalDate to = MONDAY.plusDays(9);
+        // La cita de la segunda semana sólo aparece en la consulta de su tramo
+        when(appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(List.of(3L),
+                nextMonday.atStartOfDay(), to.atTime(LocalTime.MAX)))
+                .thenReturn(List.of(new BookedSlot(3L, nextMonday.atTime(9, 0), 30)));
+
+        List<AvailableSlotResponse> slots = search(MONDAY, to, 10, 30);
+
+        assertThat(starts(slots)).containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(9, 30), nextMonday.atTime(9, 30));
+        verify(appointmentRepository).findActiveSlotsByDoctorIdInAndDateTimeBetween(List.of(3L),
+                MONDAY.atStartOfDay(), MONDAY.plusDays(6).atTime(LocalTime.MAX));
+        verify(appointmentRepository).findActiveSlotsByDoctorIdInAndDateTimeBetween(List.of(3L),
+                nextMonday.atStartOfDay(), to.atTime(LocalTime.MAX));
+        verify(slotHoldService).heldSlots(List.of(3L), nextMonday.atStartOfDay(), to.atTime(LocalTime.MAX));
+    }
+
+    @Test
+    void limitCutsAcrossChunksAndStopsReading() {
+        when(doctorScheduleIndex.get(first)).thenReturn(MONDAY_NINE_TO_TEN);
+
+        List<AvailableSlotResponse> slots = search(MONDAY, MONDAY.plusDays(27), 3, 30);
+
+        assertThat(starts(slots)).containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(9, 30),
+                MONDAY.plusDays(7).atTime(9, 0));
+        verify(appointmentRepository, times(2)).findActiveSlotsByDoctorIdInAndDateTimeBetween(anyCollection(), any(),
+                any());
+    }
+
+    @Test
+    void limitReachedInsideTheFirstChunkReadsOnlyThatChunk() {
+        List<AvailableSlotResponse> slots = search(MONDAY, MONDAY.plusDays(27), 2, 30);
+
+        assertThat(starts(slots)).containsExactly(MONDAY.atTime(9, 0), MONDAY.atTime(9, 30));
+        verify(appointmentRepository, times(1)).findActiveSlotsByDoctorIdInAndDateTimeBetween(anyCollection(), any(),
+                any());
+    }
+
+    private List<AvailableSlotResponse> search(LocalDate from, LocalDate to, int limit, int slotMinutes) {
+        return service.findNextAvailable(SPECIALTY, from, to, limit, slotMinutes);
+    }
+
+    private void booked(BookedSlot... slots) {
+        when(appointmentRepository.findActiveSlotsByDoctorIdInAndDateTimeBetween(anyCollection(), any(), any()))
+                .thenReturn(List.of(slots));
+    }
+
+    private static List<LocalDateTime> starts(List<AvailableSlotResponse> slots) {
+        return slots.stream().map(AvailableSlotResponse::dateTime).toList();
+    }
+}
@@ -0,0 +1,142 @@
+package com.medibook.api.service;
+
+import com.medibook.api.PostgresIntegrationTest;
+import com.medibook.api.event.AppointmentChangedEvent;
+import com.medibook.api.model.Appointment;
+import com.medibook.api.model.AppointmentStatus;
+import com.medibook.api.model.Doctor;
+import com.medibook.api.model.Patient;
+import com.medibook.api.model.WaitlistEntry;
+import com.medibook.api.model.WaitlistStatus;
+import com.medibook.api.repository.AppointmentRepository;
+import com.medibook.api.repository.DoctorRepository;
+import com.medibook.api.repository.PatientRepository;
+import com.medibook.api.repository.WaitlistEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Relleno desde la lista de espera. El oyente real corre después de confirmar,
+ * así que los tests llaman a {@link WaitlistService#backfill} dentro de su
+ * propia transacción, que se deshace al terminar.
+ */
+@Transactional
+class WaitlistBackfillIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    private Doctor doctor;
+    private LocalDateTime slot;
+    private Patient canceller;
+
+    @BeforeEach
+    void createDoctor() {
+        doctor = doctorRepository.save(doctor("Espera"));
+        slot = LocalDateTime.now().plusDays(30).toLocalDate().atTime(10, 0);
+        canceller = patient("Carla");
+    }
+
+    @Test
+    void cancellingPatientIsNeverOfferedTheirOwnSlot() {
+        WaitlistEntry own = entry(canceller, 10);
+        WaitlistEntry other = entry(patient("Otro"), 0);
+
+        waitlistService.backfill(cancellation());
+
+        assertThat(own.getStatus()).isEqualTo(WaitlistStatus.WAITING);
+        assertThat(other.getStatus()).isEqualTo(WaitlistStatus.BOOKED);
+        assertThat(other.getAppointmentId()).isNotNull();
+    }
+
+    @Test
+    void busyCandidatesAreSkippedUntilOneBooks() {
+        Doctor otherDoctor = doctorRepository.save(doctor("Otro"));
+        Patient busy = patient("Ocupado");
+        appointmentRepository.save(Appointment.builder()
+                .doctor(otherDoctor).patient(busy).dateTime(slot.minusMinutes(15)).durationMinutes(30)
+                .status(AppointmentStatus.CONFIRMED).build());
+        Patient alsoBusy = patient("Tambien");
+        appointmentRepository.save(Appointment.builder()
+                .doctor(otherDoctor).patient(alsoBusy).dateTime(slot.plusMinutes(20)).durationMinutes(30)
+                .status(AppointmentStatus.CONFIRMED).build());
+        Patient freeAfterCancel = patient("Libre");
+        appointmentRepository.save(Appointment.builder()
+                .doctor(otherDoctor).patient(freeAfterCancel).dateTime(slot).durationMinutes(30)
+                .status(AppointmentStatus.CANCELLED).build());
+
+        WaitlistEntry first = entry(busy, 5);
+        WaitlistEntry second = entry(alsoBusy, 3);
+        WaitlistEntry third = entry(freeAfterCancel, 0);
+
+        waitlistService.backfill(cancellation());
+
+        assertThat(first.getStatus()).isEqualTo(WaitlistStatus.WAITING);
+        assertThat(second.getStatus()).isEqualTo(WaitlistStatus.WAITING);
+        assertThat(third.getStatus()).isEqualTo(WaitlistStatus.BOOKED);
+        assertThat(appointmentRepository.findById(third.getAppointmentId()))
+                .get().extracting(appointment -> appointment.getPatient().getId())
+                .isEqualTo(freeAfterCancel.getId());
+    }
+
+    @Test
+    void nothingIsBookedWhenNoCandidateIsEligible() {
+        WaitlistEntry own = entry(canceller, 0);
+
+        waitlistService.backfill(cancellation());
+
+        assertThat(own.getStatus()).isEqualTo(WaitlistStatus.WAITING);
+        assertThat(appointmentRepository.findActiveSlotsByDoctorIdAndDateTimeBetween(doctor.getId(),
+                slot.minusHours(1), slot.plusHours(1))).isEmpty();
+    }
+
+    private AppointmentChangedEvent cancellation() {
+        return new AppointmentChangedEvent(-1L, doctor.getId(), canceller.getId(), slot, 30,
+                AppointmentStatus.CONFIRMED, AppointmentStatus.CANCELLED);
+    }
+
+    private WaitlistEntry entry(Patient patient, int priority) {
+        return waitlistEntryRepository.save(WaitlistEntry.builder()
+                .doctor(doctor).patient(patient)
+                .windowStart(slot.minusDays(1)).windowEnd(slot.plusDays(1))
+                .priority(priority).createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    private Patient patient(String name) {
+        return patientRepository.save(Patient.builder()
+                .firstName(name).lastName("Test").email(unique(name.toLowerCase())).build());
+    }
+
+    private static Doctor doctor(String lastName) {
+        return Doctor.builder()
+                .firstName("Test").lastName(lastName).specialty("Clínica")
+                .email(unique("doctor")).consultationPrice(100.0)
+                .workStart(LocalTime.of(8, 0)).workEnd(LocalTime.of(20, 0))
+                .build();
+    }
+
+    private static String unique(String prefix) {
+        return prefix + "-" + UUID.randomUUID() + "@test.medibook.com";
+    }
+}